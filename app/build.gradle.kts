@@ -41,5 +41,26 @@ application {
 
 tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("scale")
+    }
+}
+
+// Runs the tests tagged "scale" on archives of 100k to 1M entries generated
+// into the build directory, with heap and time budgets. Run them with
+// `./gradlew :app:scaleTest`; -Pscale.entries=100000 runs the smaller size only.
+val scaleTest by tasks.registering(Test::class) {
+    description = "Runs the scale tests on generated archives."
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("scale")
+    }
+    maxHeapSize = "1g"
+    systemProperty("scale.fixtures", layout.buildDirectory.dir("scale-fixtures").get().asFile.absolutePath)
+    listOf("scale.entries", "scale.zip64Size", "scale.nanosPerEntry", "scale.bytesPerEntry").forEach { name ->
+        providers.gradleProperty(name).orNull?.let { systemProperty(name, it) }
+    }
+    shouldRunAfter(tasks.test)
 }
@@ -0,0 +1,388 @@
+package java_practice01;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitor;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scans directory trees for zip files and detects the charset of their entry
+ * names. One JSON line is written per archive as soon as it is done, followed
+ * by a summary line with the throughput and the number of archives per
+ * charset. With {@code --daemon}, it serves detections over a Unix-domain
+ * socket instead, as described in {@link DetectionDaemon}, until it receives
+ * the {@code shutdown} command or the JVM is shut down.
+ *
+ * <pre>
+ * App [--charsets UTF-8,Shift_JIS,...] [--parallelism N] DIRECTORY...
+ * App --daemon SOCKET [--charsets UTF-8,Shift_JIS,...] [--parallelism N] [--cache N]
+ * </pre>
+ */
+public class App {
+
+    private static final String USAGE = "Usage: App [--charsets CHARSET,...] [--parallelism N] DIRECTORY...\n"
+            + "       App --daemon SOCKET [--charsets CHARSET,...] [--parallelism N] [--cache N]";
+
+    /**
+     * The number of detections the daemon caches when no size is given.
+     */
+    private static final int DEFAULT_CACHE_SIZE = 100000;
+
+    /**
+     * The candidate charsets used when none are given.
+     */
+    private static final String DEFAULT_CHARSETS = "UTF-8,Shift_JIS,EUC-JP,ISO-2022-JP";
+
+    /**
+     * The key of the summary counts for archives without a valid charset.
+     */
+    private static final String NO_CHARSET = "none";
+
+    private final List<Charset> charsets;
+
+    private final int parallelism;
+
+    private final PrintStream out;
+
+    private final LongAdder files = new LongAdder();
+
+    private final LongAdder entries = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new App object.
+     *
+     * @param charsets    the candidate charsets in order of preference
+     * @param parallelism the maximum number of archives probed at the same time
+     * @param out         the stream which receives the JSON lines
+     */
+    App(List<Charset> charsets, int parallelism, PrintStream out) {
+        this.charsets = List.copyOf(charsets);
+        this.parallelism = parallelism;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        int status = run(args, System.out, System.err);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Parses the arguments and scans the directories.
+     *
+     * @param args the command line arguments
+     * @param out  the stream which receives the JSON lines
+     * @param err  the stream which receives error messages
+     * @return the exit status
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        String charsetNames = DEFAULT_CHARSETS;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        Path socket = null;
+        int cacheSize = DEFAULT_CACHE_SIZE;
+        List<Path> roots = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--charsets" -> charsetNames = args[++i];
+                    case "--parallelism" -> parallelism = Integer.parseInt(args[++i]);
+                    case "--daemon" -> socket = Paths.get(args[++i]);
+                    case "--cache" -> cacheSize = Integer.parseInt(args[++i]);
+                    default -> roots.add(Paths.get(args[i]));
+                }
+            }
+            if (roots.isEmpty() == (socket == null) || parallelism <= 0 || cacheSize <= 0) {
+                throw new IllegalArgumentException();
+            }
+            List<Charset> charsets = new ArrayList<>();
+            for (String name : charsetNames.split(",")) {
+                charsets.add(Charset.forName(name.trim()));
+            }
+            if (socket != null) {
+                serve(socket, charsets, parallelism, cacheSize);
+            } else {
+                new App(charsets, parallelism, out).scan(roots);
+            }
+            return 0;
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            if (e.getMessage() != null) {
+                err.println(e.getMessage());
+            }
+            err.println(USAGE);
+            return 2;
+        } catch (IOException | UncheckedIOException e) {
+            err.println(e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    /**
+     * Scans the directory trees and writes the JSON lines. A file or directory
+     * which cannot be read gets an error line and the scan goes on. The
+     * archives are probed on a fixed pool of platform threads, which keep
+     * their entry name codecs from one archive to the next, while the lines
+     * are written by virtual threads, so that a slow output does not hold up
+     * the probes.
+     *
+     * @param roots the directories to scan
+     * @throws IOException          if an I/O error occurs
+     * @throws InterruptedException if interrupted while waiting for a probe
+     */
+    void scan(List<Path> roots) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Semaphore permits = new Semaphore(parallelism);
+        // The first Error of a probe, which stops the scan.
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+        ExecutorService probes = Executors.newFixedThreadPool(parallelism);
+        // The probes are closed first, since they hand their lines to the
+        // writers.
+        try (writers; probes) {
+            FileVisitor<Path> visitor = new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                    // Files.isRegularFile follows a symbolic link to an archive.
+                    if (!isZipFile(path) || !attributes.isRegularFile() && !Files.isRegularFile(path)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (failure.get() != null) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    CompletableFuture.supplyAsync(() -> probeSafely(path.toFile()), probes)
+                            .thenAcceptAsync(out::println, writers)
+                            .whenComplete((unused, e) -> {
+                                if (e != null) {
+                                    failure.compareAndSet(null, e instanceof CompletionException ? e.getCause() : e);
+                                }
+                                permits.release();
+                            });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) {
+                    out.println(error(new StringBuilder("{\"path\":").append(quote(path.toString())), e,
+                            System.nanoTime()));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+                    // The listing of the directory broke off part way.
+                    return e != null ? visitFileFailed(directory, e) : FileVisitResult.CONTINUE;
+                }
+            };
+            for (Path root : roots) {
+                Files.walkFileTree(root, visitor);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (failure.get() != null) {
+                    break;
+                }
+            }
+        }
+        if (failure.get() instanceof Error e) {
+            throw e;
+        }
+        out.println(summary(System.nanoTime() - start));
+    }
+
+    /**
+     * Runs a detection daemon until it is shut down by a client or with the
+     * JVM, in which case the requests already read are answered first.
+     *
+     * @param socket      the path of the socket file
+     * @param charsets    the default candidate charsets
+     * @param parallelism the number of threads which probe the zip files
+     * @param cacheSize   the number of cached detections
+     * @throws IOException if the socket cannot be bound or served
+     */
+    private static void serve(Path socket, List<Charset> charsets, int parallelism, int cacheSize)
+            throws IOException {
+        DetectionDaemon daemon = new DetectionDaemon(socket, charsets, parallelism, new DetectionCache(cacheSize));
+        Thread hook = new Thread(() -> {
+            daemon.shutdown();
+            try {
+                daemon.awaitTermination();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(hook);
+        try {
+            daemon.serve();
+        } finally {
+            try {
+                Runtime.getRuntime().removeShutdownHook(hook);
+            } catch (IllegalStateException e) {
+                // The JVM is shutting down and the hook is running.
+            }
+        }
+    }
+
+    private static boolean isZipFile(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip");
+    }
+
+    /**
+     * Detects the charset of one archive, turning any exception into an error
+     * line which is counted as an archive without a valid charset, so that a
+     * broken archive neither stops the scan nor goes missing from the summary.
+     * An Error is not caught, since the JVM may not be fit to go on.
+     *
+     * @param file the zip file
+     * @return the JSON line of the archive
+     */
+    String probeSafely(File file) {
+        long start = System.nanoTime();
+        try {
+            return probe(file);
+        } catch (Exception e) {
+            files.increment();
+            count(NO_CHARSET);
+            return error(new StringBuilder("{\"path\":").append(quote(file.getPath())), e, start);
+        }
+    }
+
+    /**
+     * Detects the charset of one archive.
+     *
+     * @param file the zip file
+     * @return the JSON line of the archive
+     */
+    String probe(File file) {
+        long start = System.nanoTime();
+        List<EncodedFile> group = new EncodedFileList(new ArrayList<>()).collect(List.of(file), charsets);
+        StringBuilder json = new StringBuilder("{\"path\":").append(quote(file.getPath()));
+        CentralDirectory directory;
+        try {
+            directory = CentralDirectory.read(file);
+        } catch (IOException e) {
+            files.increment();
+            count(NO_CHARSET);
+            return error(json, e, start);
+        }
+        Optional<Detection> detection = EncodedFileList.detect(group, directory);
+        files.increment();
+        entries.add(directory.size());
+        bytes.add(directory.byteSize());
+        count(detection.map(d -> d.encodedFile().charset().name()).orElse(NO_CHARSET));
+        json.append(",\"charset\":")
+                .append(detection.map(d -> quote(d.encodedFile().charset().name())).orElse("null"))
+                .append(",\"fastPath\":")
+                .append(detection.map(d -> quote(d.fastPath().name())).orElse("null"))
+                .append(",\"entries\":").append(directory.size())
+                .append(",\"bytes\":").append(directory.byteSize())
+                .append(",\"nanos\":").append(System.nanoTime() - start);
+        return json.append('}').toString();
+    }
+
+    /**
+     * Completes the JSON line of an archive which could not be probed.
+     *
+     * @param json  the line so far, holding the path
+     * @param e     the failure
+     * @param start the time the probe started
+     * @return the JSON line of the archive
+     */
+    private static String error(StringBuilder json, Throwable e, long start) {
+        String message = e.getMessage() != null ? e.getMessage() : e.toString();
+        return json.append(",\"charset\":null,\"error\":").append(quote(message))
+                .append(",\"nanos\":").append(System.nanoTime() - start).append('}').toString();
+    }
+
+    /**
+     * Builds the summary line.
+     *
+     * @param nanos the elapsed time
+     * @return the JSON line of the summary
+     */
+    String summary(long nanos) {
+        double seconds = nanos / 1e9;
+        StringBuilder json = new StringBuilder("{\"summary\":true")
+                .append(",\"files\":").append(files.sum())
+                .append(",\"entries\":").append(entries.sum())
+                .append(",\"bytes\":").append(bytes.sum())
+                .append(",\"seconds\":").append(String.format(Locale.ROOT, "%.3f", seconds))
+                .append(",\"filesPerSecond\":")
+                .append(String.format(Locale.ROOT, "%.1f", seconds > 0 ? files.sum() / seconds : 0))
+                .append(",\"entriesPerSecond\":")
+                .append(String.format(Locale.ROOT, "%.1f", seconds > 0 ? entries.sum() / seconds : 0))
+                .append(",\"charsets\":{");
+        String separator = "";
+        for (Map.Entry<String, LongAdder> count : new TreeMap<>(counts).entrySet()) {
+            json.append(separator).append(quote(count.getKey())).append(':').append(count.getValue().sum());
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    private void count(String charset) {
+        counts.computeIfAbsent(charset, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Quotes a string as a JSON string.
+     *
+     * @param value the string
+     * @return the JSON string
+     */
+    static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,35 @@
+package java_practice01;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JFR event which marks opening an archive, either by ZipFile or to read
+ * its central directory.
+ */
+@Name("java_practice01.ArchiveOpen")
+@Label("Archive Open")
+@Category({ "java_practice01", "Detection" })
+@Description("Opening a zip file and reading its central directory")
+final class ArchiveOpenEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Charset")
+    @Description("The charset of the ZipFile, or null when only the raw central directory is read")
+    String charset;
+
+    @Label("Entries")
+    int entries;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytes;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
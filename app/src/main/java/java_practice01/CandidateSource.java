@@ -0,0 +1,179 @@
+package java_practice01;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Produces the candidate encoded files of many files on demand. Unlike
+ * {@link EncodedFileList#collect(Iterable, Iterable)}, which builds the whole
+ * product of files and charsets up front, the candidates of a file are created
+ * only when the file is reached, so the memory in use grows with the files in
+ * flight rather than with the number of files. The candidates are grouped per
+ * file, and once a file has a valid charset its remaining charsets are not
+ * tried. The spliterator splits as the spliterator of the files does, so the
+ * streams can be processed in parallel.
+ *
+ * <p>
+ * A source built from a stream can be traversed only once, like the stream
+ * itself.
+ */
+public final class CandidateSource {
+
+    private final Supplier<Spliterator<File>> files;
+
+    private final List<Charset> charsets;
+
+    /**
+     * Constructs a source over an iterable of files, which can be traversed as
+     * many times as the iterable can.
+     *
+     * @param files    the files in order
+     * @param charsets the charsets to try for each file in order of preference
+     * @throws NullPointerException     if either argument is null or charsets
+     *                                  contains null
+     * @throws IllegalArgumentException if charsets is empty
+     */
+    public CandidateSource(Iterable<File> files, List<Charset> charsets) {
+        this(Objects.requireNonNull(files, "files is null")::spliterator, charsets);
+    }
+
+    /**
+     * Constructs a source over a stream of files, such as the paths of a
+     * directory walk mapped to files.
+     *
+     * @param files    the files in order
+     * @param charsets the charsets to try for each file in order of preference
+     * @throws NullPointerException     if either argument is null or charsets
+     *                                  contains null
+     * @throws IllegalArgumentException if charsets is empty
+     */
+    public CandidateSource(Stream<File> files, List<Charset> charsets) {
+        this(Objects.requireNonNull(files, "files is null")::spliterator, charsets);
+    }
+
+    private CandidateSource(Supplier<Spliterator<File>> files, List<Charset> charsets) {
+        this.files = files;
+        this.charsets = List.copyOf(Objects.requireNonNull(charsets, "charsets is null"));
+        if (this.charsets.isEmpty()) {
+            throw new IllegalArgumentException("charsets is empty");
+        }
+    }
+
+    /**
+     * Returns a spliterator over the candidates grouped per file. Each group is
+     * created when it is advanced to.
+     *
+     * @return the spliterator of the groups
+     * @throws IllegalStateException if the source was built from a stream which
+     *                               has been traversed already
+     */
+    public Spliterator<List<EncodedFile>> spliterator() {
+        return new GroupSpliterator(files.get(), charsets);
+    }
+
+    /**
+     * Returns a stream of the candidates grouped per file.
+     *
+     * @param parallel true for a parallel stream
+     * @return the stream of the groups
+     */
+    public Stream<List<EncodedFile>> groups(boolean parallel) {
+        return StreamSupport.stream(spliterator(), parallel);
+    }
+
+    /**
+     * Returns a stream of all candidates, file by file, in the order of the
+     * charsets.
+     *
+     * @return the sequential stream of the candidates
+     */
+    public Stream<EncodedFile> candidates() {
+        return groups(false).flatMap(List::stream);
+    }
+
+    /**
+     * Returns a stream of the first valid candidate of each file which has one.
+     * The central directory of each file is read only once, and the charsets
+     * after the first valid one are not tried.
+     *
+     * @param parallel true to probe the files in parallel; the stream keeps the
+     *                 order of the files either way
+     * @return the stream of the valid candidates
+     */
+    public Stream<EncodedFile> valids(boolean parallel) {
+        return groups(parallel)
+                .map(group -> EncodedFileList.probe(group, true, () -> false))
+                .filter(valids -> !valids.isEmpty())
+                .map(valids -> valids.get(0));
+    }
+
+    /**
+     * Finds the first valid candidate in the order of the files. No file after
+     * the first one which has a valid candidate is opened.
+     *
+     * @return An Optional containing the first valid EncodedFile as a zip file, or
+     *         an empty Optional if no valid zip file is found.
+     */
+    public Optional<EncodedFile> findFirstValidZipFile() {
+        return valids(false).findFirst();
+    }
+
+    /**
+     * Maps each file to its group of candidates as it is advanced to.
+     */
+    private static final class GroupSpliterator implements Spliterator<List<EncodedFile>> {
+
+        private final Spliterator<File> files;
+
+        private final List<Charset> charsets;
+
+        GroupSpliterator(Spliterator<File> files, List<Charset> charsets) {
+            this.files = files;
+            this.charsets = charsets;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<EncodedFile>> action) {
+            return files.tryAdvance(file -> action.accept(group(file)));
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super List<EncodedFile>> action) {
+            files.forEachRemaining(file -> action.accept(group(file)));
+        }
+
+        @Override
+        public Spliterator<List<EncodedFile>> trySplit() {
+            Spliterator<File> prefix = files.trySplit();
+            return prefix != null ? new GroupSpliterator(prefix, charsets) : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return files.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return (files.characteristics() & (ORDERED | SIZED | SUBSIZED | IMMUTABLE | CONCURRENT)) | NONNULL;
+        }
+
+        private List<EncodedFile> group(File file) {
+            Objects.requireNonNull(file, "file is null");
+            List<EncodedFile> group = new ArrayList<>(charsets.size());
+            for (Charset charset : charsets) {
+                group.add(new EncodedFile(file, charset));
+            }
+            return group;
+        }
+    }
+}
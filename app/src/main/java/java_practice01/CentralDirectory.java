@@ -0,0 +1,631 @@
+package java_practice01;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32C;
+import java.util.zip.ZipException;
+
+/**
+ * Represents the central directory of a zip file read as raw bytes.
+ * The entry names are kept undecoded, so the same directory can be checked
+ * against any number of charsets without opening the file again.
+ * Only the end of central directory records and the central directory itself
+ * are read, and no {@link java.util.zip.ZipEntry} is created. Small parts are
+ * read into heap buffers and only large central directories are memory-mapped,
+ * since a mapping is only released by the garbage collector and a scan of many
+ * small archives would otherwise exhaust the mappings allowed to a process.
+ * Zip64 archives are supported.
+ */
+public final class CentralDirectory {
+
+    /**
+     * The signature of the end of central directory record.
+     */
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    /**
+     * The signature of the Zip64 end of central directory locator.
+     */
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    /**
+     * The signature of the Zip64 end of central directory record.
+     */
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    /**
+     * The signature of a central directory file header.
+     */
+    private static final int CEN_SIGNATURE = 0x02014b50;
+
+    /**
+     * The fixed size of the end of central directory record.
+     */
+    private static final int END_HEADER_SIZE = 22;
+
+    /**
+     * The size of the Zip64 end of central directory locator.
+     */
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+    /**
+     * The fixed size of the Zip64 end of central directory record.
+     */
+    private static final int ZIP64_END_HEADER_SIZE = 56;
+
+    /**
+     * The fixed size of a central directory file header.
+     */
+    private static final int CEN_HEADER_SIZE = 46;
+
+    /**
+     * The maximum length of the zip file comment.
+     */
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    /**
+     * The length of the tail read first when looking for the END header. Most
+     * archives have a short comment or none, so the whole tail allowed by the
+     * maximum comment length is only read when the END header is not in this
+     * one.
+     */
+    private static final int SHORT_TAIL_SIZE = 1024;
+
+    /**
+     * The size from which a part of a file is memory-mapped instead of read.
+     */
+    private static final int MAP_THRESHOLD = 1 << 20;
+
+    /**
+     * The header id of the Zip64 extended information extra field.
+     */
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    /**
+     * The header id of the extended timestamp extra field.
+     */
+    private static final int EXTENDED_TIMESTAMP_EXTRA_ID = 0x5455;
+
+    /**
+     * The value of a 16-bit field which is stored in the Zip64 records instead.
+     */
+    private static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+
+    /**
+     * The value of a 32-bit field which is stored in the Zip64 records instead.
+     */
+    private static final long ZIP64_MAGIC_INT = 0xFFFFFFFFL;
+
+    /**
+     * The offsets in a central directory file header of the fields which may be
+     * stored in the Zip64 extended information, in the order they appear there.
+     */
+    private static final int[] ZIP64_FIELD_OFFSETS = { 24, 20, 42 };
+
+    /**
+     * The general purpose bit flag which declares UTF-8 entry names.
+     */
+    public static final int FLAG_UTF8 = 0x0800;
+
+    /**
+     * Reads a region of an archive.
+     */
+    @FunctionalInterface
+    private interface Region {
+        /**
+         * Reads a part of the archive.
+         *
+         * @param position the position of the part in the archive
+         * @param size     the size of the part
+         * @return the buffer holding the part
+         * @throws IOException if an I/O error occurs
+         */
+        ByteBuffer read(long position, int size) throws IOException;
+    }
+
+    /**
+     * Reads a central directory through a decorated region.
+     */
+    @FunctionalInterface
+    private interface Opening {
+        /**
+         * Reads the central directory.
+         *
+         * @param measure decorates the region of the archive
+         * @return the central directory
+         * @throws IOException if an I/O error occurs or the archive is not valid
+         */
+        CentralDirectory read(UnaryOperator<Region> measure) throws IOException;
+    }
+
+    private final File file;
+
+    private final ByteBuffer cen;
+
+    private final int[] positions;
+
+    /**
+     * The position in the archive which local header offsets are relative to.
+     * It is not zero when data is prepended to the archive.
+     */
+    private final long base;
+
+    /**
+     * The zip file comment.
+     */
+    private final ByteBuffer comment;
+
+    private CentralDirectory(File file, ByteBuffer cen, int[] positions, long base, ByteBuffer comment) {
+        this.file = file;
+        this.cen = cen;
+        this.positions = positions;
+        this.base = base;
+        this.comment = comment;
+    }
+
+    /**
+     * Reads the central directory of the given zip file.
+     *
+     * @param file the zip file to read
+     * @return the central directory of the file
+     * @throws IOException          if an I/O error occurs or the file is not a
+     *                              valid zip file
+     * @throws NullPointerException if the file is null
+     */
+    public static CentralDirectory read(File file) throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        return open(file, measure -> {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                return read(file, channel.size(), measure.apply(region(channel, 0)));
+            }
+        });
+    }
+
+    /**
+     * Reads the central directory of an archive which is stored in a part of a
+     * file, such as a stored entry of an outer archive. The local header offsets
+     * of the directory are relative to the start of the part. The channel is not
+     * closed.
+     *
+     * @param file    the file reported by {@link #file()}
+     * @param channel the channel of the file which holds the archive
+     * @param offset  the position of the archive in the channel
+     * @param length  the length of the archive
+     * @return the central directory of the archive
+     * @throws IOException              if an I/O error occurs or the part is not
+     *                                  a valid archive
+     * @throws NullPointerException     if the file or channel is null
+     * @throws IllegalArgumentException if the offset or length is negative
+     */
+    public static CentralDirectory read(File file, FileChannel channel, long offset, long length)
+            throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        Objects.requireNonNull(channel, "channel is null");
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("offset or length is negative");
+        }
+        return open(file, measure -> read(file, length, measure.apply(region(channel, offset))));
+    }
+
+    /**
+     * Returns the region of an archive stored in a file channel. A part is read
+     * into a heap buffer unless it is at least {@link #MAP_THRESHOLD} bytes long,
+     * in which case it is memory-mapped.
+     *
+     * @param channel the channel of the file which holds the archive
+     * @param offset  the position of the archive in the channel
+     * @return the region of the archive
+     */
+    private static Region region(FileChannel channel, long offset) {
+        return (position, size) -> {
+            if (size >= MAP_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, offset + position, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + position + buffer.position()) < 0) {
+                    throw new EOFException("unexpected end of archive");
+                }
+            }
+            return buffer.flip();
+        };
+    }
+
+    /**
+     * Reads the central directory of an archive held in memory. The directory
+     * is a view of the buffer, which must not be modified while it is in use.
+     *
+     * @param file    the file reported by {@link #file()}
+     * @param archive the whole archive, from its position to its limit
+     * @return the central directory of the archive
+     * @throws IOException          if the buffer is not a valid archive
+     * @throws NullPointerException if the file or archive is null
+     */
+    public static CentralDirectory read(File file, ByteBuffer archive) throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        ByteBuffer whole = Objects.requireNonNull(archive, "archive is null").slice();
+        return open(file, measure -> read(file, whole.limit(),
+                measure.apply((position, size) -> whole.slice((int) position, size))));
+    }
+
+    /**
+     * Opens an archive and records the opening in the metrics, if they are
+     * enabled, and in the JFR event, if it is enabled.
+     *
+     * @param file    the file reported by {@link #file()}
+     * @param opening reads the directory through the region decorator it is
+     *                given, which counts the bytes read
+     * @return the central directory of the archive
+     * @throws IOException if an I/O error occurs or the archive is not valid
+     */
+    private static CentralDirectory open(File file, Opening opening) throws IOException {
+        DetectionMetrics metrics = DetectionMetrics.global();
+        boolean measured = metrics.isEnabled();
+        long start = measured ? System.nanoTime() : 0;
+        ArchiveOpenEvent event = new ArchiveOpenEvent();
+        event.begin();
+        long[] bytes = new long[1];
+        CentralDirectory directory = null;
+        try {
+            directory = opening.read(region -> (position, size) -> {
+                bytes[0] += size;
+                return region.read(position, size);
+            });
+            return directory;
+        } finally {
+            if (measured) {
+                metrics.recordOpen(System.nanoTime() - start, bytes[0]);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = file.getPath();
+                event.entries = directory != null ? directory.size() : 0;
+                event.bytes = bytes[0];
+                event.succeeded = directory != null;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Reads the central directory of an archive.
+     *
+     * @param file   the zip file which holds the archive
+     * @param length the length of the archive
+     * @param region the region of the archive
+     * @return the central directory of the archive
+     * @throws IOException if an I/O error occurs or the archive is not valid
+     */
+    private static CentralDirectory read(File file, long length, Region region) throws IOException {
+        int tailSize = (int) Math.min(length, END_HEADER_SIZE + SHORT_TAIL_SIZE);
+        long tailPos = length - tailSize;
+        ByteBuffer tail = region.read(tailPos, tailSize).order(ByteOrder.LITTLE_ENDIAN);
+        int endPos = findEndHeader(tail);
+        if (endPos < 0 && tailPos > 0) {
+            tailSize = (int) Math.min(length, END_HEADER_SIZE + MAX_COMMENT_SIZE);
+            tailPos = length - tailSize;
+            tail = region.read(tailPos, tailSize).order(ByteOrder.LITTLE_ENDIAN);
+            endPos = findEndHeader(tail);
+        }
+        if (endPos < 0) {
+            throw new ZipException("zip END header not found");
+        }
+        long endHeaderPos = tailPos + endPos;
+        long total = Short.toUnsignedInt(tail.getShort(endPos + 10));
+        long cenSize = Integer.toUnsignedLong(tail.getInt(endPos + 12));
+        long cenOffset = Integer.toUnsignedLong(tail.getInt(endPos + 16));
+        long cenEnd = endHeaderPos;
+        if (total == ZIP64_MAGIC_SHORT || cenSize == ZIP64_MAGIC_INT || cenOffset == ZIP64_MAGIC_INT) {
+            long locatorPos = endHeaderPos - ZIP64_LOCATOR_SIZE;
+            ByteBuffer locator = locatorPos >= 0
+                    ? region.read(locatorPos, ZIP64_LOCATOR_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                    : null;
+            if (locator != null && locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                long zip64EndPos = locator.getLong(8);
+                if (zip64EndPos < 0 || zip64EndPos + ZIP64_END_HEADER_SIZE > locatorPos) {
+                    throw new ZipException("invalid Zip64 END header offset");
+                }
+                ByteBuffer zip64End = region.read(zip64EndPos, ZIP64_END_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+                    throw new ZipException("invalid Zip64 END header (bad signature)");
+                }
+                total = zip64End.getLong(32);
+                cenSize = zip64End.getLong(40);
+                cenOffset = zip64End.getLong(48);
+                cenEnd = zip64EndPos;
+            }
+        }
+        if (cenSize < 0 || cenSize > cenEnd || cenOffset < 0 || cenOffset > cenEnd - cenSize) {
+            throw new ZipException("invalid END header (bad central directory offset)");
+        }
+        if (cenSize > Integer.MAX_VALUE) {
+            throw new ZipException("central directory too large");
+        }
+        // Checked before the positions are allocated: every entry takes at least
+        // a fixed-size header, and a Zip64 count may even be negative.
+        if (total < 0 || total > cenSize / CEN_HEADER_SIZE) {
+            throw new ZipException("invalid END header (bad entry count)");
+        }
+        long cenPos = cenEnd - cenSize;
+        ByteBuffer cen = region.read(cenPos, (int) cenSize).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer comment = tail.slice(endPos + END_HEADER_SIZE, Short.toUnsignedInt(tail.getShort(endPos + 20)));
+        return new CentralDirectory(file, cen, scan(cen, (int) total), cenPos - cenOffset, comment);
+    }
+
+    /**
+     * Searches the end of central directory record backwards from the end of the
+     * buffer.
+     *
+     * @param buffer the tail of the zip file
+     * @return the position of the record, or -1 if it is not found
+     */
+    private static int findEndHeader(ByteBuffer buffer) {
+        for (int pos = buffer.limit() - END_HEADER_SIZE; pos >= 0; pos--) {
+            if (buffer.getInt(pos) == END_SIGNATURE
+                    && pos + END_HEADER_SIZE + Short.toUnsignedInt(buffer.getShort(pos + 20)) == buffer.limit()) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Collects the positions of the central directory file headers.
+     *
+     * @param cen   the central directory
+     * @param total the number of entries declared by the END header
+     * @return the position of every file header
+     * @throws ZipException if a file header is broken
+     */
+    private static int[] scan(ByteBuffer cen, int total) throws ZipException {
+        int[] positions = new int[total];
+        int pos = 0;
+        for (int i = 0; i < total; i++) {
+            if (pos > cen.limit() - CEN_HEADER_SIZE || cen.getInt(pos) != CEN_SIGNATURE) {
+                throw new ZipException("invalid CEN header (bad signature)");
+            }
+            positions[i] = pos;
+            long next = (long) pos + CEN_HEADER_SIZE + Short.toUnsignedInt(cen.getShort(pos + 28))
+                    + Short.toUnsignedInt(cen.getShort(pos + 30)) + Short.toUnsignedInt(cen.getShort(pos + 32));
+            if (next > cen.limit()) {
+                throw new ZipException("invalid CEN header (bad header size)");
+            }
+            pos = (int) next;
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the zip file this directory was read from.
+     *
+     * @return the zip file
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Returns the number of entries in this directory.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * Returns the size of this directory in bytes.
+     *
+     * @return the size of the central directory
+     */
+    public int byteSize() {
+        return cen.limit();
+    }
+
+    /**
+     * Computes a CRC-32C checksum of the whole directory, which changes when any
+     * entry is added, removed or modified.
+     *
+     * @return the checksum of the central directory
+     */
+    public long checksum() {
+        CRC32C crc = new CRC32C();
+        crc.update(cen.duplicate().clear());
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the general purpose bit flags of an entry.
+     *
+     * @param index the index of the entry
+     * @return the general purpose bit flags
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int flags(int index) {
+        return Short.toUnsignedInt(cen.getShort(positions[index] + 8));
+    }
+
+    /**
+     * Returns the compression method of an entry.
+     *
+     * @param index the index of the entry
+     * @return the compression method
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int method(int index) {
+        return Short.toUnsignedInt(cen.getShort(positions[index] + 10));
+    }
+
+    /**
+     * Returns the CRC-32 of the uncompressed data of an entry.
+     *
+     * @param index the index of the entry
+     * @return the CRC-32
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long crc(int index) {
+        return Integer.toUnsignedLong(cen.getInt(positions[index] + 16));
+    }
+
+    /**
+     * Returns the compressed size of an entry, taking the Zip64 extended
+     * information into account.
+     *
+     * @param index the index of the entry
+     * @return the compressed size
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long compressedSize(int index) {
+        return zip64Field(index, 1);
+    }
+
+    /**
+     * Returns the uncompressed size of an entry, taking the Zip64 extended
+     * information into account.
+     *
+     * @param index the index of the entry
+     * @return the uncompressed size
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long size(int index) {
+        return zip64Field(index, 0);
+    }
+
+    /**
+     * Returns the position of the local file header of an entry in the zip file,
+     * taking the Zip64 extended information into account.
+     *
+     * @param index the index of the entry
+     * @return the position of the local file header
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long localHeaderOffset(int index) {
+        return base + zip64Field(index, 2);
+    }
+
+    /**
+     * Returns the last modification time of an entry. The time of the extended
+     * timestamp extra field is used if there is one, and the MS-DOS date and
+     * time in the local time zone otherwise, as {@link java.util.zip.ZipEntry}
+     * does.
+     *
+     * @param index the index of the entry
+     * @return the last modification time, or null if the MS-DOS date and time
+     *         are not valid
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public FileTime lastModifiedTime(int index) {
+        int pos = positions[index];
+        int extraPos = pos + CEN_HEADER_SIZE + Short.toUnsignedInt(cen.getShort(pos + 28));
+        int extraEnd = extraPos + Short.toUnsignedInt(cen.getShort(pos + 30));
+        while (extraPos + 4 <= extraEnd) {
+            int id = Short.toUnsignedInt(cen.getShort(extraPos));
+            int size = Short.toUnsignedInt(cen.getShort(extraPos + 2));
+            // The flags tell which times follow, but only the modification time
+            // is stored in the central directory.
+            if (id == EXTENDED_TIMESTAMP_EXTRA_ID && size >= 5 && extraPos + 9 <= extraEnd
+                    && (cen.get(extraPos + 4) & 1) != 0) {
+                return FileTime.from(cen.getInt(extraPos + 5), TimeUnit.SECONDS);
+            }
+            extraPos += 4 + size;
+        }
+        int time = Short.toUnsignedInt(cen.getShort(pos + 12));
+        int date = Short.toUnsignedInt(cen.getShort(pos + 14));
+        try {
+            LocalDateTime dateTime = LocalDateTime.of(1980 + (date >> 9), (date >> 5) & 0x0F, date & 0x1F,
+                    time >> 11, (time >> 5) & 0x3F, (time & 0x1F) * 2);
+            return FileTime.from(dateTime.atZone(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the raw bytes of an entry name. The returned buffer is a read-only
+     * view of the directory and is positioned at the start of the name.
+     *
+     * @param index the index of the entry
+     * @return the undecoded entry name
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public ByteBuffer name(int index) {
+        int pos = positions[index];
+        int length = Short.toUnsignedInt(cen.getShort(pos + 28));
+        return cen.slice(pos + CEN_HEADER_SIZE, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the zip file comment as raw bytes.
+     *
+     * @return a read-only view of the comment
+     */
+    public ByteBuffer comment() {
+        return comment.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the whole central directory file header of an entry, including its
+     * name, extra field and comment.
+     *
+     * @param index the index of the entry
+     * @return a read-only little-endian view of the header
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    ByteBuffer header(int index) {
+        int pos = positions[index];
+        int length = CEN_HEADER_SIZE + Short.toUnsignedInt(cen.getShort(pos + 28))
+                + Short.toUnsignedInt(cen.getShort(pos + 30)) + Short.toUnsignedInt(cen.getShort(pos + 32));
+        return cen.slice(pos, length).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads one of the uncompressed size, the compressed size and the local
+     * header offset of an entry. A field holding the Zip64 magic value is read
+     * from the Zip64 extended information extra field, where the fields which
+     * are present appear in that order.
+     *
+     * @param index the index of the entry
+     * @param field 0 for the uncompressed size, 1 for the compressed size and 2
+     *              for the local header offset
+     * @return the value of the field
+     */
+    private long zip64Field(int index, int field) {
+        int pos = positions[index];
+        long value = Integer.toUnsignedLong(cen.getInt(pos + ZIP64_FIELD_OFFSETS[field]));
+        if (value != ZIP64_MAGIC_INT) {
+            return value;
+        }
+        int extraPos = pos + CEN_HEADER_SIZE + Short.toUnsignedInt(cen.getShort(pos + 28));
+        int extraEnd = extraPos + Short.toUnsignedInt(cen.getShort(pos + 30));
+        while (extraPos + 4 <= extraEnd) {
+            int id = Short.toUnsignedInt(cen.getShort(extraPos));
+            int size = Short.toUnsignedInt(cen.getShort(extraPos + 2));
+            if (id == ZIP64_EXTRA_ID) {
+                int fieldPos = extraPos + 4;
+                for (int i = 0; i < field; i++) {
+                    if (Integer.toUnsignedLong(cen.getInt(pos + ZIP64_FIELD_OFFSETS[i])) == ZIP64_MAGIC_INT) {
+                        fieldPos += 8;
+                    }
+                }
+                if (fieldPos + 8 <= Math.min(extraPos + 4 + size, extraEnd)) {
+                    return cen.getLong(fieldPos);
+                }
+                break;
+            }
+            extraPos += 4 + size;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,113 @@
+package java_practice01;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the validation attempts of one charset and their outcome.
+ */
+public final class CharsetMetrics {
+
+    private final LongAdder attempts = new LongAdder();
+
+    private final LongAdder successes = new LongAdder();
+
+    private final LongAdder ioFailures = new LongAdder();
+
+    private final LongAdder malformedFailures = new LongAdder();
+
+    private final LongAdder entriesValidated = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * Returns the number of attempts to validate an archive by the charset.
+     *
+     * @return the number of attempts
+     */
+    public long attempts() {
+        return attempts.sum();
+    }
+
+    /**
+     * Returns the number of archives whose entry names were all valid.
+     *
+     * @return the number of successes
+     */
+    public long successes() {
+        return successes.sum();
+    }
+
+    /**
+     * Returns the number of attempts which failed because the archive could not
+     * be read.
+     *
+     * @return the number of failures caused by an IOException
+     */
+    public long ioFailures() {
+        return ioFailures.sum();
+    }
+
+    /**
+     * Returns the number of attempts which failed because of an entry name which
+     * is not valid for the charset.
+     *
+     * @return the number of failures caused by a malformed entry name
+     */
+    public long malformedFailures() {
+        return malformedFailures.sum();
+    }
+
+    /**
+     * Returns the number of entry names checked, including the malformed ones.
+     *
+     * @return the number of validated entries
+     */
+    public long entriesValidated() {
+        return entriesValidated.sum();
+    }
+
+    /**
+     * Returns the number of bytes of raw entry names read from central
+     * directories and checked, including the malformed ones. Names validated
+     * through a ZipFile are not counted, since ZipFile hands them out decoded.
+     *
+     * @return the number of bytes read
+     */
+    public long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Returns the latencies of the validation passes.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    void recordValidation(long nanos, int entries, long bytes, boolean valid) {
+        attempts.increment();
+        (valid ? successes : malformedFailures).increment();
+        entriesValidated.add(entries);
+        bytesRead.add(bytes);
+        latency.record(nanos);
+    }
+
+    void recordIoFailure() {
+        attempts.increment();
+        ioFailures.increment();
+    }
+
+    void reset() {
+        attempts.reset();
+        successes.reset();
+        ioFailures.reset();
+        malformedFailures.reset();
+        entriesValidated.reset();
+        bytesRead.reset();
+        latency.reset();
+    }
+}
@@ -0,0 +1,180 @@
+package java_practice01;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Counts how often each charset turned out to be the valid one, so that the
+ * most likely charset can be tried first. The counts are kept globally and,
+ * if a classifier is given, per class of files such as a directory or a file
+ * name pattern. The counts of a class are used once it has any; otherwise the
+ * global counts are used. Charsets with the same count keep their order in the
+ * list, so the order is deterministic and falls back to the list order when
+ * nothing has been observed.
+ */
+public final class CharsetStatistics {
+
+    /**
+     * The key of the global counts.
+     */
+    private static final String GLOBAL = "";
+
+    private final Function<File, String> classifier;
+
+    private final Map<String, Map<String, LongAdder>> counts = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs statistics which are kept globally only.
+     */
+    public CharsetStatistics() {
+        this(file -> null);
+    }
+
+    /**
+     * Constructs statistics which are also kept per class of files.
+     *
+     * @param classifier the function which returns the class of a file, or null
+     *                   if the file belongs to no class
+     * @throws NullPointerException if the classifier is null
+     */
+    public CharsetStatistics(Function<File, String> classifier) {
+        this.classifier = Objects.requireNonNull(classifier, "classifier is null");
+    }
+
+    /**
+     * Returns a classifier which classifies files by their parent directory.
+     *
+     * @return the classifier
+     */
+    public static Function<File, String> byDirectory() {
+        return file -> {
+            File parent = file.getAbsoluteFile().getParentFile();
+            return parent != null ? "dir:" + parent.getPath() : null;
+        };
+    }
+
+    /**
+     * Returns a classifier which classifies files by the first pattern their
+     * name matches.
+     *
+     * @param patterns the patterns in order of precedence
+     * @return the classifier
+     * @throws NullPointerException if the patterns are null
+     */
+    public static Function<File, String> byPattern(List<Pattern> patterns) {
+        List<Pattern> copy = List.copyOf(patterns);
+        return file -> {
+            for (Pattern pattern : copy) {
+                if (pattern.matcher(file.getName()).matches()) {
+                    return "pattern:" + pattern.pattern();
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Orders the encoded files of one file so that the most likely charset comes
+     * first.
+     *
+     * @param group the encoded files which share the same file
+     * @return a new list in the order to try
+     * @throws NullPointerException if the group is null
+     */
+    public List<EncodedFile> order(List<EncodedFile> group) {
+        Objects.requireNonNull(group, "group is null");
+        if (group.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, LongAdder> scores = counts.get(classOf(group.get(0).file()));
+        if (scores == null || scores.isEmpty()) {
+            scores = counts.getOrDefault(GLOBAL, Map.of());
+        }
+        // The counts are read once before sorting, since concurrent records
+        // would otherwise change them under the comparator.
+        long[] snapshot = new long[group.size()];
+        List<Integer> indexes = new ArrayList<>(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            snapshot[i] = count(scores, group.get(i));
+            indexes.add(i);
+        }
+        // List.sort is stable, so equal counts keep the list order.
+        indexes.sort(Comparator.comparingLong((Integer i) -> snapshot[i]).reversed());
+        List<EncodedFile> ordered = new ArrayList<>(group.size());
+        for (int i : indexes) {
+            ordered.add(group.get(i));
+        }
+        return ordered;
+    }
+
+    /**
+     * Records that a charset was the valid one for a file.
+     *
+     * @param encodedFile the valid encoded file
+     * @throws NullPointerException if the encoded file is null
+     */
+    public void record(EncodedFile encodedFile) {
+        Objects.requireNonNull(encodedFile, "encodedFile is null");
+        String name = encodedFile.charset().name();
+        increment(GLOBAL, name);
+        String key = classOf(encodedFile.file());
+        if (!key.equals(GLOBAL)) {
+            increment(key, name);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the counts, keyed by class and then by charset name.
+     * The global counts are keyed by the empty string.
+     *
+     * @return an immutable copy of the counts
+     */
+    public Map<String, Map<String, Long>> snapshot() {
+        Map<String, Map<String, Long>> snapshot = new HashMap<>();
+        counts.forEach((key, values) -> {
+            Map<String, Long> copy = new HashMap<>();
+            values.forEach((name, count) -> copy.put(name, count.sum()));
+            snapshot.put(key, Map.copyOf(copy));
+        });
+        return Map.copyOf(snapshot);
+    }
+
+    /**
+     * Replaces the counts with a snapshot taken by {@link #snapshot()}.
+     *
+     * @param snapshot the counts to restore
+     * @throws NullPointerException if the snapshot is null
+     */
+    public void restore(Map<String, Map<String, Long>> snapshot) {
+        Objects.requireNonNull(snapshot, "snapshot is null");
+        counts.clear();
+        snapshot.forEach((key, values) -> values.forEach((name, count) -> {
+            counts.computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(name, n -> new LongAdder()).add(count);
+        }));
+    }
+
+    private String classOf(File file) {
+        String key = classifier.apply(file);
+        return key != null ? key : GLOBAL;
+    }
+
+    private void increment(String key, String name) {
+        counts.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).computeIfAbsent(name, n -> new LongAdder())
+                .increment();
+    }
+
+    private static long count(Map<String, LongAdder> scores, EncodedFile encodedFile) {
+        LongAdder count = scores.get(encodedFile.charset().name());
+        return count != null ? count.sum() : 0;
+    }
+}
@@ -0,0 +1,468 @@
+package java_practice01;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Detects the charset of text content, such as the text entries of an
+ * archive, from a bounded sample. The sample consists of windows spread evenly
+ * across the content, which together hold at most the byte budget. Every
+ * candidate charset decodes the sample; a candidate which meets malformed or
+ * unmappable input is out, and the others are scored by the share of decoded
+ * characters which are plausible in text, so that control characters,
+ * unassigned and private use code points count against a charset.
+ *
+ * <p>
+ * The whole content is decoded only when the sample is ambiguous, that is when
+ * another candidate scores almost as well as the best one and the sample does
+ * not cover the content. This includes candidates which read the sample the
+ * same way, as with text which is ASCII except for a few characters. Windows
+ * other than the first may start in the middle of a character, so a few
+ * malformed bytes at their start are ignored; they also start in the initial
+ * shift state of stateful charsets.
+ */
+public final class ContentCharsetDetector {
+
+    /**
+     * The number of malformed bytes ignored at the start of a window, which is
+     * the longest partial character of the supported charsets.
+     */
+    private static final int MAX_LEAD = 3;
+
+    /**
+     * The score difference below which two candidates are considered tied.
+     */
+    private static final double AMBIGUITY_MARGIN = 0.02;
+
+    /**
+     * The size of the buffers used to decode content.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Opens the content once more for a full decode.
+     */
+    @FunctionalInterface
+    private interface Content {
+        InputStream open() throws IOException;
+    }
+
+    private final List<Charset> candidates;
+
+    private final int sampleBudget;
+
+    private final int windows;
+
+    /**
+     * Constructs a new ContentCharsetDetector object.
+     *
+     * @param candidates   the candidate charsets in order of preference, which
+     *                     breaks ties
+     * @param sampleBudget the maximum number of bytes sampled from the content
+     * @param windows      the number of windows the sample is spread over
+     * @throws NullPointerException     if candidates is null or contains null
+     * @throws IllegalArgumentException if candidates is empty, or sampleBudget
+     *                                  or windows is not positive
+     */
+    public ContentCharsetDetector(List<Charset> candidates, int sampleBudget, int windows) {
+        this.candidates = List.copyOf(Objects.requireNonNull(candidates, "candidates is null"));
+        if (this.candidates.isEmpty()) {
+            throw new IllegalArgumentException("candidates is empty");
+        }
+        if (sampleBudget <= 0) {
+            throw new IllegalArgumentException("sampleBudget is not positive");
+        }
+        if (windows <= 0) {
+            throw new IllegalArgumentException("windows is not positive");
+        }
+        this.sampleBudget = sampleBudget;
+        this.windows = windows;
+    }
+
+    /**
+     * Detects the charset of an entry of a zip file.
+     *
+     * @param zipFile the zip file
+     * @param entry   the entry
+     * @return the detection result
+     * @throws IOException          if an I/O error occurs
+     * @throws NullPointerException if either argument is null
+     */
+    public ContentDetection detect(ZipFile zipFile, ZipEntry entry) throws IOException {
+        Objects.requireNonNull(zipFile, "zipFile is null");
+        Objects.requireNonNull(entry, "entry is null");
+        return detect(() -> zipFile.getInputStream(entry), entry.getSize());
+    }
+
+    /**
+     * Detects the charset of the entries of a zip file which are accepted by a
+     * filter, such as the entries whose names end with ".txt".
+     *
+     * @param zipFile the zip file
+     * @param filter  the filter of the text entries
+     * @return the detection results keyed by entry name, in entry order
+     * @throws IOException          if an I/O error occurs
+     * @throws NullPointerException if either argument is null
+     */
+    public Map<String, ContentDetection> detectAll(ZipFile zipFile, Predicate<? super ZipEntry> filter)
+            throws IOException {
+        Objects.requireNonNull(zipFile, "zipFile is null");
+        Objects.requireNonNull(filter, "filter is null");
+        Map<String, ContentDetection> result = new LinkedHashMap<>();
+        for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && filter.test(entry)) {
+                result.put(entry.getName(), detect(zipFile, entry));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Detects the charset of a file.
+     *
+     * @param file the file
+     * @return the detection result
+     * @throws IOException          if an I/O error occurs
+     * @throws NullPointerException if the file is null
+     */
+    public ContentDetection detect(File file) throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        return detect(() -> new FileInputStream(file), file.length());
+    }
+
+    /**
+     * Detects the charset of content from a sample, decoding the whole content
+     * if the sample is ambiguous.
+     *
+     * @param content the content
+     * @param size    the size of the content, or -1 if unknown
+     * @return the detection result
+     * @throws IOException if an I/O error occurs
+     */
+    private ContentDetection detect(Content content, long size) throws IOException {
+        List<Score> scores = new ArrayList<>();
+        for (Charset charset : candidates) {
+            scores.add(new Score(charset));
+        }
+        boolean covered = sample(content, size, scores);
+        List<Score> survivors = rank(scores);
+        if (survivors.isEmpty()) {
+            return new ContentDetection(null, 0, true);
+        }
+        Score best = survivors.get(0);
+        List<Score> contenders = new ArrayList<>();
+        for (Score score : survivors) {
+            if (score.value() >= best.value() - AMBIGUITY_MARGIN) {
+                contenders.add(score);
+            }
+        }
+        // A sample which covers the content cannot be settled any better by
+        // decoding the content again.
+        if (covered || contenders.size() <= 1) {
+            return new ContentDetection(best.charset, confidence(survivors), true);
+        }
+        List<Score> full = new ArrayList<>();
+        for (Score contender : contenders) {
+            full.add(new Score(contender.charset));
+        }
+        decodeAll(content, full);
+        survivors = rank(full);
+        if (survivors.isEmpty()) {
+            return new ContentDetection(null, 0, false);
+        }
+        return new ContentDetection(survivors.get(0).charset, confidence(survivors), false);
+    }
+
+    /**
+     * Decodes the windows of the sample with every candidate.
+     *
+     * @param content the content
+     * @param size    the size of the content, or -1 if unknown
+     * @param scores  the scores of the candidates
+     * @return true if the sample covers the whole content
+     * @throws IOException if an I/O error occurs
+     */
+    private boolean sample(Content content, long size, List<Score> scores) throws IOException {
+        try (InputStream in = content.open()) {
+            if (size < 0 || size <= sampleBudget) {
+                byte[] window = in.readNBytes(sampleBudget);
+                boolean covered = window.length < sampleBudget || in.read() < 0;
+                for (Score score : scores) {
+                    score.window(window, 0, window.length, false, covered);
+                }
+                return covered;
+            }
+            int length = Math.max(1, sampleBudget / windows);
+            int count = Math.min(windows, sampleBudget / length);
+            byte[] window = new byte[length];
+            long position = 0;
+            for (int i = 0; i < count; i++) {
+                long start = count > 1 ? i * (size - length) / (count - 1) : 0;
+                in.skipNBytes(start - position);
+                int n = in.readNBytes(window, 0, length);
+                position = start + n;
+                boolean end = position >= size;
+                int offset = start > 0 ? synchronize(window, n) : 0;
+                for (Score score : scores) {
+                    score.window(window, offset, n, start > 0 && offset == 0, end);
+                }
+                if (n < length) {
+                    break;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Finds a character boundary near the start of a window which begins in the
+     * middle of the content. A byte below 0x40 is a character by itself in
+     * UTF-8, in the EUC encodings and in Shift_JIS, where no trail byte is that
+     * small, so decoding can start right after it.
+     *
+     * @param window the bytes of the window
+     * @param length the number of bytes of the window
+     * @return the offset after the first such byte in the first half of the
+     *         window, or 0 if there is none
+     */
+    private static int synchronize(byte[] window, int length) {
+        for (int i = 0; i < length / 2; i++) {
+            if ((window[i] & 0xFF) < 0x40) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Decodes the whole content with every contender.
+     *
+     * @param content the content
+     * @param scores  the scores of the contenders
+     * @throws IOException if an I/O error occurs
+     */
+    private static void decodeAll(Content content, List<Score> scores) throws IOException {
+        try (InputStream in = content.open()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (Score score : scores) {
+                score.begin(false);
+            }
+            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                for (Score score : scores) {
+                    score.feed(buffer, 0, n, false);
+                }
+            }
+            for (Score score : scores) {
+                score.feed(buffer, 0, 0, true);
+            }
+        }
+    }
+
+    /**
+     * Orders the candidates which decoded without errors by their scores,
+     * keeping the candidate order for equal scores.
+     *
+     * @param scores the scores
+     * @return the surviving scores, best first
+     */
+    private static List<Score> rank(List<Score> scores) {
+        List<Score> survivors = new ArrayList<>();
+        for (Score score : scores) {
+            if (score.errors == 0) {
+                survivors.add(score);
+            }
+        }
+        survivors.sort(Comparator.comparingDouble(Score::value).reversed());
+        return survivors;
+    }
+
+    /**
+     * Computes the margin of the best score over the best score of a candidate
+     * which reads the content differently.
+     *
+     * @param survivors the surviving scores, best first
+     * @return the confidence
+     */
+    private static double confidence(List<Score> survivors) {
+        Score best = survivors.get(0);
+        for (Score score : survivors.subList(1, survivors.size())) {
+            if (score.hash != best.hash) {
+                return Math.max(0, best.value() - score.value());
+            }
+        }
+        return best.value();
+    }
+
+    /**
+     * Decodes content with one candidate charset and counts what it meets.
+     */
+    private static final class Score {
+
+        private final Charset charset;
+
+        private final CharsetDecoder decoder;
+
+        private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+
+        private final CharBuffer output = CharBuffer.allocate(BUFFER_SIZE);
+
+        /**
+         * The number of malformed or unmappable inputs.
+         */
+        private int errors;
+
+        /**
+         * The number of decoded characters.
+         */
+        private long decoded;
+
+        /**
+         * The number of decoded characters which are unlikely in text.
+         */
+        private long implausible;
+
+        /**
+         * A hash of the decoded characters, which tells whether two candidates
+         * read the content the same way.
+         */
+        private int hash;
+
+        /**
+         * The number of bytes consumed since the window began.
+         */
+        private long consumed;
+
+        /**
+         * The number of leading bytes of the window in which malformed input is
+         * ignored.
+         */
+        private int lead;
+
+        private long decodedAtStart;
+
+        Score(Charset charset) {
+            this.charset = charset;
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+        }
+
+        double value() {
+            return decoded == 0 ? 1 : 1 - (double) implausible / decoded;
+        }
+
+        /**
+         * Decodes one window of the sample.
+         *
+         * @param bytes    the bytes of the window
+         * @param offset   the offset to start decoding at
+         * @param limit    the offset after the last byte of the window
+         * @param midStart true if the window may start in the middle of a
+         *                 character
+         * @param end      true if the window ends the content
+         */
+        void window(byte[] bytes, int offset, int limit, boolean midStart, boolean end) {
+            begin(midStart);
+            feed(bytes, offset, limit, false);
+            if (end) {
+                feed(bytes, 0, 0, true);
+            }
+        }
+
+        void begin(boolean midStart) {
+            decoder.reset();
+            input.clear();
+            consumed = 0;
+            lead = midStart ? MAX_LEAD : 0;
+            decodedAtStart = decoded;
+        }
+
+        /**
+         * Decodes the next bytes. A partial character left at the end of the
+         * input is an error only at the end of the content.
+         *
+         * @param bytes      the bytes
+         * @param offset     the offset of the first byte
+         * @param limit      the offset after the last byte
+         * @param endOfInput true if the content ends here
+         */
+        void feed(byte[] bytes, int offset, int limit, boolean endOfInput) {
+            do {
+                int n = Math.min(limit - offset, input.remaining());
+                input.put(bytes, offset, n);
+                offset += n;
+                input.flip();
+                decode(endOfInput && offset == limit);
+                consumed += input.position();
+                input.compact();
+            } while (offset < limit);
+            if (endOfInput) {
+                while (decoder.flush(output).isOverflow()) {
+                    drain();
+                }
+                drain();
+            }
+        }
+
+        private void decode(boolean endOfInput) {
+            for (;;) {
+                CoderResult result = decoder.decode(input, output, endOfInput);
+                if (result.isOverflow()) {
+                    drain();
+                } else if (result.isError()) {
+                    drain();
+                    if (consumed + input.position() >= lead || decoded > decodedAtStart) {
+                        errors++;
+                    }
+                    input.position(input.position() + result.length());
+                } else {
+                    drain();
+                    return;
+                }
+            }
+        }
+
+        private void drain() {
+            output.flip();
+            while (output.hasRemaining()) {
+                char c = output.get();
+                hash = 31 * hash + c;
+                decoded++;
+                if (isImplausible(c)) {
+                    implausible++;
+                }
+            }
+            output.clear();
+        }
+
+        private static boolean isImplausible(char c) {
+            if (c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+                return false;
+            }
+            if (c == '\uFFFD' || Character.isISOControl(c)) {
+                return true;
+            }
+            int type = Character.getType(c);
+            return type == Character.UNASSIGNED || type == Character.PRIVATE_USE;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package java_practice01;
+
+import java.nio.charset.Charset;
+import java.util.Optional;
+
+/**
+ * Represents the result of detecting the charset of text content.
+ *
+ * @param charset    the detected charset, or null if no candidate charset can
+ *                   decode the content
+ * @param confidence how much better the detected charset scored than the best
+ *                   candidate which reads the content differently, or its own
+ *                   score if every other candidate reads it the same way, from
+ *                   0 to 1
+ * @param sampled    true if the sample settled the charset, false if the whole
+ *                   content had to be decoded
+ */
+public record ContentDetection(Charset charset, double confidence, boolean sampled) {
+
+    /**
+     * Constructs a new ContentDetection object.
+     *
+     * @param charset    the detected charset, or null
+     * @param confidence the confidence from 0 to 1
+     * @param sampled    true if the sample settled the charset
+     * @throws IllegalArgumentException if the confidence is out of range
+     */
+    public ContentDetection {
+        if (!(confidence >= 0 && confidence <= 1)) {
+            throw new IllegalArgumentException("confidence is out of range");
+        }
+    }
+
+    /**
+     * Returns the detected charset.
+     *
+     * @return An Optional containing the detected charset, or an empty Optional
+     *         if no candidate charset can decode the content.
+     */
+    public Optional<Charset> detected() {
+        return Optional.ofNullable(charset);
+    }
+}
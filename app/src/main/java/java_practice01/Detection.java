@@ -0,0 +1,21 @@
+package java_practice01;
+
+import java.util.Objects;
+
+/**
+ * Represents a valid encoded file together with the shortcut which found it.
+ */
+public record Detection(EncodedFile encodedFile, FastPath fastPath) {
+
+    /**
+     * Constructs a new Detection object.
+     *
+     * @param encodedFile the valid encoded file
+     * @param fastPath    the shortcut which found it
+     * @throws NullPointerException if either encodedFile or fastPath is null
+     */
+    public Detection {
+        Objects.requireNonNull(encodedFile, "encodedFile is null");
+        Objects.requireNonNull(fastPath, "fastPath is null");
+    }
+}
@@ -0,0 +1,313 @@
+package java_practice01;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Caches the charset detected for a zip file, or the fact that none of the
+ * candidate charsets is valid. A result is keyed by the canonical path of the
+ * file and the candidate charsets in order, and it is only used while the size,
+ * the last modified time and, optionally, the checksum of the central directory
+ * of the file are unchanged. The least recently used results are evicted when
+ * the cache is full. The results can be stored in a file so that they survive
+ * restarts; the store is written when the cache is closed.
+ *
+ * <p>
+ * The checksum of the central directory is recorded with every result, but by
+ * default a lookup trusts the size and the last modified time alone and does
+ * not read the directory, since reading it is much of the cost of the
+ * detection the cache saves. A file rewritten with the same size within the
+ * resolution of its modification time is then served its old result. A cache
+ * constructed with {@code verifyChecksum} reads the directory on every lookup
+ * and compares the checksums, which catches such a rewrite.
+ */
+public final class DetectionCache implements Closeable {
+
+    private static final String MSG_ERR_READ = "Failed to read central directory: %s";
+
+    private static final String MSG_ERR_STORE = "Ignored broken cache entry: %s";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DetectionCache.class.getName());
+
+    /**
+     * The value stored when no candidate charset is valid.
+     */
+    private static final String NO_CHARSET = "";
+
+    /**
+     * Represents a cached detection result.
+     *
+     * @param size         the size of the file
+     * @param lastModified the last modified time of the file in milliseconds
+     * @param checksum     the checksum of the central directory of the file
+     * @param charset      the name of the detected charset, or an empty string if
+     *                     no candidate charset is valid
+     */
+    private record Entry(long size, long lastModified, long checksum, String charset) {
+
+        String format() {
+            return size + "," + lastModified + "," + checksum + "," + charset;
+        }
+
+        static Entry parse(String value) {
+            String[] fields = value.split(",", 4);
+            if (fields.length != 4) {
+                throw new IllegalArgumentException(value);
+            }
+            return new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                    fields[3]);
+        }
+    }
+
+    private final int maxEntries;
+
+    private final File store;
+
+    private final boolean verifyChecksum;
+
+    private final Map<String, Entry> entries;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * Constructs a cache which is kept in memory only.
+     *
+     * @param maxEntries the maximum number of cached results
+     * @throws IllegalArgumentException if maxEntries is not positive
+     */
+    public DetectionCache(int maxEntries) {
+        this(maxEntries, false);
+    }
+
+    /**
+     * Constructs a cache which is kept in memory only.
+     *
+     * @param maxEntries     the maximum number of cached results
+     * @param verifyChecksum true to read the central directory on every lookup
+     *                       and compare its checksum with the cached one
+     * @throws IllegalArgumentException if maxEntries is not positive
+     */
+    public DetectionCache(int maxEntries, boolean verifyChecksum) {
+        this(null, maxEntries, verifyChecksum);
+    }
+
+    /**
+     * Constructs a cache which is loaded from and saved to the given file.
+     *
+     * @param maxEntries     the maximum number of cached results
+     * @param verifyChecksum true to read the central directory on every lookup
+     *                       and compare its checksum with the cached one
+     * @param store          the file which holds the results
+     * @throws IOException              if the store exists and cannot be read
+     * @throws NullPointerException     if the store is null
+     * @throws IllegalArgumentException if maxEntries is not positive
+     */
+    public DetectionCache(int maxEntries, boolean verifyChecksum, File store) throws IOException {
+        this(Objects.requireNonNull(store, "store is null"), maxEntries, verifyChecksum);
+        if (store.exists()) {
+            load();
+        }
+    }
+
+    private DetectionCache(File store, int maxEntries, boolean verifyChecksum) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries is not positive");
+        }
+        this.maxEntries = maxEntries;
+        this.store = store;
+        this.verifyChecksum = verifyChecksum;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > DetectionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Detects the first valid charset of a file, using the cached result if it
+     * is still valid. The central directory of the file is read only on a cache
+     * miss, or on every lookup if checksums are verified.
+     *
+     * @param group the encoded files which share the same file, in the order of
+     *              the candidate charsets
+     * @return the first valid encoded file, or an empty Optional if none is valid
+     * @throws NullPointerException     if the group is null
+     * @throws IllegalArgumentException if the group is empty
+     */
+    public Optional<EncodedFile> detect(List<EncodedFile> group) {
+        Objects.requireNonNull(group, "group is null");
+        if (group.isEmpty()) {
+            throw new IllegalArgumentException("group is empty");
+        }
+        File file = group.get(0).file();
+        String key;
+        BasicFileAttributes attributes;
+        try {
+            key = key(file, group);
+            attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return EncodedFileList.probe(group, true, () -> false).stream().findFirst();
+        }
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        Entry entry = get(key);
+        CentralDirectory directory = null;
+        if (entry != null && entry.size() == size && entry.lastModified() == lastModified) {
+            if (!verifyChecksum) {
+                return hit(group, entry);
+            }
+            directory = read(file);
+            if (directory != null && directory.checksum() == entry.checksum()) {
+                return hit(group, entry);
+            }
+        }
+        synchronized (this) {
+            misses++;
+        }
+        if (directory == null) {
+            directory = read(file);
+        }
+        if (directory == null) {
+            return Optional.empty();
+        }
+        Optional<EncodedFile> result = EncodedFileList.probe(group, directory, true, () -> false)
+                .stream().findFirst();
+        put(key, new Entry(size, lastModified, directory.checksum(),
+                result.map(encodedFile -> encodedFile.charset().name()).orElse(NO_CHARSET)));
+        return result;
+    }
+
+    /**
+     * Returns the number of lookups answered by the cache.
+     *
+     * @return the number of hits
+     */
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups which had to read the file.
+     *
+     * @return the number of misses
+     */
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the number of cached results
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the cached results to the store, if any, through a temporary file
+     * which replaces the store once it is complete.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void save() throws IOException {
+        if (store == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        synchronized (this) {
+            entries.forEach((key, entry) -> properties.setProperty(key, entry.format()));
+        }
+        FileReplacer.replace(store, stream -> properties.store(stream, null));
+    }
+
+    /**
+     * Saves the cached results to the store, if any.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        save();
+    }
+
+    private void load() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream stream = new FileInputStream(store)) {
+            properties.load(stream);
+        }
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                put(key, Entry.parse(properties.getProperty(key)));
+            } catch (IllegalArgumentException e) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, String.format(MSG_ERR_STORE, key), e);
+                }
+            }
+        }
+    }
+
+    private Optional<EncodedFile> hit(List<EncodedFile> group, Entry entry) {
+        synchronized (this) {
+            hits++;
+        }
+        if (entry.charset().equals(NO_CHARSET)) {
+            return Optional.empty();
+        }
+        return group.stream().filter(encodedFile -> encodedFile.charset().name().equals(entry.charset()))
+                .findFirst();
+    }
+
+    private synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    private static CentralDirectory read(File file) {
+        try {
+            return CentralDirectory.read(file);
+        } catch (IOException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, String.format(MSG_ERR_READ, file), e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Builds the key of a file and its candidate charsets.
+     *
+     * @param file  the zip file
+     * @param group the encoded files of the file
+     * @return the key
+     * @throws IOException if the canonical path cannot be determined
+     */
+    private static String key(File file, List<EncodedFile> group) throws IOException {
+        return file.getCanonicalPath() + "|" + group.stream().map(EncodedFile::charset).map(Charset::name)
+                .collect(Collectors.joining(","));
+    }
+}
@@ -0,0 +1,441 @@
+package java_practice01;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves charset detections over a Unix-domain socket, so that many short jobs
+ * share one warm JVM instead of each paying for its start-up. The detected
+ * charsets are kept in a {@link DetectionCache}, the charsets of the requests
+ * are looked up once, and the probes run on a fixed pool of platform threads,
+ * which keep their entry name codecs from one request to the next.
+ *
+ * <p>
+ * The protocol is line-based UTF-8. A request is a line of tab-separated
+ * fields: the comma-separated candidate charsets, empty for the default ones,
+ * followed by the paths of the zip files. The response is one JSON line per
+ * path, in the order of the paths, and a JSON line which closes the batch. A
+ * client may send any number of requests without waiting; their responses
+ * come back in the order of the requests. The line {@code stats} is answered
+ * by the counters of the daemon once the requests before it on the connection
+ * have been answered, and the line {@code shutdown} shuts it down
+ * gracefully: no connection is accepted and no request is read any more, but
+ * the requests already read are answered.
+ */
+final class DetectionDaemon implements Closeable {
+
+    private static final String MSG_ERR_CONNECTION = "Connection failed";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(DetectionDaemon.class.getName());
+
+    /**
+     * The separator of the fields of a request.
+     */
+    private static final String FIELD_SEPARATOR = "\t";
+
+    /**
+     * The maximum number of distinct charset fields whose lookups are kept.
+     * Further fields are looked up on every request, so that clients cannot
+     * grow the map without bound.
+     */
+    private static final int MAX_CHARSET_LOOKUPS = 1024;
+
+    /**
+     * Marks the end of the responses of a connection.
+     */
+    private static final CompletableFuture<String> END = CompletableFuture.completedFuture(null);
+
+    private final Path socket;
+
+    private final ServerSocketChannel server;
+
+    private final List<Charset> charsets;
+
+    private final DetectionCache cache;
+
+    private final ExecutorService workers;
+
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Set<SocketChannel> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The candidate charsets by the charset field of a request, with the
+     * whitespace around the names removed.
+     */
+    private final Map<String, List<Charset>> charsetLookups = new ConcurrentHashMap<>();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder files = new LongAdder();
+
+    private volatile boolean shutdown;
+
+    private boolean closed;
+
+    /**
+     * Binds a daemon to a socket file. A socket file left behind by a daemon
+     * which did not shut down gracefully is replaced, but one which another
+     * daemon still listens on is not.
+     *
+     * @param socket      the path of the socket file
+     * @param charsets    the candidate charsets of requests which give none
+     * @param parallelism the number of threads which probe the zip files
+     * @param cache       the cache of detected charsets, closed with the daemon
+     * @throws IOException if the socket is in use or cannot be bound
+     */
+    DetectionDaemon(Path socket, List<Charset> charsets, int parallelism, DetectionCache cache) throws IOException {
+        this.socket = socket;
+        this.charsets = List.copyOf(charsets);
+        this.cache = cache;
+        removeStaleSocket(socket);
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        this.workers = Executors.newFixedThreadPool(parallelism);
+    }
+
+    /**
+     * Deletes a socket file which nothing listens on any more. Only a socket
+     * file is deleted, never a regular file or a directory.
+     *
+     * @param socket the path of the socket file
+     * @throws IOException if another daemon listens on the socket
+     */
+    private static void removeStaleSocket(Path socket) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(socket, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!attributes.isOther()) {
+            return;
+        }
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+        } catch (ConnectException e) {
+            // Nothing answers, so the daemon which bound it is gone.
+            Files.deleteIfExists(socket);
+            return;
+        }
+        throw new BindException("Socket is in use: " + socket);
+    }
+
+    /**
+     * Accepts connections until the daemon is shut down, then waits for the
+     * open connections to be answered and releases the socket.
+     *
+     * @throws IOException if a connection cannot be accepted
+     */
+    void serve() throws IOException {
+        try {
+            while (!shutdown) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    // Closed by shutdown.
+                    break;
+                }
+                clients.add(client);
+                if (shutdown) {
+                    client.shutdownInput();
+                }
+                connections.execute(() -> handle(client));
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Shuts the daemon down gracefully. The requests already read are still
+     * answered by {@link #serve()}, which returns once they are.
+     */
+    void shutdown() {
+        shutdown = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, MSG_ERR_CONNECTION, e);
+        }
+        for (SocketChannel client : clients) {
+            try {
+                client.shutdownInput();
+            } catch (IOException e) {
+                // The client has already gone.
+            }
+        }
+    }
+
+    /**
+     * Waits until {@link #serve()} has answered the last request and released
+     * the socket.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * Waits for the open connections, stops the workers, closes the cache and
+     * deletes the socket file.
+     *
+     * @throws IOException if the cache cannot be saved or the socket file
+     *                     cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        shutdown();
+        try (cache) {
+            server.close();
+            connections.close();
+            workers.close();
+            Files.deleteIfExists(socket);
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * Reads the requests of a connection and submits their probes, while
+     * another thread writes the responses in order as they complete.
+     */
+    private void handle(SocketChannel client) {
+        BlockingQueue<CompletableFuture<String>> responses = new LinkedBlockingQueue<>();
+        Thread writer = Thread.ofVirtual().start(() -> write(client, responses));
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            long batch = 0;
+            // Completes when every request read so far has been answered.
+            CompletableFuture<?> answered = CompletableFuture.completedFuture(null);
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                switch (line) {
+                    case "" -> {
+                        continue;
+                    }
+                    case "stats" -> responses.add(answered.handle((ignored, e) -> stats()));
+                    case "shutdown" -> {
+                        responses.add(CompletableFuture.completedFuture("{\"shutdown\":true}"));
+                        shutdown();
+                    }
+                    default -> answered = CompletableFuture.allOf(answered, submit(++batch, line, responses));
+                }
+            }
+        } catch (ClosedChannelException e) {
+            // The daemon is shutting down or the client has gone.
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, MSG_ERR_CONNECTION, e);
+        } finally {
+            responses.add(END);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            clients.remove(client);
+            try {
+                client.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, MSG_ERR_CONNECTION, e);
+            }
+        }
+    }
+
+    /**
+     * Submits the probes of one request and queues their responses, followed by
+     * the line which closes the batch.
+     *
+     * @return the future of the line which closes the batch
+     */
+    private CompletableFuture<String> submit(long batch, String line,
+            BlockingQueue<CompletableFuture<String>> responses) {
+        long start = System.nanoTime();
+        requests.increment();
+        String[] fields = line.split(FIELD_SEPARATOR, -1);
+        List<Charset> candidates;
+        try {
+            candidates = fields[0].isEmpty() ? charsets : lookup(fields[0]);
+        } catch (IllegalArgumentException e) {
+            CompletableFuture<String> error = CompletableFuture.completedFuture("{\"batch\":" + batch
+                    + ",\"error\":" + App.quote(String.valueOf(e.getMessage())) + "}");
+            responses.add(error);
+            return error;
+        }
+        List<CompletableFuture<String>> probes = new ArrayList<>();
+        for (int i = 1; i < fields.length; i++) {
+            File file = new File(fields[i]);
+            CompletableFuture<String> probe = CompletableFuture.supplyAsync(() -> probe(file, candidates), workers)
+                    .exceptionally(e -> "{\"path\":" + App.quote(file.getPath()) + ",\"charset\":null,\"error\":"
+                            + App.quote(String.valueOf(e.getCause() != null ? e.getCause() : e)) + "}");
+            probes.add(probe);
+            responses.add(probe);
+        }
+        CompletableFuture<String> end = CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> "{\"batch\":" + batch + ",\"files\":" + probes.size() + ",\"nanos\":"
+                        + (System.nanoTime() - start) + "}");
+        responses.add(end);
+        return end;
+    }
+
+    /**
+     * Looks up the candidate charsets of a charset field, keeping the lookups
+     * of the first {@link #MAX_CHARSET_LOOKUPS} distinct fields.
+     *
+     * @param field the comma-separated charset names
+     * @return the candidate charsets
+     * @throws IllegalArgumentException if a charset name is not supported
+     */
+    private List<Charset> lookup(String field) {
+        String[] names = field.split(",");
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim();
+        }
+        String key = String.join(",", names);
+        List<Charset> candidates = charsetLookups.get(key);
+        if (candidates == null) {
+            List<Charset> lookup = new ArrayList<>(names.length);
+            for (String name : names) {
+                lookup.add(Charset.forName(name));
+            }
+            candidates = List.copyOf(lookup);
+            if (charsetLookups.size() < MAX_CHARSET_LOOKUPS) {
+                charsetLookups.putIfAbsent(key, candidates);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Detects the charset of one zip file through the cache.
+     *
+     * @return the JSON line of the file
+     */
+    private String probe(File file, List<Charset> candidates) {
+        long start = System.nanoTime();
+        files.increment();
+        StringBuilder json = new StringBuilder("{\"path\":").append(App.quote(file.getPath()));
+        if (!file.isFile()) {
+            return json.append(",\"charset\":null,\"error\":\"No such file\",\"nanos\":")
+                    .append(System.nanoTime() - start).append('}').toString();
+        }
+        List<EncodedFile> group = new EncodedFileList(new ArrayList<>()).collect(List.of(file), candidates);
+        Optional<EncodedFile> detection = cache.detect(group);
+        return json.append(",\"charset\":")
+                .append(detection.map(encodedFile -> App.quote(encodedFile.charset().name())).orElse("null"))
+                .append(",\"nanos\":").append(System.nanoTime() - start).append('}').toString();
+    }
+
+    /**
+     * Builds the line which answers the stats command.
+     *
+     * @return the JSON line of the counters
+     */
+    String stats() {
+        return "{\"stats\":true,\"requests\":" + requests.sum() + ",\"files\":" + files.sum() + ",\"hits\":"
+                + cache.hitCount() + ",\"misses\":" + cache.missCount() + ",\"cached\":" + cache.size() + "}";
+    }
+
+    /**
+     * Returns the number of charset fields whose lookups are kept.
+     *
+     * @return the number of kept lookups
+     */
+    int charsetLookupCount() {
+        return charsetLookups.size();
+    }
+
+    /**
+     * Writes the responses of a connection in order, flushing whenever no
+     * further response is ready, until the end marker.
+     */
+    private static void write(SocketChannel client, BlockingQueue<CompletableFuture<String>> responses) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(client),
+                StandardCharsets.UTF_8));
+        boolean failed = false;
+        try {
+            for (;;) {
+                CompletableFuture<String> response = responses.take();
+                if (response == END) {
+                    break;
+                }
+                String line = response.join();
+                if (failed) {
+                    continue;
+                }
+                try {
+                    out.write(line);
+                    out.write('\n');
+                    if (responses.isEmpty() || !responses.peek().isDone()) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // Keep draining so that the reader is not blocked.
+                    failed = true;
+                    LOGGER.log(Level.FINE, MSG_ERR_CONNECTION, e);
+                }
+            }
+            if (!failed) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, MSG_ERR_CONNECTION, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package java_practice01;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects counters and latency histograms of archive opens and entry name
+ * validation. Collection is off until {@link #setEnabled(boolean)} turns it
+ * on; while it is off, the instrumented code only reads a volatile flag.
+ */
+public final class DetectionMetrics {
+
+    /**
+     * The metrics of the whole process.
+     */
+    private static final DetectionMetrics GLOBAL = new DetectionMetrics();
+
+    private volatile boolean enabled;
+
+    private final Map<Charset, CharsetMetrics> charsets = new ConcurrentHashMap<>();
+
+    private final LongAdder archivesOpened = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LatencyHistogram openLatency = new LatencyHistogram();
+
+    private DetectionMetrics() {
+    }
+
+    /**
+     * Returns the metrics of the whole process.
+     *
+     * @return the global metrics
+     */
+    public static DetectionMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Determines whether metrics are collected.
+     *
+     * @return true if metrics are collected, false otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the collection of metrics on or off.
+     *
+     * @param enabled true to collect metrics
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the metrics of a charset.
+     *
+     * @param charset the charset
+     * @return the metrics of the charset, which are empty if it has never been
+     *         used
+     * @throws NullPointerException if the charset is null
+     */
+    public CharsetMetrics charset(Charset charset) {
+        Objects.requireNonNull(charset, "charset is null");
+        return charsets.computeIfAbsent(charset, c -> new CharsetMetrics());
+    }
+
+    /**
+     * Returns the metrics of every charset which has been used.
+     *
+     * @return an immutable copy of the metrics per charset
+     */
+    public Map<Charset, CharsetMetrics> charsets() {
+        return Map.copyOf(charsets);
+    }
+
+    /**
+     * Returns the number of archives opened, either by ZipFile or to read their
+     * central directory.
+     *
+     * @return the number of archives opened
+     */
+    public long archivesOpened() {
+        return archivesOpened.sum();
+    }
+
+    /**
+     * Returns the number of bytes read to find and read central directories.
+     * Opening an archive by ZipFile is not counted, since ZipFile does not tell
+     * how much it reads. The bytes of entry names each charset checked are
+     * counted by {@link CharsetMetrics#bytesRead()}.
+     *
+     * @return the number of bytes read
+     */
+    public long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Returns the latencies of archive opens.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram openLatency() {
+        return openLatency;
+    }
+
+    /**
+     * Clears all metrics.
+     */
+    public void reset() {
+        charsets.values().forEach(CharsetMetrics::reset);
+        archivesOpened.reset();
+        bytesRead.reset();
+        openLatency.reset();
+    }
+
+    void recordOpen(long nanos, long bytes) {
+        archivesOpened.increment();
+        bytesRead.add(bytes);
+        openLatency.record(nanos);
+    }
+
+    void recordValidation(Charset charset, long nanos, int entries, long bytes, boolean valid) {
+        charset(charset).recordValidation(nanos, entries, bytes, valid);
+    }
+
+    void recordIoFailure(Charset charset) {
+        charset(charset).recordIoFailure();
+    }
+}
@@ -6,12 +6,19 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
@@ -23,6 +30,8 @@ public record EncodedFile(File file, Charset charset) {
 
     private static final String ERROR_MESSAGE_MALFORMED_ENTRY_NAME = "Entry name is not correctly interpreted %s by %s charset";
 
+    private static final String ERROR_MESSAGE_UNDECODABLE_ENTRY_NAME = "Entry name #%d of %s cannot be decoded by %s charset";
+
     /**
      * The logger for this class.
      */
@@ -88,6 +97,50 @@ public record EncodedFile(File file, Charset charset) {
         return new ZipOutputStream(openOutputStream(), charset);
     }
 
+    /**
+     * Opens a writer which replaces the file with a zip file whose entries are
+     * deflated concurrently by an executor of its own, and whose entry names are
+     * encoded by the charset of this object. Closing the writer waits for the
+     * executor.
+     *
+     * @param memoryBudget the most memory held by blocks being deflated or
+     *                     waiting to be written
+     * @return the writer, which must be closed
+     * @throws IOException              if the file cannot be created
+     * @throws IllegalArgumentException if memoryBudget is not positive
+     * @see #openParallelZipWriter(Executor, long)
+     */
+    public ParallelZipWriter openParallelZipWriter(long memoryBudget) throws IOException {
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            return new ParallelZipWriter(file, charset, executor, executor, memoryBudget);
+        } catch (IOException | RuntimeException e) {
+            executor.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a writer which replaces the file with a zip file whose entries are
+     * deflated concurrently, and whose entry names are encoded by the charset of
+     * this object. Large entries are split into blocks which are deflated
+     * separately and joined into one deflate stream, so one entry also uses
+     * several workers. The archive can be read by {@link ZipFile} and
+     * {@link java.util.zip.ZipInputStream} with the same charset.
+     *
+     * @param executor     the executor which deflates the blocks
+     * @param memoryBudget the most memory held by blocks being deflated or
+     *                     waiting to be written
+     * @return the writer, which must be closed
+     * @throws IOException              if the file cannot be created
+     * @throws NullPointerException     if the executor is null
+     * @throws IllegalArgumentException if memoryBudget is not positive
+     */
+    public ParallelZipWriter openParallelZipWriter(Executor executor, long memoryBudget) throws IOException {
+        Objects.requireNonNull(executor, "executor is null");
+        return new ParallelZipWriter(file, charset, executor, null, memoryBudget);
+    }
+
     /**
      * This method is used to read data to a file as a stream of bytes.
      * An instance of this class represents an input stream for reading bytes to a
@@ -143,24 +196,101 @@ public record EncodedFile(File file, Charset charset) {
      * @throws IOException if an I/O error occurs
      */
     public ZipFile openZipFile() throws IOException {
-        return new ZipFile(file, charset);
+        DetectionMetrics metrics = DetectionMetrics.global();
+        boolean measured = metrics.isEnabled();
+        long start = measured ? System.nanoTime() : 0;
+        ArchiveOpenEvent event = new ArchiveOpenEvent();
+        event.begin();
+        ZipFile zipFile = null;
+        try {
+            zipFile = new ZipFile(file, charset);
+            return zipFile;
+        } catch (IOException e) {
+            if (measured) {
+                metrics.recordIoFailure(charset);
+            }
+            throw e;
+        } finally {
+            if (measured) {
+                metrics.recordOpen(System.nanoTime() - start, 0);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.path = file.getPath();
+                event.charset = charset.name();
+                event.entries = zipFile != null ? zipFile.size() : 0;
+                event.succeeded = zipFile != null;
+                event.commit();
+            }
+        }
     }
 
     /**
-     * Re-encodes a string that might be broken using the specified charset.
-     * Even though the same charset is used for re-encoding, due to the nature of
-     * Java's String,
-     * it's possible that the original string was not correctly formed, resulting in
-     * a different output after re-encoding.
+     * Re-packs the zip file so that every entry name is stored in UTF-8 and
+     * declared so by the EFS flag. Entry names are decoded the same way as
+     * {@link ZipFile} does with the charset of this object, and comments are
+     * transcoded with them. Only the headers are rewritten; the compressed data
+     * is copied as it is, so no entry is inflated or deflated again.
      *
-     * @param potentiallyMalformedString the string that might be broken or
-     *                                   malformed
-     * @return the re-encoded string maybe a different string.
-     * @throws NullPointerException if the input string is null
+     * @param target the file to write, which is replaced if it exists and must
+     *               not be the zip file itself
+     * @return the re-packed file with the UTF-8 charset
+     * @throws ZipException             if an entry name cannot be decoded or the
+     *                                  zip file is broken
+     * @throws IOException              if an I/O error occurs
+     * @throws NullPointerException     if the target is null
+     * @throws IllegalArgumentException if the target is the zip file itself
      */
-    private String reencodePotentiallyMalformedString(String potentiallyMalformedString) {
-        Objects.requireNonNull(potentiallyMalformedString, "potentiallyMalformedString is null");
-        return new String(potentiallyMalformedString.getBytes(charset), charset);
+    public EncodedFile repackToUtf8(File target) throws IOException {
+        Objects.requireNonNull(target, "target is null");
+        new ZipRepacker(CentralDirectory.read(file), charset).repack(target);
+        return new EncodedFile(target, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Extracts the entries of the zip file into a directory, with at most the
+     * given number of entries extracted at the same time by virtual threads.
+     *
+     * @param target         the directory to extract into
+     * @param maxConcurrency the maximum number of entries extracted at the same
+     *                       time
+     * @throws ZipException             if an entry name cannot be decoded or
+     *                                  escapes the target directory, or an entry
+     *                                  cannot be extracted
+     * @throws IOException              if an I/O error occurs
+     * @throws NullPointerException     if the target is null
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     * @see #extractTo(File, Executor, int)
+     */
+    public void extractTo(File target, int maxConcurrency) throws IOException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            extractTo(target, executor, maxConcurrency);
+        }
+    }
+
+    /**
+     * Extracts the entries of the zip file into a directory. Entry names are
+     * decoded the same way as {@link ZipFile} does with the charset of this
+     * object. Entries are inflated concurrently from positioned reads of the
+     * file, and large stored entries are copied in parts. Entries whose names
+     * would resolve outside the target directory are rejected before anything
+     * is written, and the last modification times of the entries are kept.
+     * Existing files are replaced.
+     *
+     * @param target         the directory to extract into
+     * @param executor       the executor which runs the workers
+     * @param maxConcurrency the maximum number of entries extracted at the same
+     *                       time
+     * @throws ZipException             if an entry name cannot be decoded or
+     *                                  escapes the target directory, or an entry
+     *                                  cannot be extracted
+     * @throws IOException              if an I/O error occurs
+     * @throws NullPointerException     if the target or the executor is null
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public void extractTo(File target, Executor executor, int maxConcurrency) throws IOException {
+        Objects.requireNonNull(target, "target is null");
+        new ZipExtractor(CentralDirectory.read(file), charset).extract(target, executor, maxConcurrency);
     }
 
     /**
@@ -177,7 +307,7 @@ public record EncodedFile(File file, Charset charset) {
      */
     private boolean validateStringInterpretation(String potentiallyMalformedString) {
         Objects.requireNonNull(potentiallyMalformedString, "potentiallyMalformedString is null");
-        return potentiallyMalformedString.equals(reencodePotentiallyMalformedString(potentiallyMalformedString));
+        return EntryNameCodec.forCharset(charset).roundTrips(potentiallyMalformedString);
     }
 
     /**
@@ -187,15 +317,135 @@ public record EncodedFile(File file, Charset charset) {
      * @return true if all entry names are valid, false otherwise
      */
     public boolean validateEntryNames(ZipFile zipFile) {
+        boolean measured = DetectionMetrics.global().isEnabled();
+        long start = measured ? System.nanoTime() : 0;
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        int validated = 0;
         for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
             String entryName = entries.nextElement().getName();
+            validated++;
             if (!validateStringInterpretation(entryName)) {
                 if (LOGGER.isLoggable(Level.WARNING)) {
                     LOGGER.warning(String.format(ERROR_MESSAGE_MALFORMED_ENTRY_NAME, entryName, charset));
                 }
-                return false;
+                return recordValidation(event, measured, start, validated, 0, false);
+            }
+        }
+        return recordValidation(event, measured, start, validated, 0, true);
+    }
+
+    /**
+     * Validates the raw entry names of a central directory. An entry name is
+     * decoded the same way as {@link ZipFile} does, that is by UTF-8 when the
+     * entry declares UTF-8 names and by the charset of this object otherwise,
+     * and then it is validated as {@link #validateEntryNames(ZipFile)} does.
+     * The coders and buffers are reused by the current thread, and so are the
+     * verdicts of the path segments the names share, where the charset allows
+     * validating a name segment by segment.
+     *
+     * @param directory the central directory to validate
+     * @return true if all entry names are valid, false otherwise
+     * @throws NullPointerException if the directory is null
+     */
+    public boolean validateEntryNames(CentralDirectory directory) {
+        Objects.requireNonNull(directory, "directory is null");
+        return validateEntryNames(directory, null);
+    }
+
+    /**
+     * Validates the raw entry names of a central directory as
+     * {@link #validateEntryNames(CentralDirectory)} does and indexes the decoded
+     * names in the same pass.
+     *
+     * @param directory the central directory to validate
+     * @return An Optional containing the index of the decoded entry names, or an
+     *         empty Optional if an entry name is not valid.
+     * @throws NullPointerException if the directory is null
+     */
+    public Optional<EntryNameIndex> indexEntryNames(CentralDirectory directory) {
+        Objects.requireNonNull(directory, "directory is null");
+        EntryNameIndex.Builder builder = new EntryNameIndex.Builder(directory.size());
+        return validateEntryNames(directory, builder) ? Optional.of(builder.build(this, directory))
+                : Optional.empty();
+    }
+
+    /**
+     * Validates the raw entry names of a central directory.
+     *
+     * @param directory the central directory to validate
+     * @param builder   the builder to add the decoded names to, or null
+     * @return true if all entry names are valid, false otherwise
+     */
+    private boolean validateEntryNames(CentralDirectory directory, EntryNameIndex.Builder builder) {
+        boolean measured = DetectionMetrics.global().isEnabled();
+        long start = measured ? System.nanoTime() : 0;
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        EntryNameCodec codec = EntryNameCodec.forCharset(charset);
+        long bytes = 0;
+        for (int i = 0; i < directory.size(); i++) {
+            boolean utf8 = (directory.flags(i) & CentralDirectory.FLAG_UTF8) != 0;
+            ByteBuffer name = directory.name(i);
+            bytes += name.remaining();
+            // The index needs every decoded name, so only a plain validation
+            // can skip the segments it has already seen.
+            boolean valid = builder != null ? codec.validate(name, utf8) : codec.validateSegments(name, utf8);
+            if (!valid) {
+                logMalformedEntryName(directory, i, utf8);
+                return recordValidation(event, measured, start, i + 1, bytes, false);
+            }
+            if (builder != null) {
+                builder.add(i, codec.validated());
+            }
+        }
+        return recordValidation(event, measured, start, directory.size(), bytes, true);
+    }
+
+    /**
+     * Records the outcome of a validation pass in the metrics, if they are
+     * enabled, and in the JFR event, if it is enabled.
+     *
+     * @param event    the event which began with the pass
+     * @param measured true if the metrics were enabled when the pass began
+     * @param start    the time the pass began, if measured
+     * @param entries  the number of entry names checked
+     * @param bytes    the number of bytes of raw entry names checked
+     * @param valid    the outcome of the pass
+     * @return the outcome of the pass
+     */
+    private boolean recordValidation(ValidationEvent event, boolean measured, long start, int entries,
+            long bytes, boolean valid) {
+        if (measured) {
+            DetectionMetrics.global().recordValidation(charset, System.nanoTime() - start, entries, bytes, valid);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.charset = charset.name();
+            event.entries = entries;
+            event.valid = valid;
+            event.commit();
+        }
+        return valid;
+    }
+
+    /**
+     * Logs an entry name which is not valid for the charset of this object.
+     *
+     * @param directory the central directory
+     * @param index     the index of the entry
+     * @param utf8      true if the entry declares UTF-8 names
+     */
+    private void logMalformedEntryName(CentralDirectory directory, int index, boolean utf8) {
+        String entryName = EntryNameCodec.forCharset(utf8 ? StandardCharsets.UTF_8 : charset)
+                .decode(directory.name(index));
+        if (entryName == null) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(String.format(ERROR_MESSAGE_UNDECODABLE_ENTRY_NAME, index, file, charset));
             }
+        } else if (LOGGER.isLoggable(Level.WARNING)) {
+            LOGGER.warning(String.format(ERROR_MESSAGE_MALFORMED_ENTRY_NAME, entryName, charset));
         }
-        return true;
     }
 }
\ No newline at end of file
@@ -3,14 +3,27 @@ package java_practice01;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.ZipFile;
 
 import org.apache.commons.collections4.list.AbstractListDecorator;
 
@@ -24,6 +37,8 @@ public class EncodedFileList extends AbstractListDecorator<EncodedFile> {
 
     private static final String MSG_ERR = "Failed to open zip file: %s by %s";
 
+    private static final String MSG_ERR_READ = "Failed to read central directory: %s";
+
     /**
      * The logger used for logging messages in the EncodedFileList class.
      */
@@ -38,6 +53,8 @@ public class EncodedFileList extends AbstractListDecorator<EncodedFile> {
 
     /**
      * Collects the encoded files from the given file using the specified charsets.
+     * Every pair of a file and a charset is added at once; use
+     * {@link CandidateSource} to produce them on demand for many files.
      * 
      * @param files    the files to be encoded
      * @param charsets the charsets to use for encoding the file
@@ -83,50 +100,546 @@ public class EncodedFileList extends AbstractListDecorator<EncodedFile> {
 
     /**
      * Finds the first valid zip file in the list of encoded files.
+     * The central directory of each file is read only once and every charset
+     * given for that file is tested against the same raw entry names.
      *
      * @return An Optional containing the first valid EncodedFile as a zip file, or
      *         an empty Optional if no valid zip file is found.
      */
     public Optional<EncodedFile> findFirstValidZipFile() {
-        for (EncodedFile encodedFile : decorated()) {
-            // Try to open the zip file and return the encoded file if successful
-            try (ZipFile zipFile = encodedFile.openZipFile()) {
-                if (encodedFile.validateEntryNames(zipFile)) {
-                    return Optional.of(encodedFile);
-                }
-            } catch (IOException e) {
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    LOGGER.log(Level.FINE, String.format(MSG_ERR, encodedFile,
-                            encodedFile.charset()), e);
+        for (List<EncodedFile> group : groupByFile()) {
+            List<EncodedFile> valids = probe(group, true, () -> false);
+            if (!valids.isEmpty()) {
+                return Optional.of(valids.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds the first valid zip file in the list of encoded files by probing
+     * the files concurrently on virtual threads.
+     * Each worker thread keeps its entry name codecs from one file to the next,
+     * but the threads end with the call, so every call starts with cold codecs.
+     * Callers which probe many small lists should use the overload taking an
+     * {@link Executor} with long-lived platform threads, which keep their
+     * codecs from one call to the next.
+     *
+     * @param maxConcurrency the maximum number of files probed at the same time
+     * @return An Optional containing the first valid EncodedFile in list order, or
+     *         an empty Optional if no valid zip file is found.
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public Optional<EncodedFile> findFirstValidZipFile(int maxConcurrency) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return findFirstValidZipFile(executor, maxConcurrency);
+        }
+    }
+
+    /**
+     * Finds the first valid zip file in the list of encoded files by probing
+     * the files concurrently on the given executor. Files after the first valid
+     * one in list order are not probed, or stop being probed, once it is found.
+     *
+     * @param executor       the executor which runs the probes
+     * @param maxConcurrency the maximum number of files probed at the same time
+     * @return An Optional containing the first valid EncodedFile in list order, or
+     *         an empty Optional if no valid zip file is found.
+     * @throws NullPointerException     if the executor is null
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public Optional<EncodedFile> findFirstValidZipFile(Executor executor, int maxConcurrency) {
+        ParallelProbe probe = new ParallelProbe(groupByFile(), true);
+        join(probe.start(executor, maxConcurrency));
+        return probe.first();
+    }
+
+    /**
+     * Finds the first valid zip file in the list of encoded files by probing
+     * the files concurrently on the given executor, without blocking the
+     * caller. The future completes with the first valid encoded file in list
+     * order as soon as every file before it has turned out invalid, even while
+     * files after it are still being probed. Those probes are then interrupted,
+     * which closes the channels they are reading the central directory from,
+     * and no further file is probed. Cancelling the future stops all probes in
+     * the same way.
+     *
+     * @param executor       the executor which runs the probes
+     * @param maxConcurrency the maximum number of files probed at the same time
+     * @return a future of an Optional containing the first valid EncodedFile in
+     *         list order, or an empty Optional if no valid zip file is found
+     * @throws NullPointerException     if the executor is null
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public CompletableFuture<Optional<EncodedFile>> findFirstValidZipFileAsync(Executor executor,
+            int maxConcurrency) {
+        ParallelProbe probe = new ParallelProbe(groupByFile(), true);
+        probe.start(executor, maxConcurrency).whenComplete((unused, e) -> {
+            if (e != null) {
+                probe.fail(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        });
+        return probe.firstAsync();
+    }
+
+    /**
+     * Finds the first valid zip file in the list of encoded files like
+     * {@link #findFirstValidZipFileAsync(Executor, int)}, giving up after the
+     * timeout. When the timeout elapses, the future completes exceptionally
+     * with a {@link java.util.concurrent.TimeoutException} and all probes are
+     * stopped.
+     *
+     * @param executor       the executor which runs the probes
+     * @param maxConcurrency the maximum number of files probed at the same time
+     * @param timeout        the time to wait for the result
+     * @return a future of an Optional containing the first valid EncodedFile in
+     *         list order, or an empty Optional if no valid zip file is found
+     * @throws NullPointerException     if the executor or the timeout is null
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public CompletableFuture<Optional<EncodedFile>> findFirstValidZipFileAsync(Executor executor,
+            int maxConcurrency, Duration timeout) {
+        Objects.requireNonNull(timeout, "timeout is null");
+        return findFirstValidZipFileAsync(executor, maxConcurrency)
+                .orTimeout(Math.max(0, timeout.toNanos()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Finds the first valid zip file in the list of encoded files, looking up
+     * the result of each file in the given cache first. A file whose result is
+     * cached is not opened at all.
+     *
+     * @param cache the cache of detection results
+     * @return An Optional containing the first valid EncodedFile as a zip file, or
+     *         an empty Optional if no valid zip file is found.
+     * @throws NullPointerException if the cache is null
+     */
+    public Optional<EncodedFile> findFirstValidZipFile(DetectionCache cache) {
+        Objects.requireNonNull(cache, "cache is null");
+        for (List<EncodedFile> group : groupByFile()) {
+            Optional<EncodedFile> result = cache.detect(group);
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds a valid zip file in the list of encoded files, trying the charsets
+     * of each file in the order of their observed success and recording the
+     * charset which turns out to be valid. When several charsets of a file are
+     * valid, the most likely one is returned rather than the first in list
+     * order; ties keep the list order.
+     *
+     * @param statistics the statistics which order the charsets
+     * @return An Optional containing the valid EncodedFile of the first file which
+     *         has one, or an empty Optional if no valid zip file is found.
+     * @throws NullPointerException if the statistics are null
+     */
+    public Optional<EncodedFile> findFirstValidZipFile(CharsetStatistics statistics) {
+        Objects.requireNonNull(statistics, "statistics is null");
+        for (List<EncodedFile> group : groupByFile()) {
+            List<EncodedFile> valids = probe(statistics.order(group), true, () -> false);
+            if (!valids.isEmpty()) {
+                statistics.record(valids.get(0));
+                return Optional.of(valids.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds the first valid zip file in the list of encoded files like
+     * {@link #findFirstValidZipFile()}, but classifies the raw entry names of
+     * each file first. A file whose names are all printable ASCII is settled by
+     * its first charset compatible with ASCII, and a file whose entries all
+     * declare UTF-8 names is settled by its UTF-8 charset, if any, without trying
+     * the other charsets. The result tells which shortcut fired.
+     *
+     * @return An Optional containing the first valid EncodedFile and the shortcut
+     *         which found it, or an empty Optional if no valid zip file is found.
+     */
+    public Optional<Detection> detectFirstValidZipFile() {
+        for (List<EncodedFile> group : groupByFile()) {
+            CentralDirectory directory = readCentralDirectory(group.get(0).file());
+            if (directory == null) {
+                continue;
+            }
+            Optional<Detection> detection = detect(group, directory);
+            if (detection.isPresent()) {
+                return detection;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Detects the first valid encoded file of one file, taking the shortcuts
+     * described in {@link #detectFirstValidZipFile()}.
+     *
+     * @param group     the encoded files which share the same file
+     * @param directory the central directory of the file
+     * @return the first valid encoded file and the shortcut which found it, or an
+     *         empty Optional if none is valid
+     */
+    static Optional<Detection> detect(List<EncodedFile> group, CentralDirectory directory) {
+        FastPath fastPath = EntryNameClassifier.classify(directory);
+        if (fastPath == FastPath.EFS) {
+            for (EncodedFile encodedFile : group) {
+                if (encodedFile.charset().equals(StandardCharsets.UTF_8)) {
+                    if (encodedFile.validateEntryNames(directory)) {
+                        return Optional.of(new Detection(encodedFile, FastPath.EFS));
+                    }
+                    break;
                 }
             }
         }
+        for (EncodedFile encodedFile : group) {
+            if (fastPath == FastPath.ASCII && EntryNameClassifier.isAsciiCompatible(encodedFile.charset())) {
+                return Optional.of(new Detection(encodedFile, FastPath.ASCII));
+            }
+            if (encodedFile.validateEntryNames(directory)) {
+                return Optional.of(new Detection(encodedFile, FastPath.NONE));
+            }
+        }
         return Optional.empty();
     }
 
     /**
      * Represents a list of encoded files.
+     * The central directory of each file is read only once and every charset
+     * given for that file is tested against the same raw entry names.
      */
     public EncodedFileList availables() {
         EncodedFileList result = new EncodedFileList(new LinkedList<EncodedFile>());
-        for (EncodedFile encodedFile : decorated()) {
-            try (ZipFile zipFile = encodedFile.openZipFile()) {
-                if (encodedFile.validateEntryNames(zipFile)) {
-                    result.add(encodedFile);
-                } else {
-                    if (LOGGER.isLoggable(Level.FINE)) {
-                        LOGGER.log(Level.FINE, String.format(MSG_ERR, encodedFile,
-                                encodedFile.charset()));
-                    }
+        for (List<EncodedFile> group : groupByFile()) {
+            result.addAll(probe(group, false, () -> false));
+        }
+        return result;
+    }
+
+    /**
+     * Collects the valid zip files in the list of encoded files by probing the
+     * files concurrently on virtual threads. As with
+     * {@link #findFirstValidZipFile(int)}, the entry name codecs of the threads
+     * do not outlive the call.
+     *
+     * @param maxConcurrency the maximum number of files probed at the same time
+     * @return the valid encoded files in list order
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public EncodedFileList availables(int maxConcurrency) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return availables(executor, maxConcurrency);
+        }
+    }
+
+    /**
+     * Collects the valid zip files in the list of encoded files by probing the
+     * files concurrently on the given executor.
+     *
+     * @param executor       the executor which runs the probes
+     * @param maxConcurrency the maximum number of files probed at the same time
+     * @return the valid encoded files in list order
+     * @throws NullPointerException     if the executor is null
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    public EncodedFileList availables(Executor executor, int maxConcurrency) {
+        ParallelProbe probe = new ParallelProbe(groupByFile(), false);
+        join(probe.start(executor, maxConcurrency));
+        return probe.all();
+    }
+
+    /**
+     * Probes the encoded files of one file against a single read of its central
+     * directory.
+     *
+     * @param group      the encoded files which share the same file
+     * @param firstOnly  true to stop at the first valid encoded file
+     * @param cancelled  tells whether the result is no longer needed
+     * @return the valid encoded files in list order
+     */
+    static List<EncodedFile> probe(List<EncodedFile> group, boolean firstOnly, BooleanSupplier cancelled) {
+        CentralDirectory directory = readCentralDirectory(group.get(0).file());
+        if (directory == null) {
+            DetectionMetrics metrics = DetectionMetrics.global();
+            // A probe which has been cancelled may fail to read because it was
+            // interrupted, which is not a failure of the file.
+            if (metrics.isEnabled() && !cancelled.getAsBoolean()) {
+                group.forEach(encodedFile -> metrics.recordIoFailure(encodedFile.charset()));
+            }
+            return new ArrayList<>();
+        }
+        return probe(group, directory, firstOnly, cancelled);
+    }
+
+    /**
+     * Probes the encoded files of one file against its central directory.
+     *
+     * @param group      the encoded files which share the same file
+     * @param directory  the central directory of the file
+     * @param firstOnly  true to stop at the first valid encoded file
+     * @param cancelled  tells whether the result is no longer needed
+     * @return the valid encoded files in list order
+     */
+    static List<EncodedFile> probe(List<EncodedFile> group, CentralDirectory directory, boolean firstOnly,
+            BooleanSupplier cancelled) {
+        List<EncodedFile> result = new ArrayList<>();
+        for (EncodedFile encodedFile : group) {
+            if (cancelled.getAsBoolean()) {
+                break;
+            }
+            if (encodedFile.validateEntryNames(directory)) {
+                result.add(encodedFile);
+                if (firstOnly) {
+                    break;
                 }
-            } catch (IOException e) {
+            } else {
                 if (LOGGER.isLoggable(Level.FINE)) {
                     LOGGER.log(Level.FINE, String.format(MSG_ERR, encodedFile,
-                            encodedFile.charset()), e);
+                            encodedFile.charset()));
                 }
             }
         }
         return result;
     }
 
+    /**
+     * Waits for a probe to complete, rethrowing an unchecked exception thrown by
+     * the probe as it is.
+     *
+     * @param future the future of the probe
+     */
+    private static void join(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Splits the list into runs of consecutive encoded files which share the
+     * same file. The list built by {@link #collect(Iterable, Iterable)} consists
+     * of one run per file.
+     *
+     * @return the runs in list order
+     */
+    private List<List<EncodedFile>> groupByFile() {
+        List<List<EncodedFile>> groups = new ArrayList<>();
+        List<EncodedFile> group = null;
+        for (EncodedFile encodedFile : decorated()) {
+            if (group == null || !group.get(0).file().equals(encodedFile.file())) {
+                group = new ArrayList<>();
+                groups.add(group);
+            }
+            group.add(encodedFile);
+        }
+        return groups;
+    }
+
+    /**
+     * Reads the central directory of a file.
+     *
+     * @param file the zip file
+     * @return the central directory, or null if it cannot be read
+     */
+    private static CentralDirectory readCentralDirectory(File file) {
+        try {
+            return CentralDirectory.read(file);
+        } catch (IOException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, String.format(MSG_ERR_READ, file), e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Probes runs of encoded files concurrently. Workers claim the runs in list
+     * order, so every run before the first valid one has been claimed by the
+     * time it is found, and no run after it is claimed any more. The workers
+     * still probing a run after it are interrupted.
+     */
+    private static final class ParallelProbe {
+
+        private final List<List<EncodedFile>> groups;
+
+        private final boolean firstOnly;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        /**
+         * The lowest index of a run which has a valid encoded file.
+         */
+        private final AtomicInteger winner = new AtomicInteger(Integer.MAX_VALUE);
+
+        private final AtomicReferenceArray<List<EncodedFile>> results;
+
+        /**
+         * The future of the first valid encoded file, which completes as soon as
+         * every run before it has been probed.
+         */
+        private final CompletableFuture<Optional<EncodedFile>> first = new CompletableFuture<>();
+
+        /**
+         * The threads probing each run, guarded by this object. A thread is
+         * interrupted only while it is registered here, and it clears its
+         * interrupt status before it unregisters.
+         */
+        private final Map<Integer, Thread> running = new HashMap<>();
+
+        /**
+         * The number of leading runs known to have no valid encoded file,
+         * guarded by this object.
+         */
+        private int settled;
+
+        private volatile boolean cancelled;
+
+        ParallelProbe(List<List<EncodedFile>> groups, boolean firstOnly) {
+            this.groups = groups;
+            this.firstOnly = firstOnly;
+            this.results = new AtomicReferenceArray<>(groups.size());
+            first.whenComplete((result, e) -> {
+                if (e != null) {
+                    cancel();
+                }
+            });
+        }
+
+        /**
+         * Starts the workers.
+         *
+         * @param executor       the executor which runs the workers
+         * @param maxConcurrency the number of workers
+         * @return the future which completes when all workers are done
+         */
+        CompletableFuture<Void> start(Executor executor, int maxConcurrency) {
+            Objects.requireNonNull(executor, "executor is null");
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("maxConcurrency is not positive");
+            }
+            int workers = Math.min(maxConcurrency, groups.size());
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+            for (int i = 0; i < workers; i++) {
+                futures[i] = CompletableFuture.runAsync(this::work, executor);
+            }
+            if (workers == 0) {
+                first.complete(Optional.empty());
+            }
+            return CompletableFuture.allOf(futures);
+        }
+
+        private void work() {
+            for (int index = next.getAndIncrement(); index < groups.size(); index = next.getAndIncrement()) {
+                if (isLost(index)) {
+                    return;
+                }
+                int current = index;
+                List<EncodedFile> valids;
+                register(index);
+                try {
+                    valids = probe(groups.get(index), firstOnly, () -> isLost(current));
+                } finally {
+                    unregister(index);
+                }
+                results.set(index, valids);
+                if (firstOnly && !valids.isEmpty()) {
+                    winner.accumulateAndGet(index, Math::min);
+                    interruptLosers();
+                }
+                settle();
+            }
+        }
+
+        /**
+         * Determines whether a run can no longer be the first valid one.
+         *
+         * @param index the index of the run
+         * @return true if a valid run before it has been found or the probe has
+         *         been cancelled
+         */
+        private boolean isLost(int index) {
+            return cancelled || firstOnly && index > winner.get();
+        }
+
+        private synchronized void register(int index) {
+            running.put(index, Thread.currentThread());
+        }
+
+        private synchronized void unregister(int index) {
+            running.remove(index);
+            // An interrupt meant for the run must not leak into the next task
+            // of the thread.
+            Thread.interrupted();
+        }
+
+        private synchronized void interruptLosers() {
+            running.forEach((index, thread) -> {
+                if (isLost(index)) {
+                    thread.interrupt();
+                }
+            });
+        }
+
+        /**
+         * Completes the future of the first valid encoded file if the runs before
+         * it have all been probed.
+         */
+        private synchronized void settle() {
+            while (settled < groups.size()) {
+                List<EncodedFile> valids = results.get(settled);
+                if (valids == null) {
+                    return;
+                }
+                if (!valids.isEmpty()) {
+                    first.complete(Optional.of(valids.get(0)));
+                    return;
+                }
+                settled++;
+            }
+            first.complete(Optional.empty());
+        }
+
+        /**
+         * Stops all workers and completes the future of the first valid encoded
+         * file exceptionally if it is not complete yet.
+         *
+         * @param e the failure of a worker
+         */
+        void fail(Throwable e) {
+            first.completeExceptionally(e);
+            cancel();
+        }
+
+        private void cancel() {
+            cancelled = true;
+            interruptLosers();
+        }
+
+        CompletableFuture<Optional<EncodedFile>> firstAsync() {
+            return first;
+        }
+
+        Optional<EncodedFile> first() {
+            int index = winner.get();
+            return index < groups.size() ? Optional.of(results.get(index).get(0)) : Optional.empty();
+        }
+
+        EncodedFileList all() {
+            EncodedFileList result = new EncodedFileList(new ArrayList<EncodedFile>());
+            for (int i = 0; i < results.length(); i++) {
+                result.addAll(results.get(i));
+            }
+            return result;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package java_practice01;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classifies the raw entry names of a central directory before any charset is
+ * tried, so that archives whose charset does not matter or is declared can be
+ * settled at once. Names are scanned eight bytes at a time.
+ */
+public final class EntryNameClassifier {
+
+    /**
+     * The high bit of every byte in a long.
+     */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * The smallest printable ASCII character in every byte of a long.
+     */
+    private static final long SPACES = 0x2020202020202020L;
+
+    /**
+     * The smallest printable ASCII character.
+     */
+    private static final int FIRST_PRINTABLE = 0x20;
+
+    /**
+     * Whether each charset which has been asked for is compatible with ASCII.
+     */
+    private static final Map<Charset, Boolean> ASCII_COMPATIBLE = new ConcurrentHashMap<>();
+
+    private EntryNameClassifier() {
+    }
+
+    /**
+     * Classifies the entry names of a central directory.
+     *
+     * @param directory the central directory
+     * @return {@link FastPath#ASCII} if every name consists of printable ASCII
+     *         characters, {@link FastPath#EFS} if every entry declares UTF-8
+     *         names, and {@link FastPath#NONE} otherwise
+     * @throws NullPointerException if the directory is null
+     */
+    public static FastPath classify(CentralDirectory directory) {
+        Objects.requireNonNull(directory, "directory is null");
+        boolean ascii = true;
+        boolean efs = directory.size() > 0;
+        for (int i = 0; i < directory.size() && (ascii || efs); i++) {
+            efs &= (directory.flags(i) & CentralDirectory.FLAG_UTF8) != 0;
+            ascii &= isPrintableAscii(directory.name(i));
+        }
+        return ascii ? FastPath.ASCII : efs ? FastPath.EFS : FastPath.NONE;
+    }
+
+    /**
+     * Determines whether the bytes consist of printable ASCII characters, that
+     * is bytes from 0x20 to 0x7F. Escape and shift bytes of stateful charsets
+     * are below 0x20, so such names mean the same in every charset which is
+     * compatible with ASCII.
+     *
+     * @param bytes the bytes to scan, which are consumed
+     * @return true if every byte is printable ASCII, false otherwise
+     */
+    static boolean isPrintableAscii(ByteBuffer bytes) {
+        while (bytes.remaining() >= Long.BYTES) {
+            long word = bytes.getLong();
+            if ((word & HIGH_BITS) != 0) {
+                return false;
+            }
+            // Every byte is below 0x80 here, so the subtraction borrows into
+            // the high bit of exactly those bytes which are below 0x20.
+            if (((word - SPACES) & ~word & HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        while (bytes.hasRemaining()) {
+            int b = bytes.get();
+            if (b < FIRST_PRINTABLE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether a charset decodes and encodes every printable ASCII
+     * character as the same single byte.
+     *
+     * @param charset the charset
+     * @return true if the charset is compatible with ASCII, false otherwise
+     * @throws NullPointerException if the charset is null
+     */
+    public static boolean isAsciiCompatible(Charset charset) {
+        Objects.requireNonNull(charset, "charset is null");
+        return ASCII_COMPATIBLE.computeIfAbsent(charset, EntryNameClassifier::testAsciiCompatible);
+    }
+
+    private static boolean testAsciiCompatible(Charset charset) {
+        byte[] bytes = new byte[0x80 - FIRST_PRINTABLE];
+        char[] chars = new char[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (FIRST_PRINTABLE + i);
+            chars[i] = (char) (FIRST_PRINTABLE + i);
+        }
+        try {
+            CharBuffer decoded = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes));
+            if (!decoded.equals(CharBuffer.wrap(chars)) || !charset.canEncode()) {
+                return false;
+            }
+            ByteBuffer encoded = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .encode(CharBuffer.wrap(chars));
+            return encoded.equals(ByteBuffer.wrap(bytes));
+        } catch (CharacterCodingException e) {
+            return false;
+        }
+    }
+}
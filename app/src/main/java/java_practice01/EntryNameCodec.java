@@ -0,0 +1,381 @@
+package java_practice01;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Validates entry names with coders and buffers which are reused by the
+ * current thread, so that validating a central directory allocates almost
+ * nothing. Instances are confined to the thread which obtained them by
+ * {@link #forCharset(Charset)}.
+ */
+final class EntryNameCodec {
+
+    /**
+     * The initial capacity of the pooled buffers.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * The codecs of the current thread.
+     */
+    private static final ThreadLocal<Map<Charset, EntryNameCodec>> CODECS = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * The charsets whose coders keep no state between characters and in which
+     * the byte 0x2F is always the character '/' and never a part of another
+     * character. A name in such a charset is valid exactly when each of its
+     * segments between slashes is. Stateful charsets such as ISO-2022-JP, where
+     * 0x2F is a byte of a double-byte character after an escape sequence, and
+     * UTF-16 are not listed.
+     */
+    private static final Set<String> SEGMENTABLE = Set.of("US-ASCII", "UTF-8", "ISO-8859-1", "ISO-8859-2",
+            "ISO-8859-5", "ISO-8859-7", "ISO-8859-9", "ISO-8859-13", "ISO-8859-15", "windows-1250",
+            "windows-1251", "windows-1252", "windows-1253", "windows-1254", "windows-1257", "Shift_JIS",
+            "windows-31j", "EUC-JP", "EUC-KR", "x-windows-949", "GBK", "GB18030", "GB2312", "Big5",
+            "Big5-HKSCS", "x-windows-950");
+
+    /**
+     * The number of segment verdicts kept by each codec for each way of
+     * decoding.
+     */
+    private static final int SEGMENT_CACHE_SIZE = 1024;
+
+    /**
+     * The first printable ASCII character. A segment of printable ASCII bytes is
+     * valid in every segmentable charset which is compatible with ASCII.
+     */
+    private static final int FIRST_PRINTABLE = 0x20;
+
+    /**
+     * The decoder which reports malformed and unmappable input, as the decoder
+     * used by {@link java.util.zip.ZipFile} does.
+     */
+    private final CharsetDecoder strictDecoder;
+
+    /**
+     * The decoder which replaces malformed and unmappable input, as
+     * {@link String#String(byte[], Charset)} does.
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * The encoder which reports malformed and unmappable input. A replacement
+     * made by {@link String#getBytes(Charset)} can never be decoded to the
+     * original characters, so reporting it rejects exactly the same names.
+     */
+    private final CharsetEncoder encoder;
+
+    private CharBuffer name = CharBuffer.allocate(INITIAL_CAPACITY);
+
+    private ByteBuffer encoded = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    private CharBuffer reencoded = CharBuffer.allocate(INITIAL_CAPACITY);
+
+    /**
+     * True if names can be validated segment by segment.
+     */
+    private final boolean segmentable;
+
+    /**
+     * The verdicts of segments decoded by the charset of this codec.
+     */
+    private final SegmentCache segments;
+
+    /**
+     * The verdicts of segments of names which declare UTF-8.
+     */
+    private final SegmentCache utf8Segments;
+
+    private EntryNameCodec(Charset charset) {
+        this.strictDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        this.segmentable = SEGMENTABLE.contains(charset.name()) && EntryNameClassifier.isAsciiCompatible(charset);
+        this.segments = segmentable ? new SegmentCache() : null;
+        this.utf8Segments = segmentable ? new SegmentCache() : null;
+    }
+
+    /**
+     * Returns the codec of the current thread for the given charset.
+     *
+     * @param charset the charset of the codec
+     * @return the codec
+     * @throws NullPointerException if the charset is null
+     */
+    static EntryNameCodec forCharset(Charset charset) {
+        Objects.requireNonNull(charset, "charset is null");
+        return CODECS.get().computeIfAbsent(charset, EntryNameCodec::new);
+    }
+
+    /**
+     * Determines whether a string survives encoding and decoding by the charset
+     * of this codec, which is the same as
+     * {@code name.equals(new String(name.getBytes(charset), charset))}.
+     *
+     * @param name the string to validate
+     * @return true if the string survives the round trip, false otherwise
+     * @throws NullPointerException if the name is null
+     */
+    boolean roundTrips(String name) {
+        Objects.requireNonNull(name, "name is null");
+        int length = name.length();
+        this.name = ensureCapacity(this.name, length);
+        name.getChars(0, length, this.name.array(), 0);
+        this.name.position(0).limit(length);
+        return roundTrips(this.name, null);
+    }
+
+    /**
+     * Validates a raw entry name. The name is decoded by UTF-8 if the entry
+     * declares UTF-8 names and by the charset of this codec otherwise, and then
+     * the decoded name has to survive the round trip by the charset of this codec.
+     *
+     * @param rawName the undecoded entry name, which is consumed
+     * @param utf8    true if the entry declares UTF-8 names
+     * @return true if the entry name is valid, false otherwise
+     */
+    boolean validate(ByteBuffer rawName, boolean utf8) {
+        EntryNameCodec decoding = utf8 ? forCharset(StandardCharsets.UTF_8) : this;
+        ByteBuffer original = utf8 ? null : rawName.duplicate();
+        CharBuffer decoded = decoding.decodeStrictly(rawName, name);
+        if (decoded == null) {
+            return false;
+        }
+        name = decoded;
+        return roundTrips(name, original);
+    }
+
+    /**
+     * Validates a raw entry name as {@link #validate(ByteBuffer, boolean)} does,
+     * but segment by segment. The name is split at the byte 0x2F, a segment of
+     * printable ASCII is valid without being decoded, and the verdict of any
+     * other segment is cached, so the segments which names share are decoded
+     * once. The result is the same as that of
+     * {@link #validate(ByteBuffer, boolean)}, which is used instead if the
+     * charset of this codec is not segmentable.
+     *
+     * @param rawName the undecoded entry name, which is consumed
+     * @param utf8    true if the entry declares UTF-8 names
+     * @return true if the entry name is valid, false otherwise
+     */
+    boolean validateSegments(ByteBuffer rawName, boolean utf8) {
+        if (!segmentable) {
+            return validate(rawName, utf8);
+        }
+        SegmentCache cache = utf8 ? utf8Segments : segments;
+        int limit = rawName.limit();
+        int start = rawName.position();
+        int hash = 1;
+        boolean printable = true;
+        for (int i = start; i <= limit; i++) {
+            byte b = i < limit ? rawName.get(i) : (byte) '/';
+            if (b == '/') {
+                if (!printable && !cache.validate(rawName, start, i, hash, utf8)) {
+                    return false;
+                }
+                start = i + 1;
+                hash = 1;
+                printable = true;
+            } else {
+                hash = 31 * hash + b;
+                printable &= b >= FIRST_PRINTABLE;
+            }
+        }
+        rawName.position(limit);
+        return true;
+    }
+
+    /**
+     * Returns the name decoded by the last successful call to
+     * {@link #validate(ByteBuffer, boolean)}. The buffer is reused by the next
+     * call.
+     *
+     * @return a view of the decoded name, positioned at its first character
+     */
+    CharBuffer validated() {
+        return name.duplicate();
+    }
+
+    /**
+     * Decodes a raw entry name strictly.
+     *
+     * @param rawName the undecoded entry name, which is consumed
+     * @return a new string, or null if the name cannot be decoded
+     */
+    String decode(ByteBuffer rawName) {
+        CharBuffer decoded = decodeStrictly(rawName, CharBuffer.allocate(INITIAL_CAPACITY));
+        return decoded != null ? decoded.toString() : null;
+    }
+
+    /**
+     * Decodes bytes strictly into a buffer, growing it if necessary.
+     *
+     * @param in  the bytes to decode, which are consumed
+     * @param out the buffer to reuse
+     * @return the flipped buffer holding the decoded characters, which may differ
+     *         from the given one, or null if the bytes cannot be decoded
+     */
+    private CharBuffer decodeStrictly(ByteBuffer in, CharBuffer out) {
+        return decode(strictDecoder, in, out);
+    }
+
+    /**
+     * Encodes the name held in a buffer and decodes it again, then compares the
+     * result with the name.
+     *
+     * @param chars    the name, positioned at its first character
+     * @param original the raw bytes the name was decoded from by this charset, or
+     *                 null if it is unknown
+     * @return true if the name survives the round trip, false otherwise
+     */
+    private boolean roundTrips(CharBuffer chars, ByteBuffer original) {
+        ByteBuffer bytes = encode(chars.duplicate(), encoded);
+        if (bytes == null) {
+            return false;
+        }
+        encoded = bytes;
+        if (original != null && encoded.equals(original)) {
+            // Decoding the same bytes again gives the same name.
+            return true;
+        }
+        CharBuffer decoded = decode(decoder, encoded, reencoded);
+        if (decoded == null) {
+            return false;
+        }
+        reencoded = decoded;
+        return chars.equals(reencoded);
+    }
+
+    /**
+     * Encodes characters into a buffer, growing it if necessary.
+     *
+     * @param in  the characters to encode, which are consumed
+     * @param out the buffer to reuse
+     * @return the flipped buffer holding the encoded bytes, or null if the
+     *         characters cannot be encoded
+     */
+    private ByteBuffer encode(CharBuffer in, ByteBuffer out) {
+        int start = in.position();
+        for (;;) {
+            encoder.reset();
+            out.clear();
+            CoderResult result = encoder.encode(in, out, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(out);
+            }
+            if (result.isUnderflow()) {
+                return out.flip();
+            }
+            if (result.isError()) {
+                return null;
+            }
+            in.position(start);
+            out = ByteBuffer.allocate(out.capacity() * 2);
+        }
+    }
+
+    /**
+     * Decodes bytes into a buffer, growing it if necessary.
+     *
+     * @param decoder the decoder to use
+     * @param in      the bytes to decode, which are consumed
+     * @param out     the buffer to reuse
+     * @return the flipped buffer holding the decoded characters, or null if the
+     *         bytes cannot be decoded
+     */
+    private static CharBuffer decode(CharsetDecoder decoder, ByteBuffer in, CharBuffer out) {
+        int start = in.position();
+        for (;;) {
+            decoder.reset();
+            out.clear();
+            CoderResult result = decoder.decode(in, out, true);
+            if (result.isUnderflow()) {
+                result = decoder.flush(out);
+            }
+            if (result.isUnderflow()) {
+                return out.flip();
+            }
+            if (result.isError()) {
+                return null;
+            }
+            in.position(start);
+            out = CharBuffer.allocate(out.capacity() * 2);
+        }
+    }
+
+    /**
+     * Returns a buffer which can hold at least the given number of characters.
+     *
+     * @param buffer   the buffer to reuse
+     * @param capacity the required capacity
+     * @return the given buffer, or a larger one
+     */
+    private static CharBuffer ensureCapacity(CharBuffer buffer, int capacity) {
+        return buffer.capacity() >= capacity ? buffer
+                : CharBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+    }
+
+    /**
+     * Remembers whether segments are valid. The cache is direct mapped: a
+     * segment evicts the one which has the same slot, so the cache never grows.
+     */
+    private final class SegmentCache {
+
+        private final byte[][] keys = new byte[SEGMENT_CACHE_SIZE][];
+
+        private final boolean[] verdicts = new boolean[SEGMENT_CACHE_SIZE];
+
+        /**
+         * Validates a segment, or returns the cached verdict.
+         *
+         * @param name the raw entry name holding the segment
+         * @param from the start of the segment
+         * @param to   the end of the segment
+         * @param hash the hash code of the segment
+         * @param utf8 true if the entry declares UTF-8 names
+         * @return true if the segment is valid, false otherwise
+         */
+        boolean validate(ByteBuffer name, int from, int to, int hash, boolean utf8) {
+            int slot = (hash ^ (hash >>> 16)) & (SEGMENT_CACHE_SIZE - 1);
+            byte[] key = keys[slot];
+            if (key != null && matches(key, name, from, to)) {
+                return verdicts[slot];
+            }
+            boolean verdict = EntryNameCodec.this.validate(name.slice(from, to - from), utf8);
+            key = new byte[to - from];
+            name.get(from, key);
+            keys[slot] = key;
+            verdicts[slot] = verdict;
+            return verdict;
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer name, int from, int to) {
+            if (key.length != to - from) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != name.get(from + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
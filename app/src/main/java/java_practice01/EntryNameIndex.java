@@ -0,0 +1,623 @@
+package java_practice01;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Maps the decoded entry names of an archive to their indexes in its central
+ * directory without keeping a {@link java.util.zip.ZipEntry} or a
+ * {@link String} per entry. The names are split at {@code /} into segments,
+ * each distinct segment is stored once in a shared character pool, and the
+ * names form a tree of segments held in a few {@code int} arrays, so entries
+ * in the same directory share the nodes of their common prefix. The children
+ * of a node are sorted, so an exact lookup is a binary search per segment and
+ * a prefix lists a range of children and their subtrees.
+ *
+ * <p>
+ * An index is built by {@link EncodedFile#indexEntryNames(CentralDirectory)}
+ * in the same pass that validates the names. It can be saved next to the
+ * archive and loaded again as long as the central directory and the charset
+ * are unchanged. When several entries have the same name, the first one is
+ * found by name.
+ */
+public final class EntryNameIndex {
+
+    /**
+     * The first bytes of a saved index, "ENIX".
+     */
+    private static final int MAGIC = 0x454e4958;
+
+    /**
+     * The version of the format of a saved index.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The suffix appended to the path of an archive to name its saved index.
+     */
+    private static final String SUFFIX = ".names";
+
+    /**
+     * The node of the empty path, which is the parent of the first segments.
+     */
+    private static final int ROOT = 0;
+
+    private final File file;
+
+    private final Charset charset;
+
+    private final long checksum;
+
+    /**
+     * The characters of all distinct segments.
+     */
+    private final char[] chars;
+
+    /**
+     * The start of each segment in {@link #chars}, followed by the end of the
+     * last one.
+     */
+    private final int[] segmentStart;
+
+    /**
+     * The segment of each node. The nodes are numbered breadth first, so the
+     * children of a node are consecutive.
+     */
+    private final int[] segment;
+
+    /**
+     * The parent of each node, or -1 for the root.
+     */
+    private final int[] parent;
+
+    /**
+     * The first child of each node, followed by the number of nodes.
+     */
+    private final int[] childStart;
+
+    /**
+     * The first entry whose name ends at each node, or -1 if there is none.
+     */
+    private final int[] entry;
+
+    /**
+     * The node at which the name of each entry ends.
+     */
+    private final int[] entryNode;
+
+    private EntryNameIndex(File file, Charset charset, long checksum, char[] chars, int[] segmentStart,
+            int[] segment, int[] parent, int[] entryNode) {
+        this.file = file;
+        this.charset = charset;
+        this.checksum = checksum;
+        this.chars = chars;
+        this.segmentStart = segmentStart;
+        this.segment = segment;
+        this.parent = parent;
+        this.entryNode = entryNode;
+        int nodes = segment.length;
+        this.childStart = new int[nodes + 1];
+        for (int node = 1; node < nodes; node++) {
+            childStart[parent[node] + 1]++;
+        }
+        childStart[0] = 1;
+        for (int node = 0; node < nodes; node++) {
+            childStart[node + 1] += childStart[node];
+        }
+        this.entry = new int[nodes];
+        Arrays.fill(entry, -1);
+        for (int index = entryNode.length - 1; index >= 0; index--) {
+            entry[entryNode[index]] = index;
+        }
+    }
+
+    /**
+     * Returns the archive whose entry names are indexed.
+     *
+     * @return the archive
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Returns the charset the entry names were decoded by, unless they declare
+     * UTF-8.
+     *
+     * @return the charset
+     */
+    public Charset charset() {
+        return charset;
+    }
+
+    /**
+     * Returns the number of entries in the index.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entryNode.length;
+    }
+
+    /**
+     * Looks up an entry by its decoded name.
+     *
+     * @param name the entry name
+     * @return the index of the entry in the central directory, or -1 if there is
+     *         no entry of that name
+     * @throws NullPointerException if the name is null
+     */
+    public int indexOf(String name) {
+        Objects.requireNonNull(name, "name is null");
+        int node = walk(name, name.length());
+        return node >= 0 ? entry[node] : -1;
+    }
+
+    /**
+     * Lists the entries whose decoded names start with a prefix, such as
+     * {@code dir/} for the whole subtree of a directory or {@code dir/a} for the
+     * entries in it whose names start with {@code a}. The entries are in the
+     * order of their segments, and each segment compares as
+     * {@link String#compareTo(String)} does.
+     *
+     * @param prefix the prefix of the entry names
+     * @return the indexes of the entries in the central directory
+     * @throws NullPointerException if the prefix is null
+     */
+    public int[] list(String prefix) {
+        Objects.requireNonNull(prefix, "prefix is null");
+        int last = prefix.lastIndexOf('/');
+        int node = last < 0 ? ROOT : walk(prefix, last);
+        if (node < 0) {
+            return new int[0];
+        }
+        int[] result = new int[16];
+        int count = 0;
+        int[] stack = new int[16];
+        int top = 0;
+        int from = last + 1;
+        // The children which start with the rest of the prefix are consecutive.
+        int first = lowerBound(node, prefix, from, prefix.length());
+        int end = first;
+        while (end < childStart[node + 1] && startsWith(segment[end], prefix, from, prefix.length())) {
+            end++;
+        }
+        for (int child = end - 1; child >= first; child--) {
+            if (top == stack.length) {
+                stack = Arrays.copyOf(stack, top * 2);
+            }
+            stack[top++] = child;
+        }
+        while (top > 0) {
+            int current = stack[--top];
+            if (entry[current] >= 0) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = entry[current];
+            }
+            int children = childStart[current + 1] - childStart[current];
+            if (top + children > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + children));
+            }
+            for (int child = childStart[current + 1] - 1; child >= childStart[current]; child--) {
+                stack[top++] = child;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Rebuilds the decoded name of an entry.
+     *
+     * @param index the index of the entry in the central directory
+     * @return the entry name
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public String name(int index) {
+        Objects.checkIndex(index, entryNode.length);
+        int length = -1;
+        for (int node = entryNode[index]; node != ROOT; node = parent[node]) {
+            length += segmentStart[segment[node] + 1] - segmentStart[segment[node]] + 1;
+        }
+        char[] name = new char[length];
+        int end = length;
+        for (int node = entryNode[index]; node != ROOT; node = parent[node]) {
+            int start = segmentStart[segment[node]];
+            int size = segmentStart[segment[node] + 1] - start;
+            end -= size;
+            System.arraycopy(chars, start, name, end, size);
+            if (end > 0) {
+                name[--end] = '/';
+            }
+        }
+        return new String(name);
+    }
+
+    /**
+     * Returns the file an index of the given archive is saved to.
+     *
+     * @param archive the archive
+     * @return the file next to the archive
+     * @throws NullPointerException if the archive is null
+     */
+    public static File indexFile(File archive) {
+        Objects.requireNonNull(archive, "archive is null");
+        return new File(archive.getPath() + SUFFIX);
+    }
+
+    /**
+     * Saves this index next to the archive, as {@link #indexFile(File)} names
+     * it. A reader of the saved index never sees it half written.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void save() throws IOException {
+        FileReplacer.replace(indexFile(file), stream -> {
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(charset.name());
+            out.writeLong(checksum);
+            out.writeInt(chars.length);
+            for (char c : chars) {
+                out.writeChar(c);
+            }
+            writeInts(out, segmentStart);
+            writeInts(out, segment);
+            writeInts(out, parent);
+            writeInts(out, entryNode);
+            out.flush();
+        });
+    }
+
+    /**
+     * Loads the saved index of an archive if it is still up to date, that is if
+     * it was built with the same charset from a central directory with the same
+     * checksum.
+     *
+     * @param encodedFile the archive and the charset of its entry names
+     * @param directory   the current central directory of the archive
+     * @return An Optional containing the saved index, or an empty Optional if
+     *         there is none or it is out of date.
+     * @throws IOException          if an I/O error occurs or the saved index is
+     *                              broken
+     * @throws NullPointerException if either argument is null
+     */
+    public static Optional<EntryNameIndex> load(EncodedFile encodedFile, CentralDirectory directory)
+            throws IOException {
+        Objects.requireNonNull(encodedFile, "encodedFile is null");
+        Objects.requireNonNull(directory, "directory is null");
+        File source = indexFile(encodedFile.file());
+        if (!source.isFile()) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(source)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || !in.readUTF().equals(encodedFile.charset().name())) {
+                return Optional.empty();
+            }
+            long checksum = in.readLong();
+            if (checksum != directory.checksum()) {
+                return Optional.empty();
+            }
+            char[] chars = new char[checkLength(in.readInt(), source)];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = in.readChar();
+            }
+            int[] segmentStart = readInts(in, source);
+            int[] segment = readInts(in, source);
+            int[] parent = readInts(in, source);
+            int[] entryNode = readInts(in, source);
+            if (entryNode.length != directory.size()) {
+                return Optional.empty();
+            }
+            check(chars, segmentStart, segment, parent, entryNode, source);
+            return Optional.of(new EntryNameIndex(encodedFile.file(), encodedFile.charset(), checksum, chars,
+                    segmentStart, segment, parent, entryNode));
+        }
+    }
+
+    /**
+     * Follows the segments of a name from the root.
+     *
+     * @param name the name
+     * @param end  the end of the part of the name to follow
+     * @return the node at which the part ends, or -1 if there is none
+     */
+    private int walk(String name, int end) {
+        int node = ROOT;
+        int start = 0;
+        for (int i = 0;; i++) {
+            if (i == end || name.charAt(i) == '/') {
+                node = child(node, name, start, i);
+                if (node < 0 || i == end) {
+                    return node;
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Searches the children of a node for a segment.
+     *
+     * @param node the parent node
+     * @param name the string holding the segment
+     * @param from the start of the segment
+     * @param to   the end of the segment
+     * @return the child, or -1 if there is none
+     */
+    private int child(int node, String name, int from, int to) {
+        int child = lowerBound(node, name, from, to);
+        return child < childStart[node + 1] && compare(segment[child], name, from, to) == 0 ? child : -1;
+    }
+
+    /**
+     * Finds the first child of a node whose segment is not less than a string.
+     *
+     * @param node the parent node
+     * @param name the string holding the segment
+     * @param from the start of the segment
+     * @param to   the end of the segment
+     * @return the child, or the end of the children if there is none
+     */
+    private int lowerBound(int node, String name, int from, int to) {
+        int low = childStart[node];
+        int high = childStart[node + 1];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(segment[middle], name, from, to) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int id, String name, int from, int to) {
+        int start = segmentStart[id];
+        int end = segmentStart[id + 1];
+        int length = Math.min(end - start, to - from);
+        for (int i = 0; i < length; i++) {
+            int difference = chars[start + i] - name.charAt(from + i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (end - start) - (to - from);
+    }
+
+    private boolean startsWith(int id, String name, int from, int to) {
+        int start = segmentStart[id];
+        if (segmentStart[id + 1] - start < to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (chars[start + i - from] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, File source) throws IOException {
+        int[] values = new int[checkLength(in.readInt(), source)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static int checkLength(int length, File source) throws IOException {
+        if (length < 0 || length > source.length()) {
+            throw new IOException("Broken entry name index: " + source);
+        }
+        return length;
+    }
+
+    /**
+     * Checks that the arrays of a saved index form a tree numbered breadth
+     * first, so that a broken file cannot make a lookup loop or fail.
+     */
+    private static void check(char[] chars, int[] segmentStart, int[] segment, int[] parent, int[] entryNode,
+            File source) throws IOException {
+        boolean valid = segmentStart.length > 0 && segmentStart[0] == 0
+                && segmentStart[segmentStart.length - 1] == chars.length
+                && segment.length > 0 && segment.length == parent.length && parent[ROOT] == -1;
+        for (int i = 1; valid && i < segmentStart.length; i++) {
+            valid = segmentStart[i - 1] <= segmentStart[i];
+        }
+        for (int node = 1; valid && node < segment.length; node++) {
+            valid = segment[node] >= 0 && segment[node] < segmentStart.length - 1
+                    && parent[node] >= parent[node - 1] && parent[node] >= 0 && parent[node] < node;
+        }
+        for (int i = 0; valid && i < entryNode.length; i++) {
+            valid = entryNode[i] > ROOT && entryNode[i] < segment.length;
+        }
+        if (!valid) {
+            throw new IOException("Broken entry name index: " + source);
+        }
+    }
+
+    /**
+     * Collects decoded entry names during a validation pass.
+     */
+    static final class Builder {
+
+        private final Map<CharBuffer, Integer> segmentIds = new HashMap<>();
+
+        /**
+         * The child of each parent and segment, keyed by the parent in the high
+         * half and the segment in the low half.
+         */
+        private final Map<Long, Integer> children = new HashMap<>();
+
+        private char[] chars = new char[1024];
+
+        private int charCount;
+
+        private int[] segmentStart = new int[64];
+
+        private int segmentCount;
+
+        private int[] nodeParent = new int[64];
+
+        private int[] nodeSegment = new int[64];
+
+        private int nodeCount = 1;
+
+        private final int[] entryNode;
+
+        /**
+         * Constructs a builder for the given number of entries.
+         *
+         * @param size the number of entries in the central directory
+         */
+        Builder(int size) {
+            this.entryNode = new int[size];
+            nodeParent[ROOT] = -1;
+            nodeSegment[ROOT] = -1;
+        }
+
+        /**
+         * Adds a decoded entry name.
+         *
+         * @param index the index of the entry in the central directory
+         * @param name  the decoded name, which is not kept
+         */
+        void add(int index, CharBuffer name) {
+            int node = ROOT;
+            int start = name.position();
+            for (int i = start;; i++) {
+                if (i == name.limit() || name.get(i) == '/') {
+                    node = child(node, segmentId(name.slice(start, i - start)));
+                    if (i == name.limit()) {
+                        break;
+                    }
+                    start = i + 1;
+                }
+            }
+            entryNode[index] = node;
+        }
+
+        /**
+         * Builds the index. The children of every node are sorted and the nodes
+         * are numbered breadth first.
+         *
+         * @param encodedFile the archive and the charset of its entry names
+         * @param directory   the central directory the names were read from
+         * @return the index
+         */
+        EntryNameIndex build(EncodedFile encodedFile, CentralDirectory directory) {
+            String[] segments = new String[segmentCount];
+            for (int id = 0; id < segmentCount; id++) {
+                segments[id] = new String(chars, segmentStart[id], segmentStart[id + 1] - segmentStart[id]);
+            }
+            Integer[] sorted = new Integer[segmentCount];
+            Arrays.setAll(sorted, id -> id);
+            Arrays.sort(sorted, (a, b) -> segments[a].compareTo(segments[b]));
+            int[] rank = new int[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                rank[sorted[i]] = i;
+            }
+            // Group the children by parent, each group sorted by segment.
+            int[] start = new int[nodeCount + 1];
+            for (int node = 1; node < nodeCount; node++) {
+                start[nodeParent[node] + 1]++;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                start[node + 1] += start[node];
+            }
+            long[] grouped = new long[nodeCount - 1];
+            int[] fill = Arrays.copyOf(start, nodeCount);
+            for (int node = 1; node < nodeCount; node++) {
+                grouped[fill[nodeParent[node]]++] = (long) rank[nodeSegment[node]] << 32 | node;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                Arrays.sort(grouped, start[node], start[node + 1]);
+            }
+            // Renumber breadth first, so that the children of a node stay
+            // consecutive and sorted.
+            int[] order = new int[nodeCount];
+            int[] renumbered = new int[nodeCount];
+            int count = 1;
+            for (int i = 0; i < nodeCount; i++) {
+                int node = order[i];
+                renumbered[node] = i;
+                for (int j = start[node]; j < start[node + 1]; j++) {
+                    order[count++] = (int) grouped[j];
+                }
+            }
+            int[] segment = new int[nodeCount];
+            int[] parent = new int[nodeCount];
+            parent[ROOT] = -1;
+            for (int i = 1; i < nodeCount; i++) {
+                segment[i] = nodeSegment[order[i]];
+                parent[i] = renumbered[nodeParent[order[i]]];
+            }
+            int[] nodes = new int[entryNode.length];
+            for (int index = 0; index < nodes.length; index++) {
+                nodes[index] = renumbered[entryNode[index]];
+            }
+            return new EntryNameIndex(encodedFile.file(), encodedFile.charset(), directory.checksum(),
+                    Arrays.copyOf(chars, charCount), Arrays.copyOf(segmentStart, segmentCount + 1), segment,
+                    parent, nodes);
+        }
+
+        private int segmentId(CharBuffer segment) {
+            Integer id = segmentIds.get(segment);
+            if (id != null) {
+                return id;
+            }
+            int length = segment.remaining();
+            if (charCount + length > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charCount + length));
+            }
+            segment.get(0, chars, charCount, length);
+            if (segmentCount + 2 > segmentStart.length) {
+                segmentStart = Arrays.copyOf(segmentStart, segmentStart.length * 2);
+            }
+            segmentStart[segmentCount] = charCount;
+            charCount += length;
+            segmentStart[segmentCount + 1] = charCount;
+            segmentIds.put(CharBuffer.wrap(new String(chars, charCount - length, length)), segmentCount);
+            return segmentCount++;
+        }
+
+        private int child(int node, int segment) {
+            Long key = (long) node << 32 | segment;
+            Integer child = children.get(key);
+            if (child != null) {
+                return child;
+            }
+            if (nodeCount == nodeParent.length) {
+                nodeParent = Arrays.copyOf(nodeParent, nodeCount * 2);
+                nodeSegment = Arrays.copyOf(nodeSegment, nodeCount * 2);
+            }
+            nodeParent[nodeCount] = node;
+            nodeSegment[nodeCount] = segment;
+            children.put(key, nodeCount);
+            return nodeCount++;
+        }
+    }
+}
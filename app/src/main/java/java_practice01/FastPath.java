@@ -0,0 +1,22 @@
+package java_practice01;
+
+/**
+ * Represents the shortcut which settled the charset of a zip file without
+ * trying the candidate charsets one by one.
+ */
+public enum FastPath {
+    /**
+     * No shortcut applied; the charsets were tried against every entry name.
+     */
+    NONE,
+    /**
+     * Every entry name consists of printable ASCII characters, so the first
+     * candidate charset which is compatible with ASCII is valid.
+     */
+    ASCII,
+    /**
+     * Every entry declares UTF-8 names by general purpose bit 11, so the UTF-8
+     * candidate only had to be checked for well-formed UTF-8.
+     */
+    EFS
+}
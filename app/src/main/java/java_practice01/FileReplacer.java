@@ -0,0 +1,109 @@
+package java_practice01;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces a file by writing its new content to a temporary file next to it
+ * and moving that over the target, so that readers never see a partly written
+ * file. Every writer gets a temporary file of its own, so concurrent writers
+ * of the same target only race on the move, and the last one wins. The move
+ * is atomic where the file system supports it; otherwise the target is
+ * replaced by a plain move, which a crash may interrupt. The temporary file
+ * is deleted when writing or moving fails.
+ */
+final class FileReplacer {
+
+    /**
+     * The suffix of the names of the temporary files.
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Writes the new content of a file.
+     */
+    @FunctionalInterface
+    interface Content {
+        /**
+         * Writes the content to a stream, which is closed afterwards.
+         *
+         * @param stream the stream of the temporary file
+         * @throws IOException if an I/O error occurs
+         */
+        void writeTo(OutputStream stream) throws IOException;
+    }
+
+    /**
+     * Writes the new content of a file through a channel, for writers which
+     * need its position or {@link FileChannel#transferTo}.
+     */
+    @FunctionalInterface
+    interface ChannelContent {
+        /**
+         * Writes the content to a channel, which is closed afterwards.
+         *
+         * @param channel the channel of the temporary file, positioned at its
+         *                start
+         * @throws IOException if an I/O error occurs
+         */
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    private FileReplacer() {
+    }
+
+    /**
+     * Replaces the target with the written content.
+     *
+     * @param target  the file to replace or create
+     * @param content writes the new content
+     * @throws IOException if an I/O error occurs, in which case the target is
+     *                     left as it was
+     */
+    static void replace(File target, Content content) throws IOException {
+        replaceByChannel(target, channel -> {
+            try (OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+                content.writeTo(stream);
+            }
+        });
+    }
+
+    /**
+     * Replaces the target with the content written through a channel.
+     *
+     * @param target  the file to replace or create
+     * @param content writes the new content
+     * @throws IOException if an I/O error occurs, in which case the target is
+     *                     left as it was
+     */
+    static void replaceByChannel(File target, ChannelContent content) throws IOException {
+        Path path = target.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                content.writeTo(channel);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (Throwable e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package java_practice01;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in buckets whose bounds are powers of two nanoseconds. The
+ * bucket of a latency is found by counting its leading zeros, so recording
+ * takes constant time and never allocates.
+ */
+public final class LatencyHistogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    void record(long nanos) {
+        buckets.incrementAndGet(bucketOf(nanos));
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return the number of recorded latencies
+     */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of latencies in a bucket. Bucket {@code i} holds the
+     * latencies from {@code 2^(i-1)} inclusive to {@code 2^i} exclusive
+     * nanoseconds, and bucket 0 holds the latencies of zero nanoseconds.
+     *
+     * @param index the index of the bucket
+     * @return the number of latencies in the bucket
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public long bucket(int index) {
+        return buckets.get(index);
+    }
+
+    /**
+     * Returns an upper bound of the latency below which the given fraction of
+     * the recorded latencies fall.
+     *
+     * @param fraction the fraction, such as 0.99 for the 99th percentile
+     * @return the exclusive upper bound of the bucket holding the percentile in
+     *         nanoseconds, or 0 if nothing has been recorded
+     * @throws IllegalArgumentException if the fraction is not between 0 and 1
+     */
+    public long percentile(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("fraction is not between 0 and 1");
+        }
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return i == Long.SIZE - 1 ? Long.MAX_VALUE : 1L << i;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Clears the recorded latencies.
+     */
+    void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    private static int bucketOf(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(Long.SIZE - Long.numberOfLeadingZeros(nanos), Long.SIZE - 1);
+    }
+}
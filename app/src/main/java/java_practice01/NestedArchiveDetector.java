@@ -0,0 +1,530 @@
+package java_practice01;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Detects the charset of the entry names of nested archives, level by level,
+ * without extracting them. An entry whose name ends with {@code .zip} is opened
+ * as an inner archive. A stored inner archive is read in place as a part of the
+ * archive which holds it, so no byte of it is copied. A deflated inner archive
+ * is inflated into memory if it is not larger than the memory threshold, and
+ * into a temporary file, which is deleted when it has been read, otherwise.
+ *
+ * <p>
+ * Every level is detected as {@link EncodedFileList#detectFirstValidZipFile()}
+ * does for one file, so each level may have its own charset. Inner archives
+ * deeper than the depth limit or larger than the size limit are reported as
+ * {@link NestedDetection.Source#SKIPPED} and not read, which also bounds the
+ * memory held by the levels in progress. So are the inner archives after the
+ * archive limit has been reached, which bounds the work of one detection even
+ * when many central directory records point at the same inner archive. A
+ * broken inner archive is reported without a charset and does not stop the
+ * others.
+ */
+public final class NestedArchiveDetector {
+
+    /**
+     * The compression method of stored entries.
+     */
+    private static final int STORED = 0;
+
+    /**
+     * The compression method of deflated entries.
+     */
+    private static final int DEFLATED = 8;
+
+    /**
+     * The general purpose bit flag which tells that an entry is encrypted.
+     */
+    private static final int FLAG_ENCRYPTED = 0x0001;
+
+    /**
+     * The suffix of the names of the entries which are opened as archives,
+     * compared ignoring ASCII case.
+     */
+    private static final byte[] ARCHIVE_SUFFIX = ".zip".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The separator between the path of an archive and an entry in it.
+     */
+    private static final String SEPARATOR = "!/";
+
+    /**
+     * The size of the buffers used to inflate entries.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final List<Charset> charsets;
+
+    private final int maxDepth;
+
+    private final long maxArchiveSize;
+
+    private final int memoryThreshold;
+
+    private final int maxArchives;
+
+    /**
+     * Constructs a new NestedArchiveDetector object.
+     *
+     * @param charsets        the charsets to try for each level in order of
+     *                        preference
+     * @param maxDepth        the deepest level to read, 0 for the outer file only
+     * @param maxArchiveSize  the largest uncompressed size of an inner archive
+     *                        to read
+     * @param memoryThreshold the largest uncompressed size of a deflated inner
+     *                        archive to inflate into memory
+     * @param maxArchives     the largest number of inner archives to open in
+     *                        one detection, broken ones included
+     * @throws NullPointerException     if charsets is null or contains null
+     * @throws IllegalArgumentException if charsets is empty or a limit is
+     *                                  negative
+     */
+    public NestedArchiveDetector(List<Charset> charsets, int maxDepth, long maxArchiveSize, int memoryThreshold,
+            int maxArchives) {
+        this.charsets = List.copyOf(Objects.requireNonNull(charsets, "charsets is null"));
+        if (this.charsets.isEmpty()) {
+            throw new IllegalArgumentException("charsets is empty");
+        }
+        if (maxDepth < 0 || maxArchiveSize < 0 || memoryThreshold < 0 || maxArchives < 0) {
+            throw new IllegalArgumentException("limit is negative");
+        }
+        this.maxDepth = maxDepth;
+        this.maxArchiveSize = maxArchiveSize;
+        this.memoryThreshold = memoryThreshold;
+        this.maxArchives = maxArchives;
+    }
+
+    /**
+     * Detects the charset of every level of a zip file. The outer file comes
+     * first, and each archive is followed by the archives nested in it in the
+     * order of the central directory.
+     *
+     * @param file the zip file to read
+     * @return the detection of each level
+     * @throws IOException          if an I/O error occurs or the outer file is not
+     *                              a valid zip file
+     * @throws NullPointerException if the file is null
+     */
+    public List<NestedDetection> detect(File file) throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        Walk walk = new Walk();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Bytes bytes = new ChannelBytes(channel, 0, channel.size(), false);
+            visit(file.getPath(), 0, NestedDetection.Source.FILE, bytes, bytes.directory(file), walk);
+        }
+        return walk.report;
+    }
+
+    /**
+     * Detects the charset of an archive and then visits the archives nested in
+     * it.
+     *
+     * @param path      the path of the archive
+     * @param depth     the nesting depth of the archive
+     * @param source    how the archive is read
+     * @param bytes     the bytes of the archive
+     * @param directory the central directory of the archive
+     * @param walk      the state of the detection
+     * @throws IOException if a temporary file cannot be deleted
+     */
+    private void visit(String path, int depth, NestedDetection.Source source, Bytes bytes,
+            CentralDirectory directory, Walk walk) throws IOException {
+        File file = new File(path);
+        List<EncodedFile> group = new ArrayList<>(charsets.size());
+        for (Charset charset : charsets) {
+            group.add(new EncodedFile(file, charset));
+        }
+        Optional<Detection> detection = EncodedFileList.detect(group, directory);
+        Charset charset = detection.map(found -> found.encodedFile().charset()).orElse(null);
+        walk.report.add(new NestedDetection(path, depth, source, charset,
+                detection.map(Detection::fastPath).orElse(null), directory.size()));
+        for (int i = 0; i < directory.size(); i++) {
+            if (isArchive(directory.name(i))) {
+                nested(path + SEPARATOR + entryName(directory, i, charset), depth + 1, bytes, directory, i,
+                        walk);
+            }
+        }
+    }
+
+    /**
+     * Opens an entry as an inner archive and visits it.
+     *
+     * @param path      the path of the inner archive
+     * @param depth     the nesting depth of the inner archive
+     * @param outer     the bytes of the archive which holds the entry
+     * @param directory the central directory of the archive which holds the
+     *                  entry
+     * @param index     the index of the entry
+     * @param walk      the state of the detection
+     * @throws IOException if a temporary file cannot be deleted
+     */
+    private void nested(String path, int depth, Bytes outer, CentralDirectory directory, int index, Walk walk)
+            throws IOException {
+        long size = directory.size(index);
+        if (depth > maxDepth || size > maxArchiveSize || walk.archives >= maxArchives) {
+            walk.report.add(new NestedDetection(path, depth, NestedDetection.Source.SKIPPED, null, null, -1));
+            return;
+        }
+        walk.archives++;
+        NestedDetection.Source source = directory.method(index) == STORED ? NestedDetection.Source.SLICE
+                : size <= memoryThreshold ? NestedDetection.Source.MEMORY : NestedDetection.Source.SPILLED;
+        Bytes inner = null;
+        CentralDirectory innerDirectory;
+        try {
+            inner = open(outer, directory, index, source);
+            innerDirectory = inner.directory(new File(path));
+        } catch (IOException | RuntimeException e) {
+            // Corrupt offsets may fail as unchecked exceptions too, and they
+            // break only this level.
+            if (inner != null) {
+                inner.close();
+            }
+            walk.report.add(new NestedDetection(path, depth, source, null, null, -1));
+            return;
+        }
+        try (Bytes bytes = inner) {
+            visit(path, depth, source, bytes, innerDirectory, walk);
+        }
+    }
+
+    /**
+     * Opens the bytes of an entry.
+     *
+     * @param outer     the bytes of the archive which holds the entry
+     * @param directory the central directory of the archive which holds the
+     *                  entry
+     * @param index     the index of the entry
+     * @param source    how the entry is to be read
+     * @return the bytes of the entry, which must be closed
+     * @throws IOException if an I/O error occurs or the entry is broken
+     */
+    private Bytes open(Bytes outer, CentralDirectory directory, int index, NestedDetection.Source source)
+            throws IOException {
+        if ((directory.flags(index) & FLAG_ENCRYPTED) != 0) {
+            throw new ZipException("Entry #" + index + " is encrypted");
+        }
+        int method = directory.method(index);
+        if (method != STORED && method != DEFLATED) {
+            throw new ZipException("Entry #" + index + " has an unsupported compression method " + method);
+        }
+        long data = dataPosition(outer, directory, index);
+        long compressedSize = directory.compressedSize(index);
+        if (compressedSize > outer.length() - data) {
+            throw new ZipException("Entry #" + index + " runs past the end of the archive");
+        }
+        long size = directory.size(index);
+        if (source == NestedDetection.Source.SLICE) {
+            if (compressedSize != size) {
+                throw new ZipException("Invalid size of stored entry #" + index);
+            }
+            return outer.slice(data, size);
+        }
+        if (source == NestedDetection.Source.MEMORY) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            inflate(outer, data, directory, index, buffer::put);
+            return new HeapBytes(buffer.flip());
+        }
+        Path temp = Files.createTempFile("nested", ".zip");
+        FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+        try {
+            inflate(outer, data, directory, index, buffer -> {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            });
+            return new ChannelBytes(channel, 0, size, true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the local file header of an entry to find its data.
+     *
+     * @param in        the bytes of the archive
+     * @param directory the central directory of the archive
+     * @param index     the index of the entry
+     * @return the position of the entry data
+     * @throws IOException if an I/O error occurs or the header is broken
+     */
+    private static long dataPosition(Bytes in, CentralDirectory directory, int index) throws IOException {
+        long position = directory.localHeaderOffset(index);
+        ByteBuffer header = ByteBuffer.allocate(ZipRecords.LOC_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(in, header, position);
+        if (header.getInt(0) != ZipRecords.LOC_SIGNATURE) {
+            throw new ZipException("Invalid local file header of entry #" + index);
+        }
+        return position + ZipRecords.LOC_HEADER_SIZE + Short.toUnsignedInt(header.getShort(26))
+                + Short.toUnsignedInt(header.getShort(28));
+    }
+
+    private static void readFully(Bytes in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = in.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of archive");
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * Inflates a deflated entry and checks its size and CRC-32. No more than the
+     * size declared by the central directory is ever written.
+     *
+     * @param in        the bytes of the archive
+     * @param data      the position of the entry data
+     * @param directory the central directory of the archive
+     * @param index     the index of the entry
+     * @param out       receives the inflated data
+     * @throws IOException if an I/O error occurs or the data is broken
+     */
+    private static void inflate(Bytes in, long data, CentralDirectory directory, int index, Sink out)
+            throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] input = new byte[BUFFER_SIZE];
+            byte[] output = new byte[BUFFER_SIZE];
+            CRC32 crc = new CRC32();
+            long size = directory.size(index);
+            long remaining = directory.compressedSize(index);
+            long position = data;
+            long written = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (remaining == 0) {
+                        throw new EOFException("Unexpected end of deflated data of entry #" + index);
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(input, 0, (int) Math.min(input.length, remaining));
+                    int n = in.read(buffer, position);
+                    if (n < 0) {
+                        throw new EOFException("Unexpected end of archive");
+                    }
+                    inflater.setInput(input, 0, n);
+                    position += n;
+                    remaining -= n;
+                }
+                int n;
+                try {
+                    n = inflater.inflate(output);
+                } catch (DataFormatException e) {
+                    throw new ZipException("Invalid deflated data of entry #" + index + ": " + e.getMessage());
+                }
+                if (n == 0 && inflater.needsDictionary()) {
+                    throw new ZipException("Deflated data of entry #" + index + " needs a dictionary");
+                }
+                if (n > size - written) {
+                    throw new ZipException("Deflated data of entry #" + index + " is larger than its size");
+                }
+                crc.update(output, 0, n);
+                out.write(ByteBuffer.wrap(output, 0, n));
+                written += n;
+            }
+            if (written != size || crc.getValue() != directory.crc(index)) {
+                throw new ZipException("Invalid size or CRC-32 of entry #" + index);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Tells whether an entry name ends with the archive suffix.
+     *
+     * @param name the raw entry name
+     * @return true if the entry is opened as an archive
+     */
+    private static boolean isArchive(ByteBuffer name) {
+        int offset = name.limit() - ARCHIVE_SUFFIX.length;
+        if (offset < name.position()) {
+            return false;
+        }
+        for (int i = 0; i < ARCHIVE_SUFFIX.length; i++) {
+            byte b = name.get(offset + i);
+            if (b != ARCHIVE_SUFFIX[i] && b != Character.toUpperCase(ARCHIVE_SUFFIX[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the name of an entry for the path of an inner archive. Characters
+     * which cannot be decoded are replaced, so that an archive without a
+     * detected charset still has a path.
+     *
+     * @param directory the central directory of the archive
+     * @param index     the index of the entry
+     * @param charset   the detected charset of the archive, or null
+     * @return the entry name
+     */
+    private String entryName(CentralDirectory directory, int index, Charset charset) {
+        boolean utf8 = (directory.flags(index) & CentralDirectory.FLAG_UTF8) != 0;
+        Charset decoder = utf8 ? StandardCharsets.UTF_8 : charset != null ? charset : charsets.get(0);
+        return decoder.decode(directory.name(index)).toString();
+    }
+
+    /**
+     * The state of one detection.
+     */
+    private static final class Walk {
+
+        /**
+         * The detections so far.
+         */
+        final List<NestedDetection> report = new ArrayList<>();
+
+        /**
+         * The number of inner archives opened so far.
+         */
+        int archives;
+    }
+
+    /**
+     * Receives inflated data.
+     */
+    @FunctionalInterface
+    private interface Sink {
+        /**
+         * Consumes the remaining bytes of a buffer.
+         *
+         * @param buffer the inflated data
+         * @throws IOException if an I/O error occurs
+         */
+        void write(ByteBuffer buffer) throws IOException;
+    }
+
+    /**
+     * The bytes of one level of archives, read by position.
+     */
+    private interface Bytes extends Closeable {
+        /**
+         * Returns the number of bytes.
+         *
+         * @return the length
+         */
+        long length();
+
+        /**
+         * Reads bytes at a position without changing any shared state.
+         *
+         * @param dst      the buffer to read into
+         * @param position the position to read from
+         * @return the number of bytes read, or -1 at the end
+         * @throws IOException if an I/O error occurs
+         */
+        int read(ByteBuffer dst, long position) throws IOException;
+
+        /**
+         * Returns a part of these bytes, which is valid while these bytes are
+         * open and does not need to be closed itself.
+         *
+         * @param offset the position of the part
+         * @param length the length of the part
+         * @return the part
+         */
+        Bytes slice(long offset, long length);
+
+        /**
+         * Reads the central directory of the archive made of these bytes.
+         *
+         * @param file the file reported by the directory
+         * @return the central directory
+         * @throws IOException if an I/O error occurs or the archive is not valid
+         */
+        CentralDirectory directory(File file) throws IOException;
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * A part of a file channel.
+     */
+    private record ChannelBytes(FileChannel channel, long offset, long length, boolean owned) implements Bytes {
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            if (position >= length) {
+                return -1;
+            }
+            ByteBuffer part = dst.slice(dst.position(), (int) Math.min(dst.remaining(), length - position));
+            int n = channel.read(part, offset + position);
+            if (n > 0) {
+                dst.position(dst.position() + n);
+            }
+            return n;
+        }
+
+        @Override
+        public Bytes slice(long offset, long length) {
+            return new ChannelBytes(channel, this.offset + offset, length, false);
+        }
+
+        @Override
+        public CentralDirectory directory(File file) throws IOException {
+            return CentralDirectory.read(file, channel, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (owned) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Bytes held in memory.
+     */
+    private record HeapBytes(ByteBuffer buffer) implements Bytes {
+
+        @Override
+        public long length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) {
+            if (position >= buffer.limit()) {
+                return -1;
+            }
+            int n = (int) Math.min(dst.remaining(), buffer.limit() - position);
+            dst.put(buffer.slice((int) position, n));
+            return n;
+        }
+
+        @Override
+        public Bytes slice(long offset, long length) {
+            return new HeapBytes(buffer.slice((int) offset, (int) length));
+        }
+
+        @Override
+        public CentralDirectory directory(File file) throws IOException {
+            return CentralDirectory.read(file, buffer);
+        }
+    }
+}
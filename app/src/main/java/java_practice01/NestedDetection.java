@@ -0,0 +1,82 @@
+package java_practice01;
+
+import java.nio.charset.Charset;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Represents the charset detected for one level of nested archives.
+ *
+ * @param path     the path of the archive, the outer file followed by the
+ *                 names of the entries it is nested in, separated by
+ *                 {@code !/}
+ * @param depth    the nesting depth, 0 for the outer file
+ * @param source   how the bytes of the archive were read
+ * @param charset  the first candidate charset which decodes every entry name,
+ *                 or null if none does or the archive was not read
+ * @param fastPath the shortcut which found the charset, or null if there is no
+ *                 charset
+ * @param entries  the number of entries, or -1 if the archive was not read or
+ *                 is broken
+ */
+public record NestedDetection(String path, int depth, Source source, Charset charset, FastPath fastPath,
+        int entries) {
+
+    /**
+     * How the bytes of an archive are read.
+     */
+    public enum Source {
+        /**
+         * The outer file itself.
+         */
+        FILE,
+        /**
+         * A stored entry, read in place as a part of the file which holds it.
+         */
+        SLICE,
+        /**
+         * A compressed entry inflated into memory.
+         */
+        MEMORY,
+        /**
+         * A compressed entry too large for memory, inflated into a temporary
+         * file.
+         */
+        SPILLED,
+        /**
+         * An entry which exceeds the depth, size or archive limit and was not
+         * read.
+         */
+        SKIPPED
+    }
+
+    /**
+     * Constructs a new NestedDetection object.
+     *
+     * @param path     the path of the archive
+     * @param depth    the nesting depth
+     * @param source   how the bytes of the archive were read
+     * @param charset  the detected charset, or null
+     * @param fastPath the shortcut which found the charset, or null
+     * @param entries  the number of entries, or -1
+     * @throws NullPointerException     if path or source is null
+     * @throws IllegalArgumentException if depth is negative
+     */
+    public NestedDetection {
+        Objects.requireNonNull(path, "path is null");
+        Objects.requireNonNull(source, "source is null");
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth is negative");
+        }
+    }
+
+    /**
+     * Returns the detected charset.
+     *
+     * @return An Optional containing the detected charset, or an empty Optional
+     *         if no candidate charset decodes the entry names.
+     */
+    public Optional<Charset> detected() {
+        return Optional.ofNullable(charset);
+    }
+}
@@ -0,0 +1,516 @@
+package java_practice01;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a zip file whose entries are deflated concurrently. The data of each
+ * entry is cut into blocks of {@link #BLOCK_SIZE} bytes which are deflated
+ * independently by the executor, each primed with the last 32 KiB of the block
+ * before it as its dictionary, as pigz does. Every block but the last ends with
+ * a sync flush, so the blocks join byte-aligned into one deflate stream, which
+ * is then ended by an empty final block; the dictionary keeps the compression
+ * ratio close to that of a single deflater.
+ *
+ * <p>
+ * The calling thread reads the data, computes the CRC-32 and writes the
+ * compressed blocks in order as they complete. The memory held by blocks which
+ * are being deflated or wait to be written is bounded by the memory budget,
+ * although one block is always allowed. The records are laid out as
+ * {@link java.util.zip.ZipOutputStream} lays out deflated entries: a local
+ * header without sizes, the data, a data descriptor, and the central directory
+ * with Zip64 records where needed. Entry names are encoded by the charset of
+ * the writer, and declared UTF-8 when it is UTF-8.
+ *
+ * <p>
+ * The writer is not thread-safe. If writing an entry fails the archive is
+ * incomplete and the writer can only be closed.
+ */
+public final class ParallelZipWriter implements Closeable {
+
+    /**
+     * The number of uncompressed bytes deflated by one task.
+     */
+    static final int BLOCK_SIZE = 128 * 1024;
+
+    /**
+     * The size of the deflate window, which is the most a dictionary can use.
+     */
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    /**
+     * An empty deflate block with fixed Huffman codes which is the final block
+     * of the stream.
+     */
+    private static final byte[] FINAL_BLOCK = { 0x03, 0x00 };
+
+    /**
+     * The compression method of deflated entries.
+     */
+    private static final int DEFLATED = 8;
+
+    /**
+     * The version needed to extract a deflated entry.
+     */
+    private static final int DEFLATE_VERSION = 20;
+
+    /**
+     * The size of a data descriptor with 32-bit sizes.
+     */
+    private static final int EXT_SIZE = 16;
+
+    /**
+     * The size of a data descriptor with 64-bit sizes.
+     */
+    private static final int ZIP64_EXT_SIZE = 24;
+
+    /**
+     * An entry being written or written.
+     */
+    private static final class Entry {
+
+        final byte[] name;
+
+        final int flags;
+
+        final long dosTime;
+
+        long crc;
+
+        long size;
+
+        long compressedSize;
+
+        long offset;
+
+        Entry(byte[] name, int flags, long dosTime) {
+            this.name = name;
+            this.flags = flags;
+            this.dosTime = dosTime;
+        }
+
+        boolean isZip64() {
+            return size >= ZipRecords.ZIP64_MAGIC_INT || compressedSize >= ZipRecords.ZIP64_MAGIC_INT
+                    || offset >= ZipRecords.ZIP64_MAGIC_INT;
+        }
+    }
+
+    /**
+     * What the calling thread writes next.
+     *
+     * @param entry the entry the record belongs to
+     * @param kind  the kind of the record
+     * @param block the compressed block, or null for a header or descriptor
+     * @param cost  the memory held until the record is written
+     */
+    private record Pending(Entry entry, Kind kind, CompletableFuture<byte[]> block, long cost) {
+    }
+
+    private enum Kind {
+        HEADER, BLOCK, DESCRIPTOR
+    }
+
+    private final FileChannel channel;
+
+    private final Charset charset;
+
+    private final Executor executor;
+
+    /**
+     * The executor closed with the writer, or null if it belongs to the caller.
+     */
+    private final ExecutorService ownedExecutor;
+
+    private final long memoryBudget;
+
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private final Set<String> names = new HashSet<>();
+
+    private final ByteBuffer out = ZipRecords.newBuffer();
+
+    /**
+     * The memory held by the pending records.
+     */
+    private long inFlight;
+
+    /**
+     * The position in the file after the records written so far.
+     */
+    private long position;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    /**
+     * Creates a writer which replaces the given file.
+     *
+     * @param file         the zip file to write
+     * @param charset      the charset of the entry names
+     * @param executor      the executor which deflates the blocks
+     * @param ownedExecutor the executor to close with the writer, or null
+     * @param memoryBudget  the most memory held by blocks in flight
+     * @throws IOException              if the file cannot be created
+     * @throws IllegalArgumentException if memoryBudget is not positive
+     */
+    ParallelZipWriter(File file, Charset charset, Executor executor, ExecutorService ownedExecutor,
+            long memoryBudget) throws IOException {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget is not positive");
+        }
+        this.charset = charset;
+        this.executor = executor;
+        this.ownedExecutor = ownedExecutor;
+        this.memoryBudget = memoryBudget;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes an entry with the given data.
+     *
+     * @param name the entry name
+     * @param data the uncompressed data
+     * @throws ZipException          if the name is a duplicate, cannot be encoded
+     *                               by the charset or is too long
+     * @throws IOException           if an I/O error occurs
+     * @throws NullPointerException  if either argument is null
+     * @throws IllegalStateException if the writer is closed or has failed
+     */
+    public void putEntry(String name, byte[] data) throws IOException {
+        Objects.requireNonNull(data, "data is null");
+        putEntry(name, new ByteArrayInputStream(data));
+    }
+
+    /**
+     * Writes an entry with the data read from a stream until its end. The stream
+     * is not closed. The last modification time of the entry is the current
+     * time.
+     *
+     * @param name the entry name
+     * @param data the uncompressed data
+     * @throws ZipException          if the name is a duplicate, cannot be encoded
+     *                               by the charset or is too long
+     * @throws IOException           if an I/O error occurs
+     * @throws NullPointerException  if either argument is null
+     * @throws IllegalStateException if the writer is closed or has failed
+     */
+    public void putEntry(String name, InputStream data) throws IOException {
+        Objects.requireNonNull(name, "name is null");
+        Objects.requireNonNull(data, "data is null");
+        checkUsable();
+        byte[] encodedName = encode(name);
+        if (!names.add(name)) {
+            throw new ZipException("duplicate entry: " + name);
+        }
+        boolean utf8 = charset.equals(StandardCharsets.UTF_8);
+        Entry entry = new Entry(encodedName,
+                ZipRecords.FLAG_DATA_DESCRIPTOR | (utf8 ? ZipRecords.FLAG_UTF8 : 0),
+                dosTime(LocalDateTime.now()));
+        entries.add(entry);
+        failed = true;
+        enqueue(new Pending(entry, Kind.HEADER, null, 0));
+        CRC32 crc = new CRC32();
+        byte[] previous = null;
+        int previousLength = 0;
+        for (;;) {
+            byte[] buffer = new byte[BLOCK_SIZE];
+            int length = data.readNBytes(buffer, 0, BLOCK_SIZE);
+            if (length == 0) {
+                break;
+            }
+            // A short block is trimmed so that the memory it holds is what it
+            // is charged, however many small entries are in flight.
+            byte[] block = length < BLOCK_SIZE ? Arrays.copyOf(buffer, length) : buffer;
+            crc.update(block, 0, length);
+            entry.size += length;
+            byte[] dictionary = previous == null ? null
+                    : Arrays.copyOfRange(previous, Math.max(0, previousLength - DICTIONARY_SIZE),
+                            previousLength);
+            // The block and its compressed form, which is about as long.
+            long cost = 2L * block.length + (dictionary == null ? 0 : dictionary.length);
+            makeRoom(cost);
+            CompletableFuture<byte[]> compressed = CompletableFuture
+                    .supplyAsync(() -> deflate(block, length, dictionary), executor);
+            enqueue(new Pending(entry, Kind.BLOCK, compressed, cost));
+            previous = block;
+            previousLength = length;
+            if (length < BLOCK_SIZE) {
+                break;
+            }
+        }
+        entry.crc = crc.getValue();
+        enqueue(new Pending(entry, Kind.DESCRIPTOR, null, 0));
+        writeCompleted();
+        failed = false;
+    }
+
+    /**
+     * Writes the remaining entries and the central directory, and closes the
+     * file. If the writer has failed, the file is only closed.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (channel; ownedExecutor) {
+            if (failed) {
+                return;
+            }
+            while (!pending.isEmpty()) {
+                writeHead();
+            }
+            long cenOffset = position;
+            for (Entry entry : entries) {
+                writeCentralHeader(entry);
+            }
+            ZipRecords.flush(out, channel);
+            long cenSize = channel.position() - cenOffset;
+            ZipRecords.writeEnd(out, channel, channel.position(), entries.size(), cenSize, cenOffset,
+                    ByteBuffer.allocate(0));
+        }
+    }
+
+    private void checkUsable() {
+        if (closed) {
+            throw new IllegalStateException("writer is closed");
+        }
+        if (failed) {
+            throw new IllegalStateException("writer has failed");
+        }
+    }
+
+    /**
+     * Encodes an entry name strictly, so that a name is never replaced by
+     * question marks.
+     *
+     * @param name the entry name
+     * @return the encoded name
+     * @throws ZipException if the name cannot be encoded or is too long
+     */
+    private byte[] encode(String name) throws ZipException {
+        ByteBuffer encoded;
+        try {
+            encoded = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .encode(CharBuffer.wrap(name));
+        } catch (CharacterCodingException e) {
+            throw new ZipException("Entry name cannot be encoded by " + charset + " charset: " + name);
+        }
+        if (encoded.remaining() > 0xFFFF) {
+            throw new ZipException("Entry name is too long: " + name);
+        }
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes the pending records until the given memory fits in the budget. One
+     * block is always allowed, whatever the budget.
+     */
+    private void makeRoom(long cost) throws IOException {
+        while (!pending.isEmpty() && inFlight + cost > memoryBudget) {
+            writeHead();
+        }
+    }
+
+    private void enqueue(Pending record) {
+        pending.add(record);
+        inFlight += record.cost();
+    }
+
+    /**
+     * Writes the pending records which are ready, without waiting.
+     */
+    private void writeCompleted() throws IOException {
+        while (!pending.isEmpty() && (pending.peek().block() == null || pending.peek().block().isDone())) {
+            writeHead();
+        }
+    }
+
+    /**
+     * Writes the first pending record, waiting for its block if needed.
+     */
+    private void writeHead() throws IOException {
+        Pending record = pending.poll();
+        inFlight -= record.cost();
+        Entry entry = record.entry();
+        ZipRecords.ensureRemaining(out, channel, ZipRecords.LOC_HEADER_SIZE + entry.name.length);
+        switch (record.kind()) {
+            case HEADER -> {
+                entry.offset = position;
+                out.putInt(ZipRecords.LOC_SIGNATURE);
+                out.putShort((short) DEFLATE_VERSION);
+                out.putShort((short) entry.flags);
+                out.putShort((short) DEFLATED);
+                out.putInt((int) entry.dosTime);
+                out.putInt(0);
+                out.putInt(0);
+                out.putInt(0);
+                out.putShort((short) entry.name.length);
+                out.putShort((short) 0);
+                out.put(entry.name);
+                position += ZipRecords.LOC_HEADER_SIZE + entry.name.length;
+            }
+            case BLOCK -> {
+                byte[] block = join(record.block());
+                ZipRecords.flush(out, channel);
+                write(ByteBuffer.wrap(block));
+                entry.compressedSize += block.length;
+            }
+            case DESCRIPTOR -> {
+                out.put(FINAL_BLOCK);
+                entry.compressedSize += FINAL_BLOCK.length;
+                out.putInt(ZipRecords.EXT_SIGNATURE);
+                out.putInt((int) entry.crc);
+                if (entry.size >= ZipRecords.ZIP64_MAGIC_INT || entry.compressedSize >= ZipRecords.ZIP64_MAGIC_INT) {
+                    out.putLong(entry.compressedSize);
+                    out.putLong(entry.size);
+                    position += ZIP64_EXT_SIZE;
+                } else {
+                    out.putInt((int) entry.compressedSize);
+                    out.putInt((int) entry.size);
+                    position += EXT_SIZE;
+                }
+                position += FINAL_BLOCK.length;
+            }
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Writes the central directory file header of an entry, with a Zip64 extra
+     * field holding the values which do not fit.
+     */
+    private void writeCentralHeader(Entry entry) throws IOException {
+        boolean zip64Size = entry.size >= ZipRecords.ZIP64_MAGIC_INT;
+        boolean zip64CompressedSize = entry.compressedSize >= ZipRecords.ZIP64_MAGIC_INT;
+        boolean zip64Offset = entry.offset >= ZipRecords.ZIP64_MAGIC_INT;
+        int extraSize = (zip64Size ? 8 : 0) + (zip64CompressedSize ? 8 : 0) + (zip64Offset ? 8 : 0);
+        int extraLength = extraSize > 0 ? 4 + extraSize : 0;
+        int version = entry.isZip64() ? ZipRecords.ZIP64_VERSION : DEFLATE_VERSION;
+        ZipRecords.ensureRemaining(out, channel, ZipRecords.CEN_HEADER_SIZE + entry.name.length + extraLength);
+        out.putInt(ZipRecords.CEN_SIGNATURE);
+        out.putShort((short) version);
+        out.putShort((short) version);
+        out.putShort((short) entry.flags);
+        out.putShort((short) DEFLATED);
+        out.putInt((int) entry.dosTime);
+        out.putInt((int) entry.crc);
+        out.putInt((int) Math.min(entry.compressedSize, ZipRecords.ZIP64_MAGIC_INT));
+        out.putInt((int) Math.min(entry.size, ZipRecords.ZIP64_MAGIC_INT));
+        out.putShort((short) entry.name.length);
+        out.putShort((short) extraLength);
+        out.putShort((short) 0);
+        out.putShort((short) 0);
+        out.putShort((short) 0);
+        out.putInt(0);
+        out.putInt((int) Math.min(entry.offset, ZipRecords.ZIP64_MAGIC_INT));
+        out.put(entry.name);
+        if (extraSize > 0) {
+            out.putShort((short) ZipRecords.ZIP64_EXTRA_ID);
+            out.putShort((short) extraSize);
+            if (zip64Size) {
+                out.putLong(entry.size);
+            }
+            if (zip64CompressedSize) {
+                out.putLong(entry.compressedSize);
+            }
+            if (zip64Offset) {
+                out.putLong(entry.offset);
+            }
+        }
+    }
+
+    /**
+     * Deflates one block into a raw deflate stream which is not final and ends
+     * byte-aligned, so that the next block can follow it directly.
+     *
+     * @param input      the block
+     * @param length     the length of the block
+     * @param dictionary the end of the block before it, or null for the first
+     *                   block of an entry
+     * @return the compressed block
+     */
+    private static byte[] deflate(byte[] input, int length, byte[] dictionary) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input, 0, length);
+            byte[] output = new byte[length + (length >> 8) + 64];
+            int written = 0;
+            for (;;) {
+                written += deflater.deflate(output, written, output.length - written, Deflater.SYNC_FLUSH);
+                if (written < output.length) {
+                    return Arrays.copyOf(output, written);
+                }
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IOException("Failed to deflate a block", e.getCause());
+        }
+    }
+
+    /**
+     * Converts a local date and time to the MS-DOS date and time, as
+     * {@link java.util.zip.ZipEntry} does, clamping dates before 1980.
+     */
+    private static long dosTime(LocalDateTime time) {
+        if (time.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (time.getYear() - 1980) << 25 | (long) time.getMonthValue() << 21
+                | (long) time.getDayOfMonth() << 16 | (long) time.getHour() << 11
+                | (long) time.getMinute() << 5 | time.getSecond() >> 1) & 0xFFFFFFFFL;
+    }
+}
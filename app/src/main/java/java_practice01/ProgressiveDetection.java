@@ -0,0 +1,48 @@
+package java_practice01;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Represents the result of detecting the charset of a zip file progressively.
+ *
+ * @param survivors the candidate charsets which were not rejected, in candidate
+ *                  order
+ * @param entries   the number of entries of the zip file
+ * @param sampled   the number of entries in the sample
+ * @param checked   the number of entry names validated, counting every
+ *                  candidate
+ * @param complete  true if the first survivor was validated against every entry
+ *                  name, or no candidate survived, so that the result is the
+ *                  same as a full detection; false if the budget ran out first
+ */
+public record ProgressiveDetection(List<Charset> survivors, int entries, int sampled, long checked,
+        boolean complete) {
+
+    /**
+     * Constructs a new ProgressiveDetection object.
+     *
+     * @param survivors the candidate charsets which were not rejected
+     * @param entries   the number of entries of the zip file
+     * @param sampled   the number of entries in the sample
+     * @param checked   the number of entry names validated
+     * @param complete  true if the result is the same as a full detection
+     * @throws NullPointerException if survivors is null
+     */
+    public ProgressiveDetection {
+        survivors = List.copyOf(Objects.requireNonNull(survivors, "survivors is null"));
+    }
+
+    /**
+     * Returns the first surviving candidate charset, which is the detected
+     * charset if the detection is complete and the best guess otherwise.
+     *
+     * @return An Optional containing the detected charset, or an empty Optional
+     *         if no candidate charset survived.
+     */
+    public Optional<Charset> charset() {
+        return survivors.stream().findFirst();
+    }
+}
@@ -0,0 +1,223 @@
+package java_practice01;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects the charset of the entry names of a zip file within a budget of time
+ * and entry names. A wrong charset is usually rejected by a few names anywhere
+ * in the central directory, but a full validation in directory order only
+ * finds them when it gets there. So every candidate is first validated against
+ * a stratified sample, one entry from each of equal runs of the central
+ * directory, entry by entry so that the wrong candidates drop out early. Then
+ * the surviving candidates are validated against the other entries in
+ * candidate order until one accepts them all.
+ *
+ * <p>
+ * When the budget runs out the detection stops and returns the candidates
+ * which have not been rejected so far, marked as incomplete, so that a caller
+ * with a latency limit gets a best-effort answer instead of none. A complete
+ * detection gives the same charset as
+ * {@link EncodedFileList#findFirstValidZipFile()} does for the same
+ * candidates.
+ */
+public final class ProgressiveDetector {
+
+    /**
+     * The number of entry names validated between two readings of the clock.
+     */
+    private static final int CLOCK_INTERVAL = 64;
+
+    private final List<Charset> candidates;
+
+    private final int sampleSize;
+
+    private final long timeBudgetNanos;
+
+    private final long entryBudget;
+
+    private final LongSupplier clock;
+
+    /**
+     * Constructs a new ProgressiveDetector object.
+     *
+     * @param candidates  the candidate charsets in order of preference
+     * @param sampleSize  the number of entries validated by every candidate
+     *                    first, or 0 to validate the candidates one by one
+     * @param timeBudget  the time a detection may take, including reading the
+     *                    central directory
+     * @param entryBudget the number of entry names a detection may validate,
+     *                    counting every candidate
+     * @throws NullPointerException     if candidates is null or contains null, or
+     *                                  timeBudget is null
+     * @throws IllegalArgumentException if candidates is empty, or sampleSize,
+     *                                  timeBudget or entryBudget is negative
+     */
+    public ProgressiveDetector(List<Charset> candidates, int sampleSize, Duration timeBudget, long entryBudget) {
+        this(candidates, sampleSize, timeBudget, entryBudget, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new ProgressiveDetector object which reads the time from the
+     * given clock.
+     *
+     * @param candidates  the candidate charsets in order of preference
+     * @param sampleSize  the number of entries validated by every candidate first
+     * @param timeBudget  the time a detection may take
+     * @param entryBudget the number of entry names a detection may validate
+     * @param clock       the clock in nanoseconds
+     */
+    ProgressiveDetector(List<Charset> candidates, int sampleSize, Duration timeBudget, long entryBudget,
+            LongSupplier clock) {
+        this.candidates = List.copyOf(Objects.requireNonNull(candidates, "candidates is null"));
+        Objects.requireNonNull(timeBudget, "timeBudget is null");
+        if (this.candidates.isEmpty()) {
+            throw new IllegalArgumentException("candidates is empty");
+        }
+        if (sampleSize < 0) {
+            throw new IllegalArgumentException("sampleSize is negative");
+        }
+        if (timeBudget.isNegative()) {
+            throw new IllegalArgumentException("timeBudget is negative");
+        }
+        if (entryBudget < 0) {
+            throw new IllegalArgumentException("entryBudget is negative");
+        }
+        this.sampleSize = sampleSize;
+        this.timeBudgetNanos = timeBudget.compareTo(Duration.ofNanos(Long.MAX_VALUE)) < 0 ? timeBudget.toNanos()
+                : Long.MAX_VALUE;
+        this.entryBudget = entryBudget;
+        this.clock = clock;
+    }
+
+    /**
+     * Detects the charset of the entry names of a zip file. The time spent
+     * reading the central directory counts against the time budget.
+     *
+     * @param file the zip file
+     * @return the detection result
+     * @throws IOException          if the central directory cannot be read
+     * @throws NullPointerException if the file is null
+     */
+    public ProgressiveDetection detect(File file) throws IOException {
+        Objects.requireNonNull(file, "file is null");
+        long start = clock.getAsLong();
+        return detect(CentralDirectory.read(file), start);
+    }
+
+    /**
+     * Detects the charset of the entry names of a central directory which has
+     * already been read.
+     *
+     * @param directory the central directory
+     * @return the detection result
+     * @throws NullPointerException if the directory is null
+     */
+    public ProgressiveDetection detect(CentralDirectory directory) {
+        Objects.requireNonNull(directory, "directory is null");
+        return detect(directory, clock.getAsLong());
+    }
+
+    private ProgressiveDetection detect(CentralDirectory directory, long start) {
+        Budget budget = new Budget(start);
+        int entries = directory.size();
+        int[] sample = sample(entries, sampleSize);
+        List<Charset> survivors = new ArrayList<>(candidates);
+        // Every survivor has accepted the first sampled entries.
+        int sampled = 0;
+        while (sampled < sample.length && survivors.size() > 1) {
+            int index = sample[sampled];
+            boolean utf8 = (directory.flags(index) & CentralDirectory.FLAG_UTF8) != 0;
+            for (Iterator<Charset> it = survivors.iterator(); it.hasNext();) {
+                if (!budget.spend()) {
+                    return new ProgressiveDetection(survivors, entries, sampled, budget.checked, false);
+                }
+                if (!EntryNameCodec.forCharset(it.next()).validateSegments(directory.name(index), utf8)) {
+                    it.remove();
+                }
+            }
+            sampled++;
+        }
+        while (!survivors.isEmpty()) {
+            EntryNameCodec codec = EntryNameCodec.forCharset(survivors.get(0));
+            boolean valid = true;
+            int next = 0;
+            for (int i = 0; i < entries && valid; i++) {
+                if (next < sampled && sample[next] == i) {
+                    next++;
+                    continue;
+                }
+                if (!budget.spend()) {
+                    return new ProgressiveDetection(survivors, entries, sampled, budget.checked, false);
+                }
+                boolean utf8 = (directory.flags(i) & CentralDirectory.FLAG_UTF8) != 0;
+                valid = codec.validateSegments(directory.name(i), utf8);
+            }
+            if (valid) {
+                break;
+            }
+            survivors.remove(0);
+        }
+        return new ProgressiveDetection(survivors, entries, sampled, budget.checked, true);
+    }
+
+    /**
+     * Picks one entry at random from each of the given number of equal runs of
+     * the central directory. The random generator is seeded by the number of
+     * entries, so the same directory always gives the same sample.
+     *
+     * @param entries the number of entries
+     * @param size    the size of the sample
+     * @return the indexes of the sampled entries in ascending order
+     */
+    static int[] sample(int entries, int size) {
+        int count = Math.min(entries, size);
+        int[] sample = new int[count];
+        SplittableRandom random = new SplittableRandom(entries);
+        for (int k = 0; k < count; k++) {
+            int from = (int) ((long) k * entries / count);
+            int to = (int) ((long) (k + 1) * entries / count);
+            sample[k] = from + random.nextInt(to - from);
+        }
+        return sample;
+    }
+
+    /**
+     * The time and entry names left to a detection.
+     */
+    private final class Budget {
+
+        private final long start;
+
+        long checked;
+
+        Budget(long start) {
+            this.start = start;
+        }
+
+        /**
+         * Takes one entry name from the budget.
+         *
+         * @return true if the name may be validated, false if the budget has run
+         *         out
+         */
+        boolean spend() {
+            if (checked >= entryBudget) {
+                return false;
+            }
+            if (checked % CLOCK_INTERVAL == 0 && clock.getAsLong() - start > timeBudgetNanos) {
+                return false;
+            }
+            checked++;
+            return true;
+        }
+    }
+}
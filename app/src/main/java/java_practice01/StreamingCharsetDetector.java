@@ -0,0 +1,266 @@
+package java_practice01;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Detects the charset of the entry names of a zip stream without spooling it
+ * to a file. The local file headers are read one by one, as
+ * {@link java.util.zip.ZipInputStream} does, and every candidate charset is
+ * tested against the raw name of each entry as it arrives. Entry data is
+ * skipped, or inflated into a scratch buffer when its size is only known from
+ * a data descriptor, and is never kept. The detection stops as soon as at most
+ * one candidate is left or enough non-ASCII names have been accepted by all
+ * remaining candidates.
+ */
+public final class StreamingCharsetDetector {
+
+    /**
+     * The signature of a local file header.
+     */
+    private static final int LOC_SIGNATURE = 0x04034b50;
+
+    /**
+     * The optional signature of a data descriptor.
+     */
+    private static final int EXT_SIGNATURE = 0x08074b50;
+
+    /**
+     * The fixed size of a local file header.
+     */
+    private static final int LOC_HEADER_SIZE = 30;
+
+    /**
+     * The general purpose bit flag which tells that the sizes follow the data.
+     */
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+    /**
+     * The compression method of deflated entries.
+     */
+    private static final int DEFLATED = 8;
+
+    /**
+     * The header id of the Zip64 extended information extra field.
+     */
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    /**
+     * The value of a 32-bit size which is stored in the Zip64 extra field.
+     */
+    private static final long ZIP64_MAGIC_INT = 0xFFFFFFFFL;
+
+    /**
+     * The size of the buffers used to skip entry data.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    private final List<Charset> candidates;
+
+    private final int evidenceThreshold;
+
+    /**
+     * Constructs a new StreamingCharsetDetector object.
+     *
+     * @param candidates        the candidate charsets in order of preference
+     * @param evidenceThreshold the number of non-ASCII entry names which all
+     *                          remaining candidates have to accept before the
+     *                          detection stops
+     * @throws NullPointerException     if candidates is null or contains null
+     * @throws IllegalArgumentException if candidates is empty or
+     *                                  evidenceThreshold is not positive
+     */
+    public StreamingCharsetDetector(List<Charset> candidates, int evidenceThreshold) {
+        this.candidates = List.copyOf(Objects.requireNonNull(candidates, "candidates is null"));
+        if (this.candidates.isEmpty()) {
+            throw new IllegalArgumentException("candidates is empty");
+        }
+        if (evidenceThreshold <= 0) {
+            throw new IllegalArgumentException("evidenceThreshold is not positive");
+        }
+        this.evidenceThreshold = evidenceThreshold;
+    }
+
+    /**
+     * Detects the charset of the entry names of a zip stream. The stream is read
+     * only as far as needed and is not closed.
+     *
+     * @param stream the zip stream
+     * @return the detection result
+     * @throws IOException          if an I/O error occurs or the stream is not a
+     *                              valid zip stream
+     * @throws NullPointerException if the stream is null
+     */
+    public StreamingDetection detect(InputStream stream) throws IOException {
+        Objects.requireNonNull(stream, "stream is null");
+        PushbackInputStream in = new PushbackInputStream(stream, BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer header = ByteBuffer.allocate(LOC_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        List<Charset> survivors = new ArrayList<>(candidates);
+        int entries = 0;
+        int evidence = 0;
+        for (;;) {
+            if (!readHeader(in, header.array())) {
+                return new StreamingDetection(survivors, entries, true);
+            }
+            if (header.getInt(0) != LOC_SIGNATURE) {
+                // The central directory or another trailing record follows the
+                // last entry.
+                return new StreamingDetection(survivors, entries, true);
+            }
+            int flags = Short.toUnsignedInt(header.getShort(6));
+            int method = Short.toUnsignedInt(header.getShort(8));
+            long compressedSize = Integer.toUnsignedLong(header.getInt(18));
+            byte[] name = in.readNBytes(Short.toUnsignedInt(header.getShort(26)));
+            byte[] extra = in.readNBytes(Short.toUnsignedInt(header.getShort(28)));
+            if (name.length != Short.toUnsignedInt(header.getShort(26))
+                    || extra.length != Short.toUnsignedInt(header.getShort(28))) {
+                throw new EOFException("Unexpected end of local file header");
+            }
+            entries++;
+            boolean utf8 = (flags & CentralDirectory.FLAG_UTF8) != 0;
+            for (Iterator<Charset> it = survivors.iterator(); it.hasNext();) {
+                if (!EntryNameCodec.forCharset(it.next()).validate(ByteBuffer.wrap(name), utf8)) {
+                    it.remove();
+                }
+            }
+            if (!EntryNameClassifier.isPrintableAscii(ByteBuffer.wrap(name))) {
+                evidence++;
+            }
+            if (survivors.size() <= 1 || evidence >= evidenceThreshold) {
+                return new StreamingDetection(survivors, entries, false);
+            }
+            long zip64CompressedSize = zip64CompressedSize(extra);
+            if ((flags & FLAG_DATA_DESCRIPTOR) == 0) {
+                in.skipNBytes(compressedSize == ZIP64_MAGIC_INT && zip64CompressedSize >= 0
+                        ? zip64CompressedSize
+                        : compressedSize);
+            } else if (method == DEFLATED) {
+                skipDeflated(in, buffer);
+                skipDataDescriptor(in, zip64CompressedSize >= 0);
+            } else {
+                // The end of stored data of unknown size cannot be found without
+                // looking into the data.
+                return new StreamingDetection(survivors, entries, false);
+            }
+        }
+    }
+
+    /**
+     * Reads the fixed part of a local file header, or the signature of whatever
+     * follows the last entry.
+     *
+     * @param in     the stream
+     * @param header the buffer of the header
+     * @return false if the stream ended before the next signature
+     * @throws IOException if an I/O error occurs
+     */
+    private static boolean readHeader(PushbackInputStream in, byte[] header) throws IOException {
+        int n = in.readNBytes(header, 0, Integer.BYTES);
+        if (n < Integer.BYTES) {
+            return false;
+        }
+        if (ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(0) != LOC_SIGNATURE) {
+            return true;
+        }
+        if (in.readNBytes(header, Integer.BYTES, LOC_HEADER_SIZE - Integer.BYTES) < LOC_HEADER_SIZE
+                - Integer.BYTES) {
+            throw new EOFException("Unexpected end of local file header");
+        }
+        return true;
+    }
+
+    /**
+     * Inflates deflated data to find its end, discarding the output, and pushes
+     * back the bytes read beyond it.
+     *
+     * @param in     the stream positioned at the data
+     * @param buffer the scratch buffer
+     * @throws IOException if an I/O error occurs or the data is broken
+     */
+    private static void skipDeflated(PushbackInputStream in, byte[] buffer) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            byte[] output = new byte[BUFFER_SIZE];
+            int length = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    length = in.read(buffer);
+                    if (length < 0) {
+                        throw new EOFException("Unexpected end of deflated data");
+                    }
+                    inflater.setInput(buffer, 0, length);
+                }
+                try {
+                    inflater.inflate(output);
+                } catch (DataFormatException e) {
+                    throw new ZipException(e.getMessage());
+                }
+                if (inflater.needsDictionary()) {
+                    throw new ZipException("Deflated data needs a dictionary");
+                }
+            }
+            int remaining = inflater.getRemaining();
+            if (remaining > 0) {
+                in.unread(buffer, length - remaining, remaining);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Skips the data descriptor which follows data of unknown size.
+     *
+     * @param in    the stream positioned at the data descriptor
+     * @param zip64 true if the sizes are 8 bytes long
+     * @throws IOException if an I/O error occurs
+     */
+    private static void skipDataDescriptor(PushbackInputStream in, boolean zip64) throws IOException {
+        byte[] signature = in.readNBytes(Integer.BYTES);
+        if (signature.length < Integer.BYTES) {
+            throw new EOFException("Unexpected end of data descriptor");
+        }
+        int sizes = zip64 ? 2 * Long.BYTES : 2 * Integer.BYTES;
+        if (ByteBuffer.wrap(signature).order(ByteOrder.LITTLE_ENDIAN).getInt() == EXT_SIGNATURE) {
+            // The signature is followed by the CRC-32.
+            in.skipNBytes(Integer.BYTES + sizes);
+        } else {
+            // There is no signature, so the CRC-32 has been read already.
+            in.skipNBytes(sizes);
+        }
+    }
+
+    /**
+     * Reads the compressed size from the Zip64 extended information extra field
+     * of a local file header, which holds both sizes when it is present.
+     *
+     * @param extra the extra field data
+     * @return the compressed size, or -1 if there is no Zip64 extra field
+     */
+    private static long zip64CompressedSize(byte[] extra) {
+        ByteBuffer buffer = ByteBuffer.wrap(extra).order(ByteOrder.LITTLE_ENDIAN);
+        int pos = 0;
+        while (pos + 4 <= extra.length) {
+            int id = Short.toUnsignedInt(buffer.getShort(pos));
+            int size = Short.toUnsignedInt(buffer.getShort(pos + 2));
+            if (id == ZIP64_EXTRA_ID && size >= 2 * Long.BYTES && pos + 4 + 2 * Long.BYTES <= extra.length) {
+                return buffer.getLong(pos + 4 + Long.BYTES);
+            }
+            pos += 4 + size;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,40 @@
+package java_practice01;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Represents the result of detecting the charset of a zip stream.
+ *
+ * @param survivors the candidate charsets which accepted every entry name read,
+ *                  in candidate order
+ * @param entries   the number of entries read
+ * @param complete  true if every entry of the stream was read, false if the
+ *                  detection stopped early
+ */
+public record StreamingDetection(List<Charset> survivors, int entries, boolean complete) {
+
+    /**
+     * Constructs a new StreamingDetection object.
+     *
+     * @param survivors the candidate charsets which accepted every entry name
+     * @param entries   the number of entries read
+     * @param complete  true if every entry of the stream was read
+     * @throws NullPointerException if survivors is null
+     */
+    public StreamingDetection {
+        survivors = List.copyOf(Objects.requireNonNull(survivors, "survivors is null"));
+    }
+
+    /**
+     * Returns the first surviving candidate charset.
+     *
+     * @return An Optional containing the detected charset, or an empty Optional
+     *         if no candidate charset survived.
+     */
+    public Optional<Charset> charset() {
+        return survivors.stream().findFirst();
+    }
+}
@@ -0,0 +1,29 @@
+package java_practice01;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The JFR event which marks validating the entry names of an archive by one
+ * charset.
+ */
+@Name("java_practice01.Validation")
+@Label("Entry Name Validation")
+@Category({ "java_practice01", "Detection" })
+@Description("Validating the entry names of a zip file by a charset")
+final class ValidationEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Charset")
+    String charset;
+
+    @Label("Entries Validated")
+    int entries;
+
+    @Label("Valid")
+    boolean valid;
+}
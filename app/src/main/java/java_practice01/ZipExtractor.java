@@ -0,0 +1,517 @@
+package java_practice01;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Extracts the entries of an archive into a directory concurrently. Entry
+ * names are decoded the same way as {@link java.util.zip.ZipFile} does with the
+ * charset of the archive. All workers read the archive through positioned
+ * reads on one shared {@link FileChannel}, so they never contend for a file
+ * position. The entries are claimed largest first, and stored entries larger
+ * than {@link #SPLIT_SIZE} are split into parts which are copied concurrently;
+ * a deflated entry is one raw deflate stream which cannot be entered in the
+ * middle, so it is always inflated by one worker. The size and CRC-32 of every
+ * entry are checked: the parts of a stored entry are checksummed as they are
+ * copied and their CRC-32 values are combined once all of them are done.
+ *
+ * <p>
+ * Entries whose names would resolve outside the target directory, such as
+ * {@code ../evil} or absolute paths, are rejected before anything is written.
+ * The last modification times of the entries are set on the extracted files
+ * and directories.
+ */
+final class ZipExtractor {
+
+    /**
+     * The compression method of stored entries.
+     */
+    private static final int STORED = 0;
+
+    /**
+     * The compression method of deflated entries.
+     */
+    private static final int DEFLATED = 8;
+
+    /**
+     * The general purpose bit flag which tells that an entry is encrypted.
+     */
+    private static final int FLAG_ENCRYPTED = 0x0001;
+
+    /**
+     * The size of the parts stored entries are split into.
+     */
+    static final long SPLIT_SIZE = 16L << 20;
+
+    /**
+     * The generator polynomial of CRC-32 in reversed bit order.
+     */
+    private static final long CRC32_POLYNOMIAL = 0xEDB88320L;
+
+    /**
+     * The size of the buffers used to inflate and copy entries.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * One unit of work, which is a whole entry or a part of a stored entry.
+     *
+     * @param index  the index of the entry
+     * @param target the file to write
+     * @param offset the offset of the part in the entry data
+     * @param length the length of the part
+     */
+    private record Task(int index, Path target, long offset, long length) {
+    }
+
+    private final CentralDirectory directory;
+
+    private final Charset charset;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Set when a worker fails, so that the others stop claiming tasks.
+     */
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    /**
+     * Constructs a new ZipExtractor object.
+     *
+     * @param directory the central directory of the archive
+     * @param charset   the charset of the names which do not declare UTF-8
+     */
+    ZipExtractor(CentralDirectory directory, Charset charset) {
+        this.directory = directory;
+        this.charset = charset;
+    }
+
+    /**
+     * Extracts the entries. Existing files are replaced.
+     *
+     * @param target         the directory to extract into
+     * @param executor       the executor which runs the workers
+     * @param maxConcurrency the maximum number of entries extracted at the same
+     *                       time
+     * @throws ZipException             if an entry name cannot be decoded or
+     *                                  escapes the target directory, or an entry
+     *                                  cannot be extracted
+     * @throws IOException              if an I/O error occurs
+     * @throws IllegalArgumentException if maxConcurrency is not positive
+     */
+    void extract(File target, Executor executor, int maxConcurrency) throws IOException {
+        Objects.requireNonNull(executor, "executor is null");
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency is not positive");
+        }
+        Path root = target.toPath().toAbsolutePath().normalize();
+        Map<Path, Integer> files = new HashMap<>();
+        List<Path> directories = new ArrayList<>();
+        List<Integer> directoryIndexes = new ArrayList<>();
+        for (int i = 0; i < directory.size(); i++) {
+            String name = entryName(i);
+            Path path = resolve(root, name, i);
+            if (name.endsWith("/")) {
+                directories.add(path);
+                directoryIndexes.add(i);
+            } else {
+                // A later entry of the same name replaces an earlier one.
+                files.put(path, i);
+            }
+        }
+        for (Path path : directories) {
+            Files.createDirectories(path);
+        }
+        for (Path path : files.keySet()) {
+            Files.createDirectories(path.getParent());
+        }
+        List<Task> tasks = plan(files);
+        long[] crcs = new long[tasks.size()];
+        try (FileChannel in = FileChannel.open(directory.file().toPath(), StandardOpenOption.READ)) {
+            int workers = Math.min(maxConcurrency, tasks.size());
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+            for (int i = 0; i < workers; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> work(in, tasks, crcs), executor);
+            }
+            join(CompletableFuture.allOf(futures));
+        }
+        checkStoredCrcs(tasks, crcs);
+        for (Map.Entry<Path, Integer> file : files.entrySet()) {
+            setLastModifiedTime(file.getKey(), file.getValue());
+        }
+        // Deeper directories come later in the list, and setting their times
+        // does not touch the times of their parents.
+        for (int i = directories.size() - 1; i >= 0; i--) {
+            setLastModifiedTime(directories.get(i), directoryIndexes.get(i));
+        }
+    }
+
+    /**
+     * Creates the files and splits the entries into tasks, largest first.
+     *
+     * @param files the files to extract and the indexes of their entries
+     * @return the tasks
+     * @throws ZipException if an entry cannot be extracted
+     * @throws IOException  if a file cannot be created
+     */
+    private List<Task> plan(Map<Path, Integer> files) throws IOException {
+        List<Task> plan = new ArrayList<>();
+        for (Map.Entry<Path, Integer> file : files.entrySet()) {
+            int index = file.getValue();
+            if ((directory.flags(index) & FLAG_ENCRYPTED) != 0) {
+                throw new ZipException("Entry #" + index + " is encrypted");
+            }
+            int method = directory.method(index);
+            if (method != STORED && method != DEFLATED) {
+                throw new ZipException("Entry #" + index + " uses unsupported compression method " + method);
+            }
+            if (method == STORED && directory.compressedSize(index) != directory.size(index)) {
+                throw new ZipException("Invalid size of stored entry #" + index);
+            }
+            // The file is created here so that the parts of a split entry can
+            // be written into it in any order.
+            FileChannel.open(file.getKey(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING).close();
+            long length = directory.compressedSize(index);
+            if (method == STORED && length > SPLIT_SIZE) {
+                for (long offset = 0; offset < length; offset += SPLIT_SIZE) {
+                    plan.add(new Task(index, file.getKey(), offset, Math.min(SPLIT_SIZE, length - offset)));
+                }
+            } else {
+                plan.add(new Task(index, file.getKey(), 0, length));
+            }
+        }
+        plan.sort(Comparator.comparingLong(Task::length).reversed());
+        return plan;
+    }
+
+    /**
+     * Runs tasks until there are none left, recording the CRC-32 of every part
+     * of a stored entry it copies.
+     */
+    private void work(FileChannel in, List<Task> tasks, long[] crcs) {
+        try {
+            byte[] input = new byte[BUFFER_SIZE];
+            byte[] output = new byte[BUFFER_SIZE];
+            ByteBuffer copyBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            for (int i = next.getAndIncrement(); i < tasks.size() && !failed.get(); i = next.getAndIncrement()) {
+                Task task = tasks.get(i);
+                long data = dataPosition(in, task.index());
+                try (FileChannel out = FileChannel.open(task.target(), StandardOpenOption.WRITE)) {
+                    if (directory.method(task.index()) == STORED) {
+                        crcs[i] = copy(in, data + task.offset(), task.length(), out.position(task.offset()),
+                                copyBuffer);
+                    } else {
+                        inflate(in, data, task.index(), out, input, output);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failed.set(true);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException | Error e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the name of an entry as {@link java.util.zip.ZipFile} does.
+     *
+     * @param index the index of the entry
+     * @return the entry name
+     * @throws ZipException if the name cannot be decoded
+     */
+    private String entryName(int index) throws ZipException {
+        boolean utf8 = (directory.flags(index) & CentralDirectory.FLAG_UTF8) != 0;
+        String name = EntryNameCodec.forCharset(utf8 ? StandardCharsets.UTF_8 : charset)
+                .decode(directory.name(index));
+        if (name == null) {
+            throw new ZipException("Entry name #" + index + " cannot be decoded by " + charset + " charset");
+        }
+        return name;
+    }
+
+    /**
+     * Resolves an entry name against the target directory.
+     *
+     * @param root  the normalized absolute target directory
+     * @param name  the entry name
+     * @param index the index of the entry
+     * @return the path to extract the entry to
+     * @throws ZipException if the name is not a path or escapes the directory
+     */
+    private static Path resolve(Path root, String name, int index) throws ZipException {
+        Path path;
+        try {
+            path = root.resolve(name).normalize();
+        } catch (InvalidPathException e) {
+            throw new ZipException("Entry name #" + index + " is not a valid path: " + e.getMessage());
+        }
+        if (!path.startsWith(root)) {
+            throw new ZipException("Entry name #" + index + " escapes the target directory: " + name);
+        }
+        return path;
+    }
+
+    /**
+     * Reads the local file header of an entry to find its data.
+     *
+     * @param in    the channel of the archive
+     * @param index the index of the entry
+     * @return the position of the entry data
+     * @throws IOException if an I/O error occurs or the header is broken
+     */
+    private long dataPosition(FileChannel in, int index) throws IOException {
+        long position = directory.localHeaderOffset(index);
+        ByteBuffer header = ByteBuffer.allocate(ZipRecords.LOC_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (in.read(header, position + header.position()) < 0) {
+                throw new EOFException("Unexpected end of local file header");
+            }
+        }
+        if (header.getInt(0) != ZipRecords.LOC_SIGNATURE) {
+            throw new ZipException("Invalid local file header of entry #" + index);
+        }
+        return position + ZipRecords.LOC_HEADER_SIZE + Short.toUnsignedInt(header.getShort(26))
+                + Short.toUnsignedInt(header.getShort(28));
+    }
+
+    /**
+     * Copies a part of a stored entry and computes its CRC-32.
+     *
+     * @param in       the channel of the archive
+     * @param position the position of the part in the archive
+     * @param length   the length of the part
+     * @param out      the channel of the extracted file, at the offset of the
+     *                 part
+     * @param buffer   the scratch buffer
+     * @return the CRC-32 of the part
+     * @throws IOException if an I/O error occurs
+     */
+    private static long copy(FileChannel in, long position, long length, FileChannel out, ByteBuffer buffer)
+            throws IOException {
+        CRC32 crc = new CRC32();
+        while (length > 0) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length));
+            int n = in.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of entry data");
+            }
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            position += n;
+            length -= n;
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Combines the CRC-32 values of the parts of every stored entry, in the
+     * order of their offsets, and checks them against the central directory.
+     *
+     * @param tasks the tasks
+     * @param crcs  the CRC-32 of every task which copied a part of a stored
+     *              entry
+     * @throws ZipException if the CRC-32 of a stored entry does not match
+     */
+    private void checkStoredCrcs(List<Task> tasks, long[] crcs) throws ZipException {
+        List<Integer> parts = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (directory.method(tasks.get(i).index()) == STORED) {
+                parts.add(i);
+            }
+        }
+        parts.sort(Comparator.comparingInt((Integer i) -> tasks.get(i).index())
+                .thenComparingLong(i -> tasks.get(i).offset()));
+        long crc = 0;
+        for (int k = 0; k < parts.size(); k++) {
+            Task task = tasks.get(parts.get(k));
+            crc = task.offset() == 0 ? crcs[parts.get(k)] : combineCrc32(crc, crcs[parts.get(k)], task.length());
+            boolean last = k + 1 == parts.size() || tasks.get(parts.get(k + 1)).index() != task.index();
+            if (last && crc != directory.crc(task.index())) {
+                throw new ZipException("Invalid CRC-32 of stored entry #" + task.index());
+            }
+        }
+    }
+
+    /**
+     * Computes the CRC-32 of two concatenated byte sequences from their own
+     * CRC-32 values, as zlib's {@code crc32_combine} does: the first CRC is
+     * shifted over the length of the second sequence by squaring an operator
+     * matrix over GF(2).
+     *
+     * @param crc1    the CRC-32 of the first sequence
+     * @param crc2    the CRC-32 of the second sequence
+     * @param length2 the length of the second sequence
+     * @return the CRC-32 of the concatenation
+     */
+    static long combineCrc32(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        // The operator for one zero bit.
+        odd[0] = CRC32_POLYNOMIAL;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = 1L << (n - 1);
+        }
+        // The operators for two and then four zero bits.
+        square(even, odd);
+        square(odd, even);
+        // Apply the operator of every set bit of the length in bytes.
+        for (;;) {
+            square(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            length2 >>>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            length2 >>>= 1;
+            if (length2 == 0) {
+                break;
+            }
+        }
+        return crc1 ^ crc2;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * Inflates a deflated entry and checks its size and CRC-32.
+     *
+     * @param in     the channel of the archive
+     * @param data   the position of the entry data
+     * @param index  the index of the entry
+     * @param out    the channel of the extracted file
+     * @param input  the scratch buffer of compressed data
+     * @param output the scratch buffer of inflated data
+     * @throws IOException if an I/O error occurs or the data is broken
+     */
+    private void inflate(FileChannel in, long data, int index, FileChannel out, byte[] input, byte[] output)
+            throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            CRC32 crc = new CRC32();
+            long remaining = directory.compressedSize(index);
+            long position = data;
+            long written = 0;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (remaining == 0) {
+                        throw new EOFException("Unexpected end of deflated data of entry #" + index);
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(input, 0, (int) Math.min(input.length, remaining));
+                    int n = in.read(buffer, position);
+                    if (n < 0) {
+                        throw new EOFException("Unexpected end of zip file");
+                    }
+                    inflater.setInput(input, 0, n);
+                    position += n;
+                    remaining -= n;
+                }
+                int n;
+                try {
+                    n = inflater.inflate(output);
+                } catch (DataFormatException e) {
+                    throw new ZipException("Invalid deflated data of entry #" + index + ": " + e.getMessage());
+                }
+                if (n == 0 && inflater.needsDictionary()) {
+                    throw new ZipException("Deflated data of entry #" + index + " needs a dictionary");
+                }
+                crc.update(output, 0, n);
+                ByteBuffer buffer = ByteBuffer.wrap(output, 0, n);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                written += n;
+            }
+            if (written != directory.size(index) || crc.getValue() != directory.crc(index)) {
+                throw new ZipException("Invalid size or CRC-32 of entry #" + index);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void setLastModifiedTime(Path path, int index) throws IOException {
+        FileTime time = directory.lastModifiedTime(index);
+        if (time != null) {
+            Files.setLastModifiedTime(path, time);
+        }
+    }
+
+    /**
+     * Waits for the workers, rethrowing the exception of a failed worker.
+     *
+     * @param future the future of the workers
+     * @throws IOException if a worker failed with an I/O error
+     */
+    private static void join(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
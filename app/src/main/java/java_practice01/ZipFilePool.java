@@ -0,0 +1,412 @@
+package java_practice01;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipFile;
+
+/**
+ * Shares open {@link ZipFile} instances between the readers of the same
+ * archive, so that an archive which is read again and again is opened and its
+ * central directory parsed only once. A zip file is keyed by the
+ * {@link EncodedFile}, that is by the file and the charset, and handed out
+ * through reference-counted leases; it is closed only when it is no longer
+ * pooled and its last lease is closed.
+ *
+ * <p>
+ * Zip files which have no lease are evicted when they have been idle for
+ * longer than the idle time, and the least recently used ones are evicted when
+ * the pool holds more than the maximum number of zip files. Zip files in use
+ * are never evicted, so the pool may hold more while all of them are leased.
+ * The size, last modified time and file key of the file are checked on every
+ * acquisition, and a zip file is replaced when the file has changed on disk.
+ * A ZipFile is safe for concurrent reads, so a lease may be shared by several
+ * threads, but it must not be used after it is closed.
+ */
+public final class ZipFilePool implements Closeable {
+
+    private static final String MSG_ERR_CLOSE = "Failed to close an evicted zip file";
+
+    /**
+     * The logger for this class.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ZipFilePool.class.getName());
+
+    /**
+     * The attributes of a file which tell that it has changed.
+     *
+     * @param size         the size of the file
+     * @param lastModified the last modified time in milliseconds
+     * @param fileKey      the key which identifies the file, or null if the file
+     *                     system has none
+     */
+    private record Stamp(long size, long lastModified, Object fileKey) {
+
+        static Stamp of(EncodedFile encodedFile) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(encodedFile.file().toPath(),
+                    BasicFileAttributes.class);
+            return new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+        }
+    }
+
+    /**
+     * An open zip file and the leases on it, guarded by the pool.
+     */
+    private static final class Handle {
+
+        final ZipFile zipFile;
+
+        final Stamp stamp;
+
+        int leases;
+
+        long lastReleased;
+
+        /**
+         * True once the handle has left the pool, after which the zip file is
+         * closed with its last lease.
+         */
+        boolean retired;
+
+        Handle(ZipFile zipFile, Stamp stamp) {
+            this.zipFile = zipFile;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * A lease on a pooled zip file. Closing the lease gives the zip file back to
+     * the pool; closing it again has no effect.
+     */
+    public final class Lease implements Closeable {
+
+        private final Handle handle;
+
+        private boolean closed;
+
+        private Lease(Handle handle) {
+            this.handle = handle;
+        }
+
+        /**
+         * Returns the leased zip file, which must not be closed by the caller.
+         *
+         * @return the zip file
+         * @throws IllegalStateException if the lease is closed
+         */
+        public ZipFile zipFile() {
+            synchronized (ZipFilePool.this) {
+                if (closed) {
+                    throw new IllegalStateException("lease is closed");
+                }
+            }
+            return handle.zipFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            List<ZipFile> evicted;
+            synchronized (ZipFilePool.this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                handle.leases--;
+                handle.lastReleased = clock.getAsLong();
+                boolean last = handle.retired && handle.leases == 0;
+                evicted = evict();
+                if (last) {
+                    evicted.add(handle.zipFile);
+                }
+            }
+            closeAll(evicted);
+        }
+    }
+
+    private final int maxEntries;
+
+    private final long maxIdleNanos;
+
+    private final LongSupplier clock;
+
+    /**
+     * The pooled zip files, least recently used first.
+     */
+    private final LinkedHashMap<EncodedFile, Handle> handles = new LinkedHashMap<>(16, 0.75f, true);
+
+    private boolean closed;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long invalidations;
+
+    /**
+     * Constructs an empty pool.
+     *
+     * @param maxEntries the number of pooled zip files, leased or not, above
+     *                   which the least recently used ones without a lease are
+     *                   closed
+     * @param maxIdle    how long a zip file without a lease is kept open
+     * @throws NullPointerException     if maxIdle is null
+     * @throws IllegalArgumentException if maxEntries is not positive or maxIdle is
+     *                                  negative
+     */
+    public ZipFilePool(int maxEntries, Duration maxIdle) {
+        this(maxEntries, maxIdle, System::nanoTime);
+    }
+
+    /**
+     * Constructs an empty pool which reads the time from the given clock.
+     *
+     * @param maxEntries the number of pooled zip files, leased or not, above
+     *                   which the least recently used ones without a lease are
+     *                   closed
+     * @param maxIdle    how long a zip file without a lease is kept open
+     * @param clock      the clock in nanoseconds
+     */
+    ZipFilePool(int maxEntries, Duration maxIdle, LongSupplier clock) {
+        Objects.requireNonNull(maxIdle, "maxIdle is null");
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries is not positive");
+        }
+        if (maxIdle.isNegative()) {
+            throw new IllegalArgumentException("maxIdle is negative");
+        }
+        this.maxEntries = maxEntries;
+        this.maxIdleNanos = maxIdle.compareTo(Duration.ofNanos(Long.MAX_VALUE)) < 0 ? maxIdle.toNanos()
+                : Long.MAX_VALUE;
+        this.clock = clock;
+    }
+
+    /**
+     * Leases the zip file of an encoded file, opening it by
+     * {@link EncodedFile#openZipFile()} if it is not pooled or the file has
+     * changed since it was opened.
+     *
+     * @param encodedFile the file and charset of the zip file
+     * @return the lease, which must be closed
+     * @throws IOException           if the file cannot be read or opened
+     * @throws NullPointerException  if the encoded file is null
+     * @throws IllegalStateException if the pool is closed
+     */
+    public Lease acquire(EncodedFile encodedFile) throws IOException {
+        Objects.requireNonNull(encodedFile, "encodedFile is null");
+        Stamp stamp = Stamp.of(encodedFile);
+        List<ZipFile> evicted = new ArrayList<>();
+        try {
+            synchronized (this) {
+                checkOpen();
+                Handle handle = handles.get(encodedFile);
+                if (handle != null && handle.stamp.equals(stamp)) {
+                    hits++;
+                    handle.leases++;
+                    return new Lease(handle);
+                }
+                misses++;
+                if (handle != null) {
+                    invalidations++;
+                    retire(encodedFile, handle, evicted);
+                }
+            }
+            // Open outside the lock so that other archives are not held up.
+            ZipFile zipFile = encodedFile.openZipFile();
+            synchronized (this) {
+                Handle handle = handles.get(encodedFile);
+                if (closed) {
+                    evicted.add(zipFile);
+                    throw new IllegalStateException("pool is closed");
+                }
+                if (handle != null && handle.stamp.equals(stamp)) {
+                    // Another thread opened the same file first.
+                    evicted.add(zipFile);
+                    handle.leases++;
+                    return new Lease(handle);
+                }
+                if (handle != null) {
+                    retire(encodedFile, handle, evicted);
+                }
+                handle = new Handle(zipFile, stamp);
+                handle.leases++;
+                handles.put(encodedFile, handle);
+                evicted.addAll(evict());
+                return new Lease(handle);
+            }
+        } finally {
+            // A failure to close another zip file must not lose the lease.
+            try {
+                closeAll(evicted);
+            } catch (IOException e) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, MSG_ERR_CLOSE, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the zip files which have been idle for longer than the idle time.
+     * The pool does this whenever a lease is acquired or closed, so this is only
+     * needed to release files while the pool is not in use.
+     *
+     * @throws IOException if a zip file cannot be closed
+     */
+    public void evictIdle() throws IOException {
+        List<ZipFile> evicted;
+        synchronized (this) {
+            evicted = evict();
+        }
+        closeAll(evicted);
+    }
+
+    /**
+     * Returns the number of acquisitions which reused a pooled zip file.
+     *
+     * @return the number of hits
+     */
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of acquisitions which opened a zip file.
+     *
+     * @return the number of misses
+     */
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of zip files evicted for being idle or for the size of
+     * the pool.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of zip files replaced because their file changed.
+     *
+     * @return the number of invalidations
+     */
+    public synchronized long invalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the number of pooled zip files, with or without leases.
+     *
+     * @return the number of zip files
+     */
+    public synchronized int size() {
+        return handles.size();
+    }
+
+    /**
+     * Closes the pool. The zip files without a lease are closed now and the
+     * others when their last lease is closed.
+     *
+     * @throws IOException if a zip file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        List<ZipFile> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Iterator<Handle> it = handles.values().iterator(); it.hasNext();) {
+                Handle handle = it.next();
+                it.remove();
+                handle.retired = true;
+                if (handle.leases == 0) {
+                    evicted.add(handle.zipFile);
+                }
+            }
+        }
+        closeAll(evicted);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("pool is closed");
+        }
+    }
+
+    /**
+     * Removes a handle from the pool and closes its zip file if it has no lease.
+     * Called with the lock held.
+     */
+    private void retire(EncodedFile encodedFile, Handle handle, List<ZipFile> evicted) {
+        handles.remove(encodedFile);
+        handle.retired = true;
+        if (handle.leases == 0) {
+            evicted.add(handle.zipFile);
+        }
+    }
+
+    /**
+     * Removes the idle handles and, while the pool is over its size, the least
+     * recently used handles without a lease. The size counts the leased handles
+     * too, which are never removed. Called with the lock held.
+     *
+     * @return the zip files to close
+     */
+    private List<ZipFile> evict() {
+        List<ZipFile> evicted = new ArrayList<>();
+        long now = clock.getAsLong();
+        int excess = handles.size() - maxEntries;
+        for (Iterator<Handle> it = handles.values().iterator(); it.hasNext();) {
+            Handle handle = it.next();
+            if (handle.leases == 0 && (excess > 0 || now - handle.lastReleased > maxIdleNanos)) {
+                it.remove();
+                handle.retired = true;
+                evicted.add(handle.zipFile);
+                evictions++;
+                excess--;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Closes zip files outside the lock, closing all of them even if one fails.
+     *
+     * @param zipFiles the zip files to close
+     * @throws IOException if a zip file cannot be closed
+     */
+    private static void closeAll(List<ZipFile> zipFiles) throws IOException {
+        IOException failure = null;
+        for (ZipFile zipFile : zipFiles) {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
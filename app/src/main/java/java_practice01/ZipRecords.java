@@ -0,0 +1,213 @@
+package java_practice01;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Holds the constants of the zip file format and helpers to write its records,
+ * shared by the classes which write archives without ZipOutputStream.
+ */
+final class ZipRecords {
+
+    static final int LOC_SIGNATURE = 0x04034b50;
+
+    static final int CEN_SIGNATURE = 0x02014b50;
+
+    static final int EXT_SIGNATURE = 0x08074b50;
+
+    static final int END_SIGNATURE = 0x06054b50;
+
+    static final int ZIP64_END_SIGNATURE = 0x06064b50;
+
+    static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+    static final int LOC_HEADER_SIZE = 30;
+
+    static final int CEN_HEADER_SIZE = 46;
+
+    static final int END_HEADER_SIZE = 22;
+
+    static final int ZIP64_END_HEADER_SIZE = 56;
+
+    static final int ZIP64_LOCATOR_SIZE = 20;
+
+    /**
+     * The header id of the Zip64 extended information extra field.
+     */
+    static final int ZIP64_EXTRA_ID = 0x0001;
+
+    /**
+     * The header id of the Info-ZIP Unicode Path extra field.
+     */
+    static final int UNICODE_PATH_EXTRA_ID = 0x7075;
+
+    /**
+     * The value of a 16-bit field which is stored in the Zip64 records instead.
+     */
+    static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+
+    /**
+     * The value of a 32-bit field which is stored in the Zip64 records instead.
+     */
+    static final long ZIP64_MAGIC_INT = 0xFFFFFFFFL;
+
+    /**
+     * The version needed to extract an entry which uses Zip64 records.
+     */
+    static final int ZIP64_VERSION = 45;
+
+    /**
+     * The general purpose bit flag which tells that the sizes follow the data.
+     */
+    static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+    /**
+     * The general purpose bit flag which declares UTF-8 entry names.
+     */
+    static final int FLAG_UTF8 = 0x0800;
+
+    /**
+     * The size of the buffers used to write records, which holds any single
+     * header with its name, extra field and comment.
+     */
+    static final int BUFFER_SIZE = 1 << 18;
+
+    private ZipRecords() {
+    }
+
+    /**
+     * Allocates a buffer to write records into.
+     *
+     * @return a new little-endian buffer
+     */
+    static ByteBuffer newBuffer() {
+        return ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Determines whether an extra field contains a block of the given id.
+     *
+     * @param extra the extra field data
+     * @param id    the header id
+     * @return true if the block is present
+     */
+    static boolean hasExtra(ByteBuffer extra, int id) {
+        ByteBuffer buffer = extra.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (int pos = buffer.position(); pos + 4 <= buffer.limit();) {
+            if (Short.toUnsignedInt(buffer.getShort(pos)) == id) {
+                return true;
+            }
+            pos += 4 + Short.toUnsignedInt(buffer.getShort(pos + 2));
+        }
+        return false;
+    }
+
+    /**
+     * Copies an extra field without the blocks of the given ids. A truncated
+     * trailing block is copied as it is.
+     *
+     * @param extra the extra field data
+     * @param ids   the header ids to remove
+     * @return the remaining extra field data
+     */
+    static byte[] removeExtra(ByteBuffer extra, int... ids) {
+        ByteBuffer buffer = extra.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(buffer.remaining());
+        int pos = buffer.position();
+        while (pos + 4 <= buffer.limit()) {
+            int id = Short.toUnsignedInt(buffer.getShort(pos));
+            int end = Math.min(pos + 4 + Short.toUnsignedInt(buffer.getShort(pos + 2)), buffer.limit());
+            boolean removed = false;
+            for (int removedId : ids) {
+                removed |= id == removedId;
+            }
+            if (!removed) {
+                for (int i = pos; i < end; i++) {
+                    out.write(buffer.get(i));
+                }
+            }
+            pos = end;
+        }
+        for (int i = pos; i < buffer.limit(); i++) {
+            out.write(buffer.get(i));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the end of central directory record, preceded by the Zip64 end of
+     * central directory record and locator if any value does not fit in it.
+     *
+     * @param out       the buffer to write into, flushed to the channel as needed
+     * @param channel   the channel of the archive
+     * @param position  the position in the archive the records start at
+     * @param total     the number of entries
+     * @param cenSize   the size of the central directory
+     * @param cenOffset the position of the central directory
+     * @param comment   the zip file comment
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeEnd(ByteBuffer out, WritableByteChannel channel, long position, long total, long cenSize,
+            long cenOffset, ByteBuffer comment) throws IOException {
+        if (total >= ZIP64_MAGIC_SHORT || cenSize >= ZIP64_MAGIC_INT || cenOffset >= ZIP64_MAGIC_INT) {
+            ensureRemaining(out, channel, ZIP64_END_HEADER_SIZE + ZIP64_LOCATOR_SIZE);
+            out.putInt(ZIP64_END_SIGNATURE);
+            out.putLong(ZIP64_END_HEADER_SIZE - 12);
+            out.putShort((short) ZIP64_VERSION);
+            out.putShort((short) ZIP64_VERSION);
+            out.putInt(0);
+            out.putInt(0);
+            out.putLong(total);
+            out.putLong(total);
+            out.putLong(cenSize);
+            out.putLong(cenOffset);
+            out.putInt(ZIP64_LOCATOR_SIGNATURE);
+            out.putInt(0);
+            out.putLong(position);
+            out.putInt(1);
+        }
+        ensureRemaining(out, channel, END_HEADER_SIZE + comment.remaining());
+        out.putInt(END_SIGNATURE);
+        out.putShort((short) 0);
+        out.putShort((short) 0);
+        out.putShort((short) Math.min(total, ZIP64_MAGIC_SHORT));
+        out.putShort((short) Math.min(total, ZIP64_MAGIC_SHORT));
+        out.putInt((int) Math.min(cenSize, ZIP64_MAGIC_INT));
+        out.putInt((int) Math.min(cenOffset, ZIP64_MAGIC_INT));
+        out.putShort((short) comment.remaining());
+        out.put(comment.duplicate());
+        flush(out, channel);
+    }
+
+    /**
+     * Flushes the buffer if it cannot hold the given number of bytes.
+     *
+     * @param out     the buffer
+     * @param channel the channel to flush to
+     * @param length  the number of bytes to be written
+     * @throws IOException if an I/O error occurs
+     */
+    static void ensureRemaining(ByteBuffer out, WritableByteChannel channel, int length) throws IOException {
+        if (out.remaining() < length) {
+            flush(out, channel);
+        }
+    }
+
+    /**
+     * Writes the content of the buffer to the channel and clears it.
+     *
+     * @param out     the buffer
+     * @param channel the channel
+     * @throws IOException if an I/O error occurs
+     */
+    static void flush(ByteBuffer out, WritableByteChannel channel) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
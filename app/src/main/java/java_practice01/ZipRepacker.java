@@ -0,0 +1,282 @@
+package java_practice01;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipException;
+
+/**
+ * Re-packs an archive so that every entry name is stored in UTF-8 and declared
+ * so by the EFS flag. Entry comments, which the flag covers as well, and the
+ * zip file comment are transcoded with the names. Only the local and central
+ * headers are rewritten; the compressed data and data descriptors are copied
+ * as they are by {@link FileChannel#transferTo}, so no entry is inflated and
+ * the CRC-32 values stay valid. Info-ZIP Unicode Path extra fields are dropped
+ * since the names they carry are now the names themselves, and the Zip64 extra
+ * fields of the central directory are rebuilt for the new offsets.
+ */
+final class ZipRepacker {
+
+    private final CentralDirectory directory;
+
+    private final Charset charset;
+
+    /**
+     * Constructs a new ZipRepacker object.
+     *
+     * @param directory the central directory of the source archive
+     * @param charset   the charset of the names which do not declare UTF-8
+     */
+    ZipRepacker(CentralDirectory directory, Charset charset) {
+        this.directory = directory;
+        this.charset = charset;
+    }
+
+    /**
+     * Writes the re-packed archive. Every name and comment is transcoded
+     * before the target is touched, and the archive is written through
+     * {@link FileReplacer}, so an existing target file is replaced only when
+     * the whole archive has been written and is left as it was on failure.
+     *
+     * @param target the file to write
+     * @throws ZipException             if an entry name cannot be decoded or a
+     *                                  local header is broken
+     * @throws IOException              if an I/O error occurs
+     * @throws IllegalArgumentException if the target is the source archive
+     */
+    void repack(File target) throws IOException {
+        if (target.exists() && Files.isSameFile(directory.file().toPath(), target.toPath())) {
+            throw new IllegalArgumentException("target is the source archive");
+        }
+        byte[][] names = new byte[directory.size()][];
+        byte[][] comments = new byte[directory.size()][];
+        for (int i = 0; i < directory.size(); i++) {
+            names[i] = utf8Name(i);
+            comments[i] = utf8Comment(i);
+        }
+        byte[] comment = toUtf8(directory.comment(), false, "Zip file comment");
+        try (FileChannel in = FileChannel.open(directory.file().toPath(), StandardOpenOption.READ)) {
+            FileReplacer.replaceByChannel(target, out -> write(in, out, names, comments, comment));
+        }
+    }
+
+    /**
+     * Writes the re-packed archive with the transcoded names and comments.
+     *
+     * @param in       the channel of the source
+     * @param out      the channel of the target
+     * @param names    the UTF-8 bytes of the entry names
+     * @param comments the UTF-8 bytes of the entry comments
+     * @param comment  the UTF-8 bytes of the zip file comment
+     * @throws ZipException if a local header is broken
+     * @throws IOException  if an I/O error occurs
+     */
+    private void write(FileChannel in, FileChannel out, byte[][] names, byte[][] comments, byte[] comment)
+            throws IOException {
+        long[] offsets = new long[directory.size()];
+        ByteBuffer buffer = ZipRecords.newBuffer();
+        ByteBuffer header = ByteBuffer.allocate(ZipRecords.LOC_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < directory.size(); i++) {
+            offsets[i] = out.position() + buffer.position();
+            long position = directory.localHeaderOffset(i);
+            readFully(in, header.clear(), position);
+            if (header.getInt(0) != ZipRecords.LOC_SIGNATURE) {
+                throw new ZipException("Invalid local file header of entry #" + i);
+            }
+            int nameLength = Short.toUnsignedInt(header.getShort(26));
+            int extraLength = Short.toUnsignedInt(header.getShort(28));
+            ByteBuffer extra = ByteBuffer.allocate(extraLength);
+            readFully(in, extra, position + ZipRecords.LOC_HEADER_SIZE + nameLength);
+            byte[] localExtra = ZipRecords.removeExtra(extra, ZipRecords.UNICODE_PATH_EXTRA_ID);
+            ZipRecords.ensureRemaining(buffer, out,
+                    ZipRecords.LOC_HEADER_SIZE + names[i].length + localExtra.length);
+            buffer.put(header.slice(0, 6));
+            buffer.putShort((short) (header.getShort(6) | ZipRecords.FLAG_UTF8));
+            buffer.put(header.slice(8, 18));
+            buffer.putShort((short) names[i].length);
+            buffer.putShort((short) localExtra.length);
+            buffer.put(names[i]);
+            buffer.put(localExtra);
+            ZipRecords.flush(buffer, out);
+            long data = position + ZipRecords.LOC_HEADER_SIZE + nameLength + extraLength;
+            long length = directory.compressedSize(i);
+            if ((directory.flags(i) & ZipRecords.FLAG_DATA_DESCRIPTOR) != 0) {
+                boolean zip64 = directory.compressedSize(i) >= ZipRecords.ZIP64_MAGIC_INT
+                        || directory.size(i) >= ZipRecords.ZIP64_MAGIC_INT
+                        || ZipRecords.hasExtra(extra, ZipRecords.ZIP64_EXTRA_ID);
+                length += dataDescriptorLength(in, data + length, zip64);
+            }
+            transferFully(in, data, length, out);
+        }
+        long cenOffset = out.position();
+        for (int i = 0; i < directory.size(); i++) {
+            writeCentralHeader(buffer, out, i, names[i], comments[i], offsets[i]);
+        }
+        ZipRecords.flush(buffer, out);
+        long cenEnd = out.position();
+        ZipRecords.writeEnd(buffer, out, cenEnd, directory.size(), cenEnd - cenOffset, cenOffset,
+                ByteBuffer.wrap(comment));
+    }
+
+    /**
+     * Decodes the name of an entry as {@link java.util.zip.ZipFile} does and
+     * encodes it in UTF-8.
+     *
+     * @param index the index of the entry
+     * @return the UTF-8 bytes of the name
+     * @throws ZipException if the name cannot be decoded or is too long in UTF-8
+     */
+    private byte[] utf8Name(int index) throws ZipException {
+        return toUtf8(directory.name(index), (directory.flags(index) & ZipRecords.FLAG_UTF8) != 0,
+                "Entry name #" + index);
+    }
+
+    /**
+     * Decodes the comment of an entry as {@link java.util.zip.ZipFile} does and
+     * encodes it in UTF-8.
+     *
+     * @param index the index of the entry
+     * @return the UTF-8 bytes of the comment
+     * @throws ZipException if the comment cannot be decoded or is too long in
+     *                      UTF-8
+     */
+    private byte[] utf8Comment(int index) throws ZipException {
+        ByteBuffer header = directory.header(index);
+        int offset = ZipRecords.CEN_HEADER_SIZE + Short.toUnsignedInt(header.getShort(28))
+                + Short.toUnsignedInt(header.getShort(30));
+        return toUtf8(header.slice(offset, Short.toUnsignedInt(header.getShort(32))),
+                (directory.flags(index) & ZipRecords.FLAG_UTF8) != 0, "Comment of entry #" + index);
+    }
+
+    /**
+     * Decodes a name or comment by UTF-8 or the charset of this object and
+     * encodes it in UTF-8.
+     *
+     * @param bytes the raw bytes
+     * @param utf8  true if the bytes are declared UTF-8
+     * @param what  the description of the bytes for the error message
+     * @return the UTF-8 bytes
+     * @throws ZipException if the bytes cannot be decoded or are too long in
+     *                      UTF-8
+     */
+    private byte[] toUtf8(ByteBuffer bytes, boolean utf8, String what) throws ZipException {
+        String decoded = EntryNameCodec.forCharset(utf8 ? StandardCharsets.UTF_8 : charset).decode(bytes);
+        if (decoded == null) {
+            throw new ZipException(what + " cannot be decoded by " + (utf8 ? StandardCharsets.UTF_8 : charset)
+                    + " charset");
+        }
+        byte[] encoded = decoded.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > ZipRecords.ZIP64_MAGIC_SHORT) {
+            throw new ZipException(what + " is too long in UTF-8");
+        }
+        return encoded;
+    }
+
+    /**
+     * Writes the central directory file header of an entry with the new name
+     * and offset. The Zip64 extra field is rebuilt to hold exactly the values
+     * which do not fit in the header.
+     *
+     * @param buffer  the buffer to write into
+     * @param out     the channel of the target
+     * @param index   the index of the entry
+     * @param name    the UTF-8 bytes of the name
+     * @param comment the UTF-8 bytes of the comment
+     * @param offset  the new position of the local file header
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeCentralHeader(ByteBuffer buffer, FileChannel out, int index, byte[] name, byte[] comment,
+            long offset) throws IOException {
+        ByteBuffer header = directory.header(index);
+        int nameLength = Short.toUnsignedInt(header.getShort(28));
+        int extraLength = Short.toUnsignedInt(header.getShort(30));
+        long size = directory.size(index);
+        long compressedSize = directory.compressedSize(index);
+        ByteBuffer zip64 = ByteBuffer.allocate(4 + 3 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        zip64.putShort((short) ZipRecords.ZIP64_EXTRA_ID).putShort((short) 0);
+        if (Integer.toUnsignedLong(header.getInt(24)) == ZipRecords.ZIP64_MAGIC_INT) {
+            zip64.putLong(size);
+        }
+        if (Integer.toUnsignedLong(header.getInt(20)) == ZipRecords.ZIP64_MAGIC_INT) {
+            zip64.putLong(compressedSize);
+        }
+        if (offset >= ZipRecords.ZIP64_MAGIC_INT) {
+            zip64.putLong(offset);
+        }
+        zip64.putShort(2, (short) (zip64.position() - 4)).flip();
+        if (zip64.remaining() == 4) {
+            zip64.limit(0);
+        }
+        byte[] extra = ZipRecords.removeExtra(
+                header.slice(ZipRecords.CEN_HEADER_SIZE + nameLength, extraLength),
+                ZipRecords.ZIP64_EXTRA_ID, ZipRecords.UNICODE_PATH_EXTRA_ID);
+        int version = Short.toUnsignedInt(header.getShort(6));
+        if (zip64.hasRemaining() && version < ZipRecords.ZIP64_VERSION) {
+            version = ZipRecords.ZIP64_VERSION;
+        }
+        ZipRecords.ensureRemaining(buffer, out,
+                ZipRecords.CEN_HEADER_SIZE + name.length + zip64.remaining() + extra.length + comment.length);
+        buffer.put(header.slice(0, 6));
+        buffer.putShort((short) version);
+        buffer.putShort((short) (header.getShort(8) | ZipRecords.FLAG_UTF8));
+        buffer.put(header.slice(10, 18));
+        buffer.putShort((short) name.length);
+        buffer.putShort((short) (zip64.remaining() + extra.length));
+        buffer.putShort((short) comment.length);
+        // The entry now starts on the first and only disk.
+        buffer.putShort((short) 0);
+        buffer.put(header.slice(36, 6));
+        buffer.putInt((int) Math.min(offset, ZipRecords.ZIP64_MAGIC_INT));
+        buffer.put(name);
+        buffer.put(zip64);
+        buffer.put(extra);
+        buffer.put(comment);
+    }
+
+    /**
+     * Determines the length of the data descriptor which follows the data of an
+     * entry, whose signature is optional.
+     *
+     * @param in       the channel of the source
+     * @param position the position of the data descriptor
+     * @param zip64    true if the sizes are 8 bytes long
+     * @return the length of the data descriptor
+     * @throws IOException if an I/O error occurs
+     */
+    private static long dataDescriptorLength(FileChannel in, long position, boolean zip64) throws IOException {
+        ByteBuffer signature = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(in, signature, position);
+        int length = Integer.BYTES + (zip64 ? 2 * Long.BYTES : 2 * Integer.BYTES);
+        return signature.getInt(0) == ZipRecords.EXT_SIGNATURE ? Integer.BYTES + length : length;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = in.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of zip file");
+            }
+            position += n;
+        }
+        buffer.flip();
+    }
+
+    private static void transferFully(FileChannel in, long position, long length, FileChannel out)
+            throws IOException {
+        while (length > 0) {
+            long n = in.transferTo(position, length, out);
+            if (n <= 0) {
+                throw new EOFException("Unexpected end of entry data");
+            }
+            position += n;
+            length -= n;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the App class.
+ */
+public class AppTest {
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+        File nested = new File(tempDir, "nested");
+        assertTrue(nested.mkdir());
+        Files.copy(new File("src/test/resources/testShiftJis.zip").toPath(), new File(tempDir, "a.zip").toPath());
+        Files.copy(new File("src/test/resources/testUtf8.zip").toPath(), new File(nested, "b.ZIP").toPath());
+        Files.writeString(new File(nested, "c.txt").toPath(), "not a zip file");
+        Files.writeString(new File(nested, "d.zip").toPath(), "not a zip file");
+    }
+
+    private int run(String... args) {
+        return App.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testScan() {
+        assertEquals(0, run("--charsets", "UTF-8,Shift_JIS", "--parallelism", "2", tempDir.getPath()));
+        List<String> lines = Arrays.asList(out.toString(StandardCharsets.UTF_8).split("\n"));
+        assertEquals(4, lines.size());
+        assertTrue(lines.stream().anyMatch(line -> line.contains("a.zip\",\"charset\":\"Shift_JIS\"")));
+        assertTrue(lines.stream().anyMatch(line -> line.contains("b.ZIP\",\"charset\":\"UTF-8\"")));
+        assertTrue(lines.stream().anyMatch(line -> line.contains("d.zip\",\"charset\":null,\"error\":")));
+        String summary = lines.get(3);
+        assertTrue(summary.startsWith("{\"summary\":true,\"files\":3,"), summary);
+        assertTrue(summary.endsWith("\"charsets\":{\"Shift_JIS\":1,\"UTF-8\":1,\"none\":1}}"), summary);
+    }
+
+    /**
+     * Verifies that a root which cannot be walked gets an error line and does
+     * not stop the scan of the others.
+     */
+    @Test
+    void testScanUnreadableRoot() {
+        String missing = new File(tempDir, "missing").getPath();
+        assertEquals(0, run("--charsets", "UTF-8,Shift_JIS", missing, tempDir.getPath()));
+        List<String> lines = Arrays.asList(out.toString(StandardCharsets.UTF_8).split("\n"));
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"path\":" + App.quote(missing) + ",\"charset\":null,\"error\":"),
+                lines.get(0));
+        assertTrue(lines.get(4).startsWith("{\"summary\":true,\"files\":3,"), lines.get(4));
+    }
+
+    @Test
+    void testUsage() {
+        assertEquals(2, run());
+        String usage = err.toString(StandardCharsets.UTF_8);
+        assertEquals(usage.indexOf("Usage:"), usage.lastIndexOf("Usage:"), usage);
+        assertEquals(2, run("--parallelism", "0", tempDir.getPath()));
+        assertEquals(2, run("--charsets", "NO-SUCH-CHARSET", tempDir.getPath()));
+        String socket = new File(tempDir, "daemon.sock").getPath();
+        assertEquals(2, run("--daemon", socket, tempDir.getPath()));
+        assertEquals(2, run("--daemon", socket, "--cache", "0"));
+    }
+
+    /**
+     * Verifies that the daemon mode serves until a client sends the shutdown
+     * command.
+     */
+    @Test
+    void testDaemon() throws Exception {
+        File socket = new File(tempDir, "daemon.sock");
+        CompletableFuture<Integer> status = CompletableFuture
+                .supplyAsync(() -> run("--daemon", socket.getPath(), "--charsets", "UTF-8,Shift_JIS"));
+        SocketChannel client = null;
+        for (int i = 0; client == null; i++) {
+            try {
+                client = SocketChannel.open(UnixDomainSocketAddress.of(socket.toPath()));
+            } catch (IOException e) {
+                if (i == 100) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+        try (SocketChannel channel = client) {
+            String requests = "\t" + new File(tempDir, "a.zip").getPath() + "\nshutdown\n";
+            Channels.newOutputStream(channel).write(requests.getBytes(StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            assertTrue(in.readLine().contains("\"charset\":\"Shift_JIS\""));
+            assertTrue(in.readLine().startsWith("{\"batch\":1,"));
+            assertEquals("{\"shutdown\":true}", in.readLine());
+        }
+        assertEquals(0, (int) status.get(10, TimeUnit.SECONDS));
+        assertFalse(socket.exists());
+    }
+
+    @Test
+    void testQuote() {
+        assertEquals("\"a\\\"b\\\\c\\n\\u0001日本\"", App.quote("a\"b\\c\n\u0001日本"));
+    }
+}
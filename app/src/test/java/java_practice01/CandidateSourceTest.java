@@ -0,0 +1,131 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the CandidateSource class.
+ */
+public class CandidateSourceTest {
+    private List<File> files;
+    private List<Charset> charsets;
+
+    @BeforeEach
+    void setUp() {
+        files = Arrays.asList(
+                new File("src/test/resources/test.zip"),
+                new File("src/test/resources/testEucJp.zip"),
+                new File("src/test/resources/testIso2022jp.zip"),
+                new File("src/test/resources/testShiftJis.zip"),
+                new File("src/test/resources/testUtf8.zip"));
+        charsets = Arrays.asList(
+                Charset.forName("Shift_JIS"),
+                Charset.forName("EUC-JP"),
+                Charset.forName("ISO-2022-JP"),
+                Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Verifies that the candidates are the same as the ones collected eagerly,
+     * in the same order.
+     */
+    @Test
+    void testCandidates() {
+        EncodedFileList expected = new EncodedFileList(new ArrayList<>()).collect(files, charsets);
+        assertEquals(expected, new CandidateSource(files, charsets).candidates().collect(Collectors.toList()));
+    }
+
+    /**
+     * Verifies that the valid candidates are the first valid one of each file,
+     * whether the files are probed sequentially or in parallel.
+     */
+    @Test
+    void testValids() {
+        List<EncodedFile> expected = new ArrayList<>();
+        for (File file : files) {
+            new EncodedFileList(new ArrayList<>()).collect(List.of(file), charsets).findFirstValidZipFile()
+                    .ifPresent(expected::add);
+        }
+        CandidateSource source = new CandidateSource(files, charsets);
+        assertEquals(expected, source.valids(false).collect(Collectors.toList()));
+        assertEquals(expected, source.valids(true).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testFindFirstValidZipFile() {
+        Optional<EncodedFile> expected = new EncodedFileList(new ArrayList<>()).collect(files, charsets)
+                .findFirstValidZipFile();
+        assertEquals(expected, new CandidateSource(files, charsets).findFirstValidZipFile());
+    }
+
+    /**
+     * Verifies that the search stops at the first valid file, so an endless
+     * stream of files is never exhausted.
+     */
+    @Test
+    void testFindFirstValidZipFileFromEndlessStream() {
+        File valid = new File("src/test/resources/testUtf8.zip");
+        Stream<File> endless = Stream.concat(Stream.of(new File("missing.zip"), valid),
+                Stream.generate(() -> new File("missing.zip")));
+        Optional<EncodedFile> result = new CandidateSource(endless, charsets).findFirstValidZipFile();
+        assertEquals(valid, result.get().file());
+    }
+
+    @Test
+    void testSpliteratorSplits() {
+        List<File> many = new ArrayList<>(Collections.nCopies(1000, new File("missing.zip")));
+        Spliterator<List<EncodedFile>> spliterator = new CandidateSource(many, charsets).spliterator();
+        Spliterator<List<EncodedFile>> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(1000, prefix.estimateSize() + spliterator.estimateSize());
+        prefix.tryAdvance(group -> assertEquals(charsets.size(), group.size()));
+    }
+
+    /**
+     * Verifies that the groups are only as immutable or concurrent as the
+     * files they come from.
+     */
+    @Test
+    void testSpliteratorCharacteristics() {
+        Spliterator<List<EncodedFile>> mutable = new CandidateSource(new ArrayList<>(files), charsets).spliterator();
+        assertEquals(Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL,
+                mutable.characteristics());
+        Spliterator<List<EncodedFile>> immutable = new CandidateSource(Arrays.stream(files.toArray(new File[0])), charsets)
+                .spliterator();
+        assertTrue(immutable.hasCharacteristics(Spliterator.IMMUTABLE));
+        Spliterator<List<EncodedFile>> concurrent = new CandidateSource(new ConcurrentLinkedQueue<>(files), charsets)
+                .spliterator();
+        assertTrue(concurrent.hasCharacteristics(Spliterator.CONCURRENT));
+    }
+
+    @Test
+    void testStreamSourceIsTraversedOnce() {
+        CandidateSource source = new CandidateSource(files.stream(), charsets);
+        assertEquals(files.size(), source.groups(false).count());
+        assertThrows(IllegalStateException.class, () -> source.groups(false));
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(NullPointerException.class, () -> new CandidateSource((List<File>) null, charsets));
+        assertThrows(NullPointerException.class, () -> new CandidateSource(files, null));
+        assertThrows(IllegalArgumentException.class, () -> new CandidateSource(files, List.of()));
+    }
+}
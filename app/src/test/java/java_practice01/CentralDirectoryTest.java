@@ -0,0 +1,208 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the CentralDirectory class.
+ */
+public class CentralDirectoryTest {
+    private List<File> files;
+    private List<Charset> charsets;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        files = Arrays.asList(
+                new File("src/test/resources/test.zip"),
+                new File("src/test/resources/testEucJp.zip"),
+                new File("src/test/resources/testIso2022jp.zip"),
+                new File("src/test/resources/testShiftJis.zip"),
+                new File("src/test/resources/testUtf8.zip"));
+        charsets = Arrays.asList(
+                Charset.forName("Shift_JIS"),
+                Charset.forName("EUC-JP"),
+                Charset.forName("ISO-2022-JP"),
+                Charset.forName("UTF-8"));
+    }
+
+    @Test
+    void testSize() throws IOException {
+        for (File file : files) {
+            try (ZipFile zipFile = new ZipFile(file, Charset.forName("ISO-8859-1"))) {
+                assertEquals(zipFile.size(), CentralDirectory.read(file).size(), file.toString());
+            }
+        }
+    }
+
+    /**
+     * Verifies that validating the raw entry names gives the same result as
+     * opening the file by ZipFile and validating the decoded entry names.
+     */
+    @Test
+    void testValidateEntryNamesMatchesZipFile() throws IOException {
+        for (File file : files) {
+            CentralDirectory directory = CentralDirectory.read(file);
+            for (Charset charset : charsets) {
+                EncodedFile encodedFile = new EncodedFile(file, charset);
+                boolean expected;
+                try (ZipFile zipFile = encodedFile.openZipFile()) {
+                    expected = encodedFile.validateEntryNames(zipFile);
+                } catch (IOException e) {
+                    expected = false;
+                }
+                assertEquals(expected, encodedFile.validateEntryNames(directory), encodedFile.toString());
+            }
+        }
+    }
+
+    @Test
+    void testEntryFields() throws IOException {
+        for (File file : files) {
+            CentralDirectory directory = CentralDirectory.read(file);
+            try (ZipFile zipFile = new ZipFile(file, Charset.forName("ISO-8859-1"));
+                    RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+                for (int i = 0; i < directory.size(); i++) {
+                    ZipEntry entry = entries.get(i);
+                    assertEquals(entry.getMethod(), directory.method(i));
+                    assertEquals(entry.getCrc(), directory.crc(i));
+                    assertEquals(entry.getSize(), directory.size(i));
+                    assertEquals(entry.getCompressedSize(), directory.compressedSize(i));
+                    assertEquals(entry.getLastModifiedTime(), directory.lastModifiedTime(i));
+                    raf.seek(directory.localHeaderOffset(i));
+                    assertEquals(0x04034b50, Integer.reverseBytes(raf.readInt()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that the Zip64 end of central directory record is read when an
+     * archive has more entries than the END header can hold.
+     */
+    @Test
+    void testReadZip64() throws IOException {
+        File file = new File(tempDir, "zip64.zip");
+        int total = 0x10000 + 10;
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < total; i++) {
+                stream.putNextEntry(new ZipEntry("d/" + i));
+                stream.closeEntry();
+            }
+        }
+        CentralDirectory directory = CentralDirectory.read(file);
+        assertEquals(total, directory.size());
+        assertEquals(ByteBuffer.wrap("d/65545".getBytes(Charset.forName("US-ASCII"))), directory.name(total - 1));
+        assertTrue(new EncodedFile(file, Charset.forName("UTF-8")).validateEntryNames(directory));
+    }
+
+    /**
+     * Verifies that an archive embedded in a larger file, or held in memory,
+     * reads the same as the archive on its own, with local header offsets
+     * relative to the start of the archive.
+     */
+    @Test
+    void testReadRegionAndBuffer() throws IOException {
+        for (File file : files) {
+            byte[] archive = Files.readAllBytes(file.toPath());
+            File embedded = new File(tempDir, "embedded.bin");
+            try (FileOutputStream stream = new FileOutputStream(embedded)) {
+                stream.write(new byte[1000]);
+                stream.write(archive);
+                stream.write(new byte[500]);
+            }
+            CentralDirectory expected = CentralDirectory.read(file);
+            CentralDirectory region;
+            try (FileChannel channel = FileChannel.open(embedded.toPath(), StandardOpenOption.READ)) {
+                region = CentralDirectory.read(file, channel, 1000, archive.length);
+            }
+            CentralDirectory buffer = CentralDirectory.read(file, ByteBuffer.wrap(archive));
+            for (CentralDirectory directory : List.of(region, buffer)) {
+                assertEquals(file, directory.file());
+                assertEquals(expected.size(), directory.size(), file.toString());
+                assertEquals(expected.checksum(), directory.checksum(), file.toString());
+                for (int i = 0; i < directory.size(); i++) {
+                    assertEquals(expected.localHeaderOffset(i), directory.localHeaderOffset(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that a Zip64 entry count which does not fit in the central
+     * directory is rejected before anything is allocated for it.
+     */
+    @Test
+    void testReadZip64BadEntryCount() throws IOException {
+        for (long total : new long[] { -1, Integer.MAX_VALUE, Long.MAX_VALUE, 1 }) {
+            ByteBuffer archive = ByteBuffer.allocate(98).order(ByteOrder.LITTLE_ENDIAN);
+            archive.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0).putInt(0)
+                    .putLong(total).putLong(total).putLong(0).putLong(0);
+            archive.putInt(0x07064b50).putInt(0).putLong(0).putInt(1);
+            archive.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) -1)
+                    .putShort((short) -1).putInt(0).putInt(0).putShort((short) 0);
+            File file = new File(tempDir, "count.zip");
+            Files.write(file.toPath(), archive.array());
+            assertThrows(ZipException.class, () -> CentralDirectory.read(file));
+            assertThrows(ZipException.class, () -> CentralDirectory.read(file, archive.clear()));
+        }
+    }
+
+    /**
+     * Verifies that the END header is found behind a comment longer than the
+     * tail which is read first.
+     */
+    @Test
+    void testReadLongComment() throws IOException {
+        File file = new File(tempDir, "comment.zip");
+        String comment = "c".repeat(40000);
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file))) {
+            stream.setComment(comment);
+            stream.putNextEntry(new ZipEntry("a.txt"));
+            stream.closeEntry();
+        }
+        CentralDirectory directory = CentralDirectory.read(file);
+        assertEquals(1, directory.size());
+        assertEquals(comment.length(), directory.comment().remaining());
+    }
+
+    @Test
+    void testReadNotZipFile() throws IOException {
+        File file = new File(tempDir, "not.zip");
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write("not a zip file".getBytes(Charset.forName("US-ASCII")));
+        }
+        assertThrows(ZipException.class, () -> CentralDirectory.read(file));
+    }
+
+    @Test
+    void testReadNullFile() {
+        assertThrows(NullPointerException.class, () -> CentralDirectory.read(null));
+    }
+}
@@ -0,0 +1,125 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the CharsetStatistics class.
+ */
+public class CharsetStatisticsTest {
+    private Charset shiftJis;
+    private Charset eucJp;
+    private Charset utf8;
+    private File fileShiftJis;
+    private File fileUtf8;
+
+    @BeforeEach
+    void setUp() {
+        shiftJis = Charset.forName("Shift_JIS");
+        eucJp = Charset.forName("EUC-JP");
+        utf8 = Charset.forName("UTF-8");
+        fileShiftJis = new File("src/test/resources/testShiftJis.zip");
+        fileUtf8 = new File("src/test/resources/testUtf8.zip");
+    }
+
+    private List<EncodedFile> group(File file, Charset... charsets) {
+        return new EncodedFileList(new ArrayList<>()).collectFile(file, charsets);
+    }
+
+    @Test
+    void testOrderWithoutObservation() {
+        CharsetStatistics statistics = new CharsetStatistics();
+        List<EncodedFile> group = group(fileShiftJis, utf8, eucJp, shiftJis);
+        assertEquals(group, statistics.order(group));
+    }
+
+    @Test
+    void testOrderByCount() {
+        CharsetStatistics statistics = new CharsetStatistics();
+        statistics.record(new EncodedFile(fileShiftJis, shiftJis));
+        statistics.record(new EncodedFile(fileShiftJis, shiftJis));
+        statistics.record(new EncodedFile(fileUtf8, eucJp));
+        List<EncodedFile> ordered = statistics.order(group(fileShiftJis, utf8, eucJp, shiftJis));
+        assertEquals(Arrays.asList(shiftJis, eucJp, utf8), ordered.stream().map(EncodedFile::charset).toList());
+    }
+
+    /**
+     * Verifies that ordering while other threads record keeps every encoded
+     * file of the group exactly once.
+     */
+    @Test
+    void testOrderWhileRecording() throws InterruptedException {
+        CharsetStatistics statistics = new CharsetStatistics();
+        List<Charset> charsets = List.of(utf8, eucJp, shiftJis, Charset.forName("ISO-2022-JP"),
+                Charset.forName("windows-31j"));
+        List<EncodedFile> group = group(fileShiftJis, charsets.toArray(Charset[]::new));
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            recorders.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 200000; i++) {
+                    statistics.record(new EncodedFile(fileShiftJis, charsets.get((i + offset) % charsets.size())));
+                }
+            }));
+        }
+        for (int i = 0; i < 20000; i++) {
+            assertEquals(Set.copyOf(group), Set.copyOf(statistics.order(group)));
+        }
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+    }
+
+    @Test
+    void testOrderByPattern() {
+        CharsetStatistics statistics = new CharsetStatistics(
+                CharsetStatistics.byPattern(Arrays.asList(Pattern.compile(".*Utf8.*"))));
+        statistics.record(new EncodedFile(fileShiftJis, shiftJis));
+        statistics.record(new EncodedFile(fileShiftJis, shiftJis));
+        statistics.record(new EncodedFile(fileUtf8, utf8));
+        assertEquals(utf8, statistics.order(group(fileUtf8, shiftJis, utf8)).get(0).charset());
+        assertEquals(shiftJis, statistics.order(group(fileShiftJis, utf8, shiftJis)).get(0).charset());
+    }
+
+    @Test
+    void testSnapshotAndRestore() {
+        CharsetStatistics statistics = new CharsetStatistics(CharsetStatistics.byDirectory());
+        statistics.record(new EncodedFile(fileShiftJis, shiftJis));
+        Map<String, Map<String, Long>> snapshot = statistics.snapshot();
+        assertEquals(Long.valueOf(1), snapshot.get("").get("Shift_JIS"));
+        CharsetStatistics restored = new CharsetStatistics(CharsetStatistics.byDirectory());
+        restored.restore(snapshot);
+        assertEquals(snapshot, restored.snapshot());
+    }
+
+    /**
+     * Verifies that the most likely charset is returned when several charsets
+     * are valid and that the result is recorded.
+     */
+    @Test
+    void testFindFirstValidZipFile() {
+        CharsetStatistics statistics = new CharsetStatistics();
+        statistics.record(new EncodedFile(fileShiftJis, shiftJis));
+        EncodedFileList list = new EncodedFileList(new ArrayList<>()).collectFile(fileShiftJis, utf8, shiftJis);
+        assertEquals(Optional.of(new EncodedFile(fileShiftJis, shiftJis)), list.findFirstValidZipFile(statistics));
+        assertEquals(Long.valueOf(2), statistics.snapshot().get("").get("Shift_JIS"));
+    }
+
+    @Test
+    void testNullClassifier() {
+        assertThrows(NullPointerException.class, () -> new CharsetStatistics(null));
+    }
+}
@@ -0,0 +1,130 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the ContentCharsetDetector class.
+ */
+public class ContentCharsetDetectorTest {
+    private Charset shiftJis;
+    private Charset eucJp;
+    private Charset utf8;
+    private ContentCharsetDetector detector;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        shiftJis = Charset.forName("Shift_JIS");
+        eucJp = Charset.forName("EUC-JP");
+        utf8 = StandardCharsets.UTF_8;
+        detector = new ContentCharsetDetector(List.of(utf8, shiftJis, eucJp), 4096, 4);
+    }
+
+    /**
+     * Verifies that text which is Japanese throughout is settled by the sample.
+     */
+    @Test
+    void testDetectFromSample() throws IOException {
+        String text = "吾輩は猫である。名前はまだ無い。\n".repeat(2000);
+        for (Charset charset : List.of(utf8, shiftJis, eucJp)) {
+            ContentDetection detection = detector.detect(write("sample.txt", text.getBytes(charset)));
+            assertEquals(charset, detection.charset(), charset.name());
+            assertTrue(detection.sampled(), charset.name());
+            assertTrue(detection.confidence() > 0, charset.name());
+        }
+    }
+
+    /**
+     * Verifies that text which is ASCII except for a few characters between the
+     * windows of the sample is decoded as a whole.
+     */
+    @Test
+    void testDetectFallsBackToFullDecode() throws IOException {
+        String ascii = "The quick brown fox jumps over the lazy dog.\n".repeat(1000);
+        String text = ascii + "猫" + ascii;
+        ContentDetection detection = detector.detect(write("mostlyAscii.txt", text.getBytes(shiftJis)));
+        assertEquals(shiftJis, detection.charset());
+        assertFalse(detection.sampled());
+    }
+
+    /**
+     * Verifies that ASCII text which the sample covers is settled by the first
+     * candidate without a full decode.
+     */
+    @Test
+    void testDetectShortAscii() throws IOException {
+        ContentDetection detection = detector.detect(write("short.txt", "hello\n".getBytes(utf8)));
+        assertEquals(utf8, detection.charset());
+        assertTrue(detection.sampled());
+        assertEquals(1.0, detection.confidence(), 0.0);
+    }
+
+    @Test
+    void testDetectBinary() throws IOException {
+        byte[] bytes = new byte[100000];
+        new Random(1).nextBytes(bytes);
+        ContentDetection detection = detector.detect(write("random.bin", bytes));
+        assertNull(detection.charset());
+        assertTrue(detection.detected().isEmpty());
+    }
+
+    @Test
+    void testDetectAll() throws IOException {
+        File file = new File(tempDir, "texts.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file))) {
+            stream.putNextEntry(new ZipEntry("sjis.txt"));
+            stream.write("こんにちは、世界。\n".repeat(500).getBytes(shiftJis));
+            stream.putNextEntry(new ZipEntry("utf8.txt"));
+            stream.write("こんにちは、世界。\n".repeat(500).getBytes(utf8));
+            stream.putNextEntry(new ZipEntry("image.png"));
+            stream.write(new byte[] { (byte) 0x89, 'P', 'N', 'G' });
+            stream.closeEntry();
+        }
+        try (ZipFile zipFile = new ZipFile(file)) {
+            Map<String, ContentDetection> detections = detector.detectAll(zipFile,
+                    entry -> entry.getName().endsWith(".txt"));
+            assertEquals(List.of("sjis.txt", "utf8.txt"), List.copyOf(detections.keySet()));
+            assertEquals(shiftJis, detections.get("sjis.txt").charset());
+            assertEquals(utf8, detections.get("utf8.txt").charset());
+        }
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(NullPointerException.class, () -> new ContentCharsetDetector(null, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ContentCharsetDetector(List.of(), 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ContentCharsetDetector(List.of(utf8), 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ContentCharsetDetector(List.of(utf8), 1, 0));
+        assertThrows(NullPointerException.class, () -> detector.detect(null));
+    }
+
+    private File write(String name, byte[] bytes) throws IOException {
+        File file = new File(tempDir, name);
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(bytes);
+        }
+        return file;
+    }
+}
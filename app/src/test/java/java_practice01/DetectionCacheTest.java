@@ -0,0 +1,110 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the DetectionCache class.
+ */
+public class DetectionCacheTest {
+    private Charset shiftJis;
+    private Charset utf8;
+    private File fileShiftJis;
+    private File fileUtf8;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        shiftJis = Charset.forName("Shift_JIS");
+        utf8 = Charset.forName("UTF-8");
+        fileShiftJis = new File(tempDir, "testShiftJis.zip");
+        fileUtf8 = new File(tempDir, "testUtf8.zip");
+        Files.copy(new File("src/test/resources/testShiftJis.zip").toPath(), fileShiftJis.toPath());
+        Files.copy(new File("src/test/resources/testUtf8.zip").toPath(), fileUtf8.toPath());
+    }
+
+    private EncodedFileList list(File file) {
+        return new EncodedFileList(new ArrayList<>()).collect(Arrays.asList(file), Arrays.asList(utf8, shiftJis));
+    }
+
+    @Test
+    void testHit() {
+        DetectionCache cache = new DetectionCache(10);
+        Optional<EncodedFile> expected = Optional.of(new EncodedFile(fileShiftJis, shiftJis));
+        assertEquals(expected, list(fileShiftJis).findFirstValidZipFile(cache));
+        assertEquals(expected, list(fileShiftJis).findFirstValidZipFile(cache));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void testHitNoValidCharset() {
+        DetectionCache cache = new DetectionCache(10);
+        EncodedFileList list = new EncodedFileList(new ArrayList<>()).collectFile(fileShiftJis, utf8);
+        assertTrue(list.findFirstValidZipFile(cache).isEmpty());
+        assertTrue(list.findFirstValidZipFile(cache).isEmpty());
+        assertEquals(1, cache.hitCount());
+    }
+
+    /**
+     * Verifies that a result is not used after the file is replaced.
+     */
+    @Test
+    void testInvalidateOnChange() throws IOException {
+        DetectionCache cache = new DetectionCache(10);
+        assertEquals(Optional.of(new EncodedFile(fileShiftJis, shiftJis)),
+                list(fileShiftJis).findFirstValidZipFile(cache));
+        Files.copy(fileUtf8.toPath(), fileShiftJis.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(fileShiftJis.setLastModified(fileShiftJis.lastModified() + 2000));
+        assertEquals(Optional.of(new EncodedFile(fileShiftJis, utf8)),
+                list(fileShiftJis).findFirstValidZipFile(cache));
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    void testEviction() {
+        DetectionCache cache = new DetectionCache(1);
+        list(fileShiftJis).findFirstValidZipFile(cache);
+        list(fileUtf8).findFirstValidZipFile(cache);
+        list(fileShiftJis).findFirstValidZipFile(cache);
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.missCount());
+    }
+
+    @Test
+    void testStore() throws IOException {
+        File store = new File(tempDir, "cache.properties");
+        try (DetectionCache cache = new DetectionCache(10, true, store)) {
+            list(fileShiftJis).findFirstValidZipFile(cache);
+        }
+        try (DetectionCache cache = new DetectionCache(10, true, store)) {
+            assertEquals(1, cache.size());
+            assertEquals(Optional.of(new EncodedFile(fileShiftJis, shiftJis)),
+                    list(fileShiftJis).findFirstValidZipFile(cache));
+            assertEquals(1, cache.hitCount());
+            assertEquals(0, cache.missCount());
+        }
+    }
+
+    @Test
+    void testIllegalMaxEntries() {
+        assertThrows(IllegalArgumentException.class, () -> new DetectionCache(0));
+    }
+}
@@ -0,0 +1,188 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the DetectionDaemon class.
+ */
+public class DetectionDaemonTest {
+    private String shiftJisPath;
+    private String utf8Path;
+    private Path socket;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        shiftJisPath = new File("src/test/resources/testShiftJis.zip").getPath();
+        utf8Path = new File("src/test/resources/testUtf8.zip").getPath();
+        socket = new File(tempDir, "daemon.sock").toPath();
+    }
+
+    /**
+     * Verifies that pipelined requests are answered in order, that the second
+     * detection of a file comes from the cache, and that the shutdown command
+     * stops the daemon after answering.
+     */
+    @Test
+    void testPipelinedRequests() throws Exception {
+        DetectionDaemon daemon = new DetectionDaemon(socket, List.of(StandardCharsets.UTF_8,
+                Charset.forName("Shift_JIS")), 1, new DetectionCache(16));
+        CompletableFuture<Void> served = CompletableFuture.runAsync(() -> serve(daemon));
+        try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            OutputStream out = Channels.newOutputStream(client);
+            out.write(("\t" + shiftJisPath + "\t" + utf8Path + "\n"
+                    + "UTF-8,Shift_JIS\t" + shiftJisPath + "\n"
+                    + "NO-SUCH-CHARSET\t" + utf8Path + "\n"
+                    + "UTF-8\t" + new File(tempDir, "missing.zip").getPath() + "\n"
+                    + "stats\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            assertLine(in, "{\"path\":" + App.quote(shiftJisPath) + ",\"charset\":\"Shift_JIS\",\"nanos\":");
+            assertLine(in, "{\"path\":" + App.quote(utf8Path) + ",\"charset\":\"UTF-8\",\"nanos\":");
+            assertLine(in, "{\"batch\":1,\"files\":2,\"nanos\":");
+            assertLine(in, "{\"path\":" + App.quote(shiftJisPath) + ",\"charset\":\"Shift_JIS\",\"nanos\":");
+            assertLine(in, "{\"batch\":2,\"files\":1,\"nanos\":");
+            assertLine(in, "{\"batch\":3,\"error\":");
+            String missing = in.readLine();
+            assertTrue(missing.startsWith("{\"path\":") && missing.contains("\"error\":\"No such file\""), missing);
+            assertLine(in, "{\"batch\":4,\"files\":1,\"nanos\":");
+            assertEquals("{\"stats\":true,\"requests\":4,\"files\":4,\"hits\":1,\"misses\":2,\"cached\":2}",
+                    in.readLine());
+
+            out.write("shutdown\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            assertEquals("{\"shutdown\":true}", in.readLine());
+            assertNull(in.readLine());
+        }
+        served.get(10, TimeUnit.SECONDS);
+        assertFalse(socket.toFile().exists());
+    }
+
+    /**
+     * Verifies that a graceful shutdown answers the requests already read
+     * before it closes the connections.
+     */
+    @Test
+    void testShutdownAnswersPendingRequests() throws Exception {
+        DetectionDaemon daemon = new DetectionDaemon(socket, List.of(Charset.forName("Shift_JIS")), 1,
+                new DetectionCache(16));
+        CompletableFuture<Void> served = CompletableFuture.runAsync(() -> serve(daemon));
+        try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            OutputStream out = Channels.newOutputStream(client);
+            out.write(("\t" + shiftJisPath + "\n" + "stats\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            assertLine(in, "{\"path\":");
+            assertLine(in, "{\"batch\":1,");
+            assertLine(in, "{\"stats\":true,");
+            daemon.shutdown();
+            daemon.awaitTermination();
+            assertNull(in.readLine());
+        }
+        served.get(10, TimeUnit.SECONDS);
+        assertFalse(socket.toFile().exists());
+        assertThrows(IOException.class, () -> SocketChannel.open(StandardProtocolFamily.UNIX)
+                .connect(UnixDomainSocketAddress.of(socket)));
+    }
+
+    @Test
+    void testSocketInUse() throws Exception {
+        DetectionDaemon daemon = new DetectionDaemon(socket, List.of(StandardCharsets.UTF_8), 1,
+                new DetectionCache(1));
+        assertThrows(IOException.class,
+                () -> new DetectionDaemon(socket, List.of(StandardCharsets.UTF_8), 1, new DetectionCache(1)));
+        daemon.close();
+        assertFalse(socket.toFile().exists());
+    }
+
+    /**
+     * Verifies that a socket file left behind by a daemon which did not shut
+     * down is replaced, but a regular file is not.
+     */
+    @Test
+    void testStaleSocket() throws Exception {
+        ServerSocketChannel stale = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        stale.bind(UnixDomainSocketAddress.of(socket));
+        // Closing the channel does not delete the file, as after a crash.
+        stale.close();
+        assertTrue(socket.toFile().exists());
+        DetectionDaemon daemon = new DetectionDaemon(socket, List.of(StandardCharsets.UTF_8), 1,
+                new DetectionCache(1));
+        try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            assertTrue(client.isConnected());
+        }
+        daemon.close();
+
+        Files.writeString(socket, "not a socket");
+        assertThrows(IOException.class,
+                () -> new DetectionDaemon(socket, List.of(StandardCharsets.UTF_8), 1, new DetectionCache(1)));
+        assertEquals("not a socket", Files.readString(socket));
+    }
+
+    /**
+     * Verifies that charset fields which differ only in whitespace share one
+     * lookup.
+     */
+    @Test
+    void testCharsetLookupsNormalized() throws Exception {
+        DetectionDaemon daemon = new DetectionDaemon(socket, List.of(StandardCharsets.UTF_8), 1,
+                new DetectionCache(16));
+        CompletableFuture<Void> served = CompletableFuture.runAsync(() -> serve(daemon));
+        try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            OutputStream out = Channels.newOutputStream(client);
+            out.write(("UTF-8\t" + utf8Path + "\n" + " UTF-8 \t" + utf8Path + "\n" + "UTF-8 ,Shift_JIS\t" + utf8Path
+                    + "\n" + "UTF-8, Shift_JIS\t" + utf8Path + "\n" + "shutdown\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            BufferedReader in = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                assertFalse(line.contains("error"), line);
+            }
+        }
+        served.get(10, TimeUnit.SECONDS);
+        assertEquals(2, daemon.charsetLookupCount());
+    }
+
+    private static void serve(DetectionDaemon daemon) {
+        try {
+            daemon.serve();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void assertLine(BufferedReader in, String prefix) throws IOException {
+        String line = in.readLine();
+        assertTrue(line != null && line.startsWith(prefix), line);
+    }
+}
@@ -0,0 +1,89 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the DetectionMetrics class.
+ */
+public class DetectionMetricsTest {
+    private DetectionMetrics metrics;
+    private Charset shiftJis;
+    private Charset utf8;
+    private File file;
+    private File fileShiftJis;
+
+    @BeforeEach
+    void setUp() {
+        metrics = DetectionMetrics.global();
+        metrics.reset();
+        metrics.setEnabled(true);
+        shiftJis = Charset.forName("Shift_JIS");
+        utf8 = Charset.forName("UTF-8");
+        file = new File("src/test/resources/test.zip");
+        fileShiftJis = new File("src/test/resources/testShiftJis.zip");
+    }
+
+    @AfterEach
+    void tearDown() {
+        metrics.setEnabled(false);
+        metrics.reset();
+    }
+
+    @Test
+    void testValidation() {
+        new EncodedFileList(new ArrayList<>()).collect(Arrays.asList(fileShiftJis), Arrays.asList(utf8, shiftJis))
+                .findFirstValidZipFile();
+        assertEquals(1, metrics.archivesOpened());
+        assertTrue(metrics.bytesRead() > 0);
+        assertEquals(1, metrics.charset(utf8).attempts());
+        assertEquals(1, metrics.charset(utf8).malformedFailures());
+        assertEquals(1, metrics.charset(shiftJis).successes());
+        assertTrue(metrics.charset(shiftJis).entriesValidated() > 0);
+        assertTrue(metrics.charset(shiftJis).bytesRead() >= metrics.charset(shiftJis).entriesValidated());
+        assertTrue(metrics.charset(utf8).bytesRead() > 0);
+        assertTrue(metrics.charset(shiftJis).bytesRead() < metrics.bytesRead());
+        assertEquals(1, metrics.charset(shiftJis).latency().count());
+    }
+
+    @Test
+    void testIoFailure() {
+        assertThrows(IOException.class, () -> new EncodedFile(file, utf8).openZipFile());
+        assertEquals(1, metrics.charset(utf8).ioFailures());
+        assertEquals(1, metrics.archivesOpened());
+    }
+
+    @Test
+    void testDisabled() {
+        metrics.setEnabled(false);
+        new EncodedFileList(new ArrayList<>()).collectFile(fileShiftJis, shiftJis).findFirstValidZipFile();
+        assertEquals(0, metrics.archivesOpened());
+        assertEquals(0, metrics.charset(shiftJis).attempts());
+    }
+
+    @Test
+    void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.5));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1_000_000);
+        assertEquals(100, histogram.count());
+        assertEquals(1024, histogram.percentile(0.5));
+        assertEquals(1024, histogram.percentile(0.99));
+        assertEquals(1 << 20, histogram.percentile(1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(2));
+    }
+}
@@ -4,10 +4,18 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,11 +35,11 @@ public class EncodedFileListTest {
     void setUp() {
         List<EncodedFile> fileList = new ArrayList<>();
         encodedFileList = new EncodedFileList(fileList);
-        file = new File("src\\test\\resources\\test.zip");
+        file = new File("src/test/resources/test.zip");
         shiftJis = Charset.forName("Shift_JIS");
-        fileShiftJis = new File("src\\test\\resources\\testShiftJis.zip");
+        fileShiftJis = new File("src/test/resources/testShiftJis.zip");
         utf8 = Charset.forName("UTF-8");
-        fileUtf8 = new File("src\\test\\resources\\testUtf8.zip");
+        fileUtf8 = new File("src/test/resources/testUtf8.zip");
     }
 
     /**
@@ -142,4 +150,110 @@ public class EncodedFileListTest {
         assertEquals(utf8, result.get(1).charset());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testFindFirstValidZipFileParallel() {
+        encodedFileList.collect(Arrays.asList(fileUtf8, fileShiftJis, fileShiftJis),
+                Arrays.asList(shiftJis, utf8));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Optional<EncodedFile> result = encodedFileList.findFirstValidZipFile(executor, 4);
+            assertEquals(Optional.of(new EncodedFile(fileUtf8, utf8)), result);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Optional.of(new EncodedFile(fileUtf8, utf8)), encodedFileList.findFirstValidZipFile(2));
+    }
+
+    @Test
+    void testFindFirstValidZipFileParallelNoValidFile() {
+        encodedFileList.collectCharset(utf8, fileShiftJis, fileShiftJis);
+        assertTrue(encodedFileList.findFirstValidZipFile(2).isEmpty());
+    }
+
+    @Test
+    void testFindFirstValidZipFileParallelIllegalConcurrency() {
+        encodedFileList.collectCharset(utf8, fileShiftJis);
+        assertThrows(IllegalArgumentException.class, () -> encodedFileList.findFirstValidZipFile(0));
+    }
+
+    @Test
+    void testAvailablesParallel() {
+        encodedFileList.collect(Arrays.asList(fileShiftJis, fileUtf8, fileShiftJis),
+                Arrays.asList(utf8, shiftJis));
+        EncodedFileList result = encodedFileList.availables(3);
+        assertEquals(encodedFileList.availables(), result);
+        assertEquals(3, result.size());
+        assertEquals(new EncodedFile(fileShiftJis, shiftJis), result.get(0));
+        assertEquals(new EncodedFile(fileUtf8, utf8), result.get(1));
+        assertEquals(new EncodedFile(fileShiftJis, shiftJis), result.get(2));
+    }
+
+    @Test
+    void testFindFirstValidZipFileAsync() throws Exception {
+        encodedFileList.collect(Arrays.asList(fileShiftJis, fileUtf8, fileShiftJis),
+                Arrays.asList(utf8, shiftJis));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            CompletableFuture<Optional<EncodedFile>> result = encodedFileList.findFirstValidZipFileAsync(executor, 3);
+            assertEquals(Optional.of(new EncodedFile(fileShiftJis, shiftJis)), result.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Verifies that the future completes as soon as the first valid file is
+     * known, while a worker which would probe later files has not even started.
+     */
+    @Test
+    void testFindFirstValidZipFileAsyncCompletesEarly() throws Exception {
+        encodedFileList.collect(Arrays.asList(fileUtf8, fileShiftJis, fileShiftJis),
+                Arrays.asList(shiftJis, utf8));
+        List<Runnable> held = new ArrayList<>();
+        Executor executor = command -> {
+            if (held.isEmpty()) {
+                held.add(command);
+            } else {
+                new Thread(command).start();
+            }
+        };
+        CompletableFuture<Optional<EncodedFile>> result = encodedFileList.findFirstValidZipFileAsync(executor, 2);
+        assertEquals(Optional.of(new EncodedFile(fileUtf8, utf8)), result.get(10, TimeUnit.SECONDS));
+        // The held worker finds nothing left to claim.
+        held.get(0).run();
+    }
+
+    @Test
+    void testFindFirstValidZipFileAsyncNoValidFile() throws Exception {
+        encodedFileList.collectCharset(utf8, fileShiftJis, fileShiftJis);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertEquals(Optional.empty(),
+                    encodedFileList.findFirstValidZipFileAsync(executor, 2).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testFindFirstValidZipFileAsyncTimeout() {
+        encodedFileList.collectCharset(utf8, fileShiftJis);
+        // The probes never run, so only the timeout can complete the future.
+        Executor executor = command -> {
+        };
+        CompletableFuture<Optional<EncodedFile>> result = encodedFileList.findFirstValidZipFileAsync(executor, 1,
+                Duration.ofMillis(50));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    void testFindFirstValidZipFileAsyncIllegalArguments() {
+        encodedFileList.collectCharset(utf8, fileShiftJis);
+        assertThrows(NullPointerException.class, () -> encodedFileList.findFirstValidZipFileAsync(null, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> encodedFileList.findFirstValidZipFileAsync(Runnable::run, 0));
+        assertThrows(NullPointerException.class,
+                () -> encodedFileList.findFirstValidZipFileAsync(Runnable::run, 1, null));
+    }
+}
@@ -11,6 +11,7 @@ import java.nio.charset.Charset;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import java.util.zip.ZipEntry;
 
 /**
@@ -25,19 +26,24 @@ public class EncodedFileTest {
     private Charset utf8;
     private File utf8File;
 
+    @TempDir
+    File tempDir;
+
     @BeforeEach
     void setUp() {
-        file = new File("src\\test\\resources\\test.zip");
+        file = new File("src/test/resources/test.zip");
         shiftJis = Charset.forName("Shift_JIS");
-        shiftJisFile = new File("src\\test\\resources\\testShiftJis.zip");
+        shiftJisFile = new File("src/test/resources/testShiftJis.zip");
         utf8 = Charset.forName("UTF-8");
-        utf8File = new File("src\\test\\resources\\testUtf8.zip");
+        utf8File = new File("src/test/resources/testUtf8.zip");
     }
 
     @Test
     void testZipOutputStreamShiftJis() throws IOException {
-        EncodedFile encodedFile = new EncodedFile(shiftJisFile, shiftJis);
-        assertEquals(shiftJisFile, encodedFile.file());
+        // Write into a temporary file so that the fixture is not rewritten.
+        File writtenFile = new File(tempDir, shiftJisFile.getName());
+        EncodedFile encodedFile = new EncodedFile(writtenFile, shiftJis);
+        assertEquals(writtenFile, encodedFile.file());
         assertEquals(shiftJis, encodedFile.charset());
         // Call the zipOutputStream() method
         try (var stream = encodedFile.openZipOutputStream()) {
@@ -62,8 +68,9 @@ public class EncodedFileTest {
 
     @Test
     void testZipOutputStreamUtf8() throws IOException {
-        EncodedFile encodedFile = new EncodedFile(utf8File, utf8);
-        assertEquals(utf8File, encodedFile.file());
+        File writtenFile = new File(tempDir, utf8File.getName());
+        EncodedFile encodedFile = new EncodedFile(writtenFile, utf8);
+        assertEquals(writtenFile, encodedFile.file());
         assertEquals(utf8, encodedFile.charset());
 
         byte[] firstEntryNameBytes = new byte[] { (byte) 0x81, (byte) 0x40, (byte) 0x81 };
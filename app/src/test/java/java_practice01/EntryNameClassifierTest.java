@@ -0,0 +1,100 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the EntryNameClassifier class.
+ */
+public class EntryNameClassifierTest {
+    private Charset shiftJis;
+    private Charset utf16;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        shiftJis = Charset.forName("Shift_JIS");
+        utf16 = StandardCharsets.UTF_16LE;
+    }
+
+    private File zip(String fileName, Charset charset, String... names) throws IOException {
+        File file = new File(tempDir, fileName);
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file), charset)) {
+            for (String name : names) {
+                stream.putNextEntry(new ZipEntry(name));
+                stream.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    @Test
+    void testIsPrintableAscii() {
+        assertTrue(EntryNameClassifier.isPrintableAscii(ByteBuffer.wrap("dir/name-0123456789.txt".getBytes(shiftJis))));
+        assertFalse(EntryNameClassifier.isPrintableAscii(ByteBuffer.wrap("dir/日本語.txt".getBytes(shiftJis))));
+        assertFalse(EntryNameClassifier.isPrintableAscii(ByteBuffer.wrap("0123456\u001b$B".getBytes(shiftJis))));
+        assertFalse(EntryNameClassifier.isPrintableAscii(ByteBuffer.wrap("0123\u001b$B".getBytes(shiftJis))));
+        for (int b = 0; b < 0x100; b++) {
+            byte[] bytes = "01234567890".getBytes(shiftJis);
+            bytes[3] = (byte) b;
+            assertEquals(b >= 0x20 && b < 0x80, EntryNameClassifier.isPrintableAscii(ByteBuffer.wrap(bytes)));
+        }
+    }
+
+    @Test
+    void testIsAsciiCompatible() {
+        assertTrue(EntryNameClassifier.isAsciiCompatible(shiftJis));
+        assertTrue(EntryNameClassifier.isAsciiCompatible(Charset.forName("ISO-2022-JP")));
+        assertTrue(EntryNameClassifier.isAsciiCompatible(StandardCharsets.UTF_8));
+        assertFalse(EntryNameClassifier.isAsciiCompatible(utf16));
+    }
+
+    @Test
+    void testClassify() throws IOException {
+        assertEquals(FastPath.ASCII, EntryNameClassifier.classify(
+                CentralDirectory.read(zip("ascii.zip", shiftJis, "a/b.txt", "c.txt"))));
+        assertEquals(FastPath.EFS, EntryNameClassifier.classify(
+                CentralDirectory.read(zip("efs.zip", StandardCharsets.UTF_8, "a/日本語.txt"))));
+        assertEquals(FastPath.NONE, EntryNameClassifier.classify(
+                CentralDirectory.read(zip("sjis.zip", shiftJis, "a/日本語.txt"))));
+    }
+
+    @Test
+    void testDetectFirstValidZipFile() throws IOException {
+        File ascii = zip("ascii.zip", shiftJis, "ab/c.txt");
+        EncodedFileList list = new EncodedFileList(new ArrayList<>()).collectFile(ascii, utf16, shiftJis);
+        assertEquals(Optional.of(new Detection(new EncodedFile(ascii, utf16), FastPath.NONE)),
+                list.detectFirstValidZipFile());
+        list = new EncodedFileList(new ArrayList<>()).collectFile(ascii, shiftJis, utf16);
+        assertEquals(Optional.of(new Detection(new EncodedFile(ascii, shiftJis), FastPath.ASCII)),
+                list.detectFirstValidZipFile());
+
+        File efs = zip("efs.zip", StandardCharsets.UTF_8, "a/日本語.txt");
+        list = new EncodedFileList(new ArrayList<>()).collectFile(efs, shiftJis, StandardCharsets.UTF_8);
+        assertEquals(Optional.of(new Detection(new EncodedFile(efs, StandardCharsets.UTF_8), FastPath.EFS)),
+                list.detectFirstValidZipFile());
+
+        File sjis = zip("sjis.zip", shiftJis, "a/日本語.txt");
+        list = new EncodedFileList(new ArrayList<>()).collectFile(sjis, StandardCharsets.UTF_8, shiftJis);
+        assertEquals(Optional.of(new Detection(new EncodedFile(sjis, shiftJis), FastPath.NONE)),
+                list.detectFirstValidZipFile());
+    }
+}
@@ -0,0 +1,142 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the EntryNameCodec class.
+ */
+public class EntryNameCodecTest {
+    private List<Charset> charsets;
+    private List<String> names;
+
+    @BeforeEach
+    void setUp() {
+        charsets = Arrays.asList(
+                Charset.forName("Shift_JIS"),
+                Charset.forName("EUC-JP"),
+                Charset.forName("ISO-2022-JP"),
+                StandardCharsets.UTF_8,
+                StandardCharsets.ISO_8859_1);
+        names = Arrays.asList("", "ascii/name.txt", "日本語エントリ", "～〜∥‖", "￭🧦", "\ud800", "?",
+                "�", "表示/ソ/ー", "a".repeat(1000) + "日本語");
+    }
+
+    /**
+     * Verifies that the round trip gives the same result as the round trip by
+     * String.
+     */
+    @Test
+    void testRoundTrips() {
+        for (Charset charset : charsets) {
+            EntryNameCodec codec = EntryNameCodec.forCharset(charset);
+            for (String name : names) {
+                boolean expected = name.equals(new String(name.getBytes(charset), charset));
+                assertEquals(expected, codec.roundTrips(name), name + " by " + charset);
+            }
+        }
+    }
+
+    /**
+     * Verifies that validating random raw names gives the same result as strict
+     * decoding followed by the round trip by String.
+     */
+    @Test
+    void testValidateRandomBytes() {
+        Random random = new Random(0);
+        for (Charset charset : charsets) {
+            EntryNameCodec codec = EntryNameCodec.forCharset(charset);
+            for (int i = 0; i < 2000; i++) {
+                byte[] bytes = new byte[random.nextInt(8)];
+                random.nextBytes(bytes);
+                for (boolean utf8 : new boolean[] { false, true }) {
+                    String decoded = EntryNameCodec.forCharset(utf8 ? StandardCharsets.UTF_8 : charset)
+                            .decode(ByteBuffer.wrap(bytes));
+                    boolean expected = decoded != null
+                            && decoded.equals(new String(decoded.getBytes(charset), charset));
+                    assertEquals(expected, codec.validate(ByteBuffer.wrap(bytes), utf8),
+                            Arrays.toString(bytes) + " by " + charset);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testValidate() {
+        Charset shiftJis = Charset.forName("Shift_JIS");
+        byte[] bytes = "日本語エントリ".getBytes(shiftJis);
+        assertTrue(EntryNameCodec.forCharset(shiftJis).validate(ByteBuffer.wrap(bytes), false));
+        assertFalse(EntryNameCodec.forCharset(StandardCharsets.UTF_8).validate(ByteBuffer.wrap(bytes), false));
+        assertNull(EntryNameCodec.forCharset(StandardCharsets.UTF_8).decode(ByteBuffer.wrap(bytes)));
+    }
+
+    /**
+     * Verifies that validating segment by segment gives the same result as
+     * validating the whole name, for charsets where 0x2F is always a slash and
+     * for the ones which fall back to the whole name, such as ISO-2022-JP where
+     * 0x2F can be a byte of a double-byte character.
+     */
+    @Test
+    void testValidateSegmentsRandomBytes() {
+        Random random = new Random(1);
+        byte[] alphabet = { '/', '/', 'a', 0x1B, '$', 'B', '(', 0x21, 0x7E, (byte) 0x81, (byte) 0x82,
+                (byte) 0xA4, (byte) 0xE3, (byte) 0xC0, (byte) 0x8E, (byte) 0xFF };
+        List<Charset> all = new ArrayList<>(charsets);
+        all.add(Charset.forName("windows-31j"));
+        all.add(StandardCharsets.UTF_16BE);
+        for (Charset charset : all) {
+            EntryNameCodec codec = EntryNameCodec.forCharset(charset);
+            for (int i = 0; i < 5000; i++) {
+                byte[] bytes = new byte[random.nextInt(12)];
+                for (int j = 0; j < bytes.length; j++) {
+                    bytes[j] = alphabet[random.nextInt(alphabet.length)];
+                }
+                for (boolean utf8 : new boolean[] { false, true }) {
+                    boolean expected = codec.validate(ByteBuffer.wrap(bytes), utf8);
+                    assertEquals(expected, codec.validateSegments(ByteBuffer.wrap(bytes), utf8),
+                            Arrays.toString(bytes) + " by " + charset + (utf8 ? " as UTF-8" : ""));
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that names which share segments keep their own verdicts, so a
+     * valid shared prefix does not make an invalid last segment valid.
+     */
+    @Test
+    void testValidateSegmentsSharedPrefix() {
+        Charset shiftJis = Charset.forName("Shift_JIS");
+        EntryNameCodec codec = EntryNameCodec.forCharset(shiftJis);
+        byte[] prefix = "日本語/ディレクトリ/".getBytes(shiftJis);
+        for (int i = 0; i < 3000; i++) {
+            byte[] valid = concat(prefix, ("ファイル" + i).getBytes(shiftJis));
+            byte[] invalid = concat(prefix, new byte[] { (byte) 0x81, (byte) i });
+            assertTrue(codec.validateSegments(ByteBuffer.wrap(valid), false));
+            assertEquals(codec.validate(ByteBuffer.wrap(invalid), false),
+                    codec.validateSegments(ByteBuffer.wrap(invalid), false));
+        }
+        ByteBuffer name = ByteBuffer.wrap(prefix);
+        assertTrue(codec.validateSegments(name, false));
+        assertFalse(name.hasRemaining());
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
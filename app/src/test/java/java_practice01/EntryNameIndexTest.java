@@ -0,0 +1,167 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the EntryNameIndex class.
+ */
+public class EntryNameIndexTest {
+    private static final List<String> NAMES = List.of(
+            "docs/", "docs/読む.txt", "docs/guide/", "docs/guide/a.txt", "docs/guide/b.txt", "docs-old/x",
+            "doc", "/absolute", "a//b", "日本語/ファイル.txt", "日本語/", "z");
+
+    private Charset shiftJis;
+    private File file;
+    private EncodedFile encodedFile;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        shiftJis = Charset.forName("Shift_JIS");
+        file = new File(tempDir, "names.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file), shiftJis)) {
+            for (String name : NAMES) {
+                stream.putNextEntry(new ZipEntry(name));
+                stream.closeEntry();
+            }
+        }
+        encodedFile = new EncodedFile(file, shiftJis);
+    }
+
+    /**
+     * Verifies that every entry is found by the name ZipFile decodes, and that
+     * the name is rebuilt from the index.
+     */
+    @Test
+    void testIndexOfMatchesZipFile() throws IOException {
+        List<File> files = List.of(new File("src/test/resources/testShiftJis.zip"), file);
+        for (File zip : files) {
+            EncodedFile encoded = new EncodedFile(zip, shiftJis);
+            EntryNameIndex index = encoded.indexEntryNames(CentralDirectory.read(zip)).get();
+            try (ZipFile zipFile = encoded.openZipFile()) {
+                List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+                assertEquals(entries.size(), index.size());
+                for (int i = 0; i < entries.size(); i++) {
+                    assertEquals(i, index.indexOf(entries.get(i).getName()), entries.get(i).getName());
+                    assertEquals(entries.get(i).getName(), index.name(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testIndexOfMissing() throws IOException {
+        EntryNameIndex index = encodedFile.indexEntryNames(CentralDirectory.read(file)).get();
+        assertEquals(-1, index.indexOf("docs/guide"));
+        assertEquals(-1, index.indexOf("do"));
+        assertEquals(-1, index.indexOf("docs/guide/c.txt"));
+        assertEquals(-1, index.indexOf(""));
+        assertEquals(NAMES.indexOf("a//b"), index.indexOf("a//b"));
+    }
+
+    /**
+     * Verifies that listing a prefix gives the same entries as filtering every
+     * name by the prefix.
+     */
+    @Test
+    void testList() throws IOException {
+        EntryNameIndex index = encodedFile.indexEntryNames(CentralDirectory.read(file)).get();
+        for (String prefix : List.of("", "d", "doc", "docs", "docs/", "docs/g", "docs/guide/", "docs/guide/a",
+                "/", "a/", "a//", "日本語/", "missing/", "docs/missing/")) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < NAMES.size(); i++) {
+                if (NAMES.get(i).startsWith(prefix)) {
+                    expected.add(i);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            for (int i : index.list(prefix)) {
+                actual.add(i);
+            }
+            Collections.sort(actual);
+            assertEquals(expected, actual, prefix);
+        }
+        assertArrayEquals(new int[] { NAMES.indexOf("docs/guide/"), NAMES.indexOf("docs/guide/a.txt"),
+                NAMES.indexOf("docs/guide/b.txt") }, index.list("docs/guide/"));
+    }
+
+    @Test
+    void testIndexEntryNamesInvalid() throws IOException {
+        File utf8File = new File("src/test/resources/testShiftJis.zip");
+        EncodedFile utf8 = new EncodedFile(utf8File, StandardCharsets.UTF_8);
+        assertTrue(utf8.indexEntryNames(CentralDirectory.read(utf8File)).isEmpty());
+    }
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        CentralDirectory directory = CentralDirectory.read(file);
+        assertTrue(EntryNameIndex.load(encodedFile, directory).isEmpty());
+        EntryNameIndex index = encodedFile.indexEntryNames(directory).get();
+        index.save();
+        assertTrue(EntryNameIndex.indexFile(file).isFile());
+
+        EntryNameIndex loaded = EntryNameIndex.load(encodedFile, directory).get();
+        assertEquals(file, loaded.file());
+        assertEquals(shiftJis, loaded.charset());
+        for (int i = 0; i < NAMES.size(); i++) {
+            assertEquals(i, loaded.indexOf(NAMES.get(i)));
+            assertEquals(NAMES.get(i), loaded.name(i));
+        }
+        assertArrayEquals(index.list("docs"), loaded.list("docs"));
+    }
+
+    /**
+     * Verifies that a saved index is not used for another charset or after the
+     * archive has changed, and that a broken one is rejected.
+     */
+    @Test
+    void testLoadStaleOrBroken() throws IOException {
+        CentralDirectory directory = CentralDirectory.read(file);
+        encodedFile.indexEntryNames(directory).get().save();
+        assertTrue(EntryNameIndex.load(new EncodedFile(file, Charset.forName("EUC-JP")), directory).isEmpty());
+
+        File other = new File(tempDir, "other.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(other), shiftJis)) {
+            stream.putNextEntry(new ZipEntry("other"));
+            stream.closeEntry();
+        }
+        assertTrue(EntryNameIndex.load(encodedFile, CentralDirectory.read(other)).isEmpty());
+
+        try (RandomAccessFile raf = new RandomAccessFile(EntryNameIndex.indexFile(file), "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+        assertThrows(IOException.class, () -> EntryNameIndex.load(encodedFile, directory));
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException {
+        EntryNameIndex index = encodedFile.indexEntryNames(CentralDirectory.read(file)).get();
+        assertThrows(NullPointerException.class, () -> index.indexOf(null));
+        assertThrows(NullPointerException.class, () -> index.list(null));
+        assertThrows(IndexOutOfBoundsException.class, () -> index.name(NAMES.size()));
+        assertThrows(NullPointerException.class, () -> encodedFile.indexEntryNames(null));
+        assertThrows(NullPointerException.class, () -> EntryNameIndex.indexFile(null));
+    }
+}
@@ -0,0 +1,87 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the FileReplacer class.
+ */
+public class FileReplacerTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testReplace() throws IOException {
+        File target = new File(tempDir, "target.txt");
+        Files.writeString(target.toPath(), "old");
+        FileReplacer.replace(target, stream -> stream.write("new".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("new", Files.readString(target.toPath()));
+        assertArrayEquals(new String[] { "target.txt" }, tempDir.list());
+    }
+
+    /**
+     * Verifies that concurrent writers of the same target each write a
+     * temporary file of their own, so that the target always holds the whole
+     * content of one of them.
+     */
+    @Test
+    void testConcurrentWriters() throws Exception {
+        File target = new File(tempDir, "target.txt");
+        List<String> contents = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            contents.add(Integer.toString(i).repeat(100000));
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(contents.size())) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String content : contents) {
+                futures.add(executor.submit(() -> {
+                    for (int k = 0; k < 20; k++) {
+                        FileReplacer.replace(target, stream -> {
+                            for (char c : content.toCharArray()) {
+                                stream.write(c);
+                            }
+                        });
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        assertTrue(contents.contains(Files.readString(target.toPath())));
+        assertArrayEquals(new String[] { "target.txt" }, tempDir.list());
+    }
+
+    /**
+     * Verifies that a failed write leaves the target as it was and deletes the
+     * temporary file.
+     */
+    @Test
+    void testFailedWrite() throws IOException {
+        File target = new File(tempDir, "target.txt");
+        Files.writeString(target.toPath(), "old");
+        assertThrows(IOException.class, () -> FileReplacer.replace(target, stream -> {
+            stream.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("disk full");
+        }));
+        assertEquals("old", Files.readString(target.toPath()));
+        assertArrayEquals(new String[] { "target.txt" }, tempDir.list());
+    }
+}
@@ -0,0 +1,234 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the NestedArchiveDetector class.
+ */
+public class NestedArchiveDetectorTest {
+    private Charset shiftJis;
+    private Charset eucJp;
+    private Charset utf8;
+    private List<Charset> charsets;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        shiftJis = Charset.forName("Shift_JIS");
+        eucJp = Charset.forName("EUC-JP");
+        utf8 = StandardCharsets.UTF_8;
+        charsets = List.of(eucJp, shiftJis, utf8);
+    }
+
+    /**
+     * Verifies that every level gets its own charset, whether the inner archive
+     * is stored or deflated.
+     */
+    @Test
+    void testDetectEachLevel() throws IOException {
+        File file = nestedFile();
+        List<NestedDetection> report = new NestedArchiveDetector(charsets, 8, 1 << 20, 1 << 20, 100).detect(file);
+        assertEquals(List.of(
+                new NestedDetection(file.getPath(), 0, NestedDetection.Source.FILE, shiftJis, FastPath.NONE, 3),
+                new NestedDetection(file.getPath() + "!/外側/内側.zip", 1, NestedDetection.Source.SLICE, eucJp,
+                        FastPath.NONE, 2),
+                new NestedDetection(file.getPath() + "!/外側/内側.zip!/深い.ZIP", 2, NestedDetection.Source.MEMORY,
+                        utf8, FastPath.EFS, 1)),
+                report);
+    }
+
+    /**
+     * Verifies that a deflated inner archive larger than the memory threshold is
+     * inflated into a temporary file and detected the same way.
+     */
+    @Test
+    void testDetectSpilled() throws IOException {
+        File file = nestedFile();
+        List<NestedDetection> report = new NestedArchiveDetector(charsets, 8, 1 << 20, 0, 100).detect(file);
+        assertEquals(NestedDetection.Source.SPILLED, report.get(2).source());
+        assertEquals(utf8, report.get(2).charset());
+        assertEquals(1, report.get(2).entries());
+    }
+
+    @Test
+    void testDepthAndSizeLimits() throws IOException {
+        File file = nestedFile();
+        List<NestedDetection> report = new NestedArchiveDetector(charsets, 1, 1 << 20, 1 << 20, 100).detect(file);
+        assertEquals(3, report.size());
+        assertEquals(NestedDetection.Source.SKIPPED, report.get(2).source());
+        assertEquals(2, report.get(2).depth());
+        assertNull(report.get(2).charset());
+
+        report = new NestedArchiveDetector(charsets, 8, 10, 1 << 20, 100).detect(file);
+        assertEquals(2, report.size());
+        assertEquals(NestedDetection.Source.SKIPPED, report.get(1).source());
+        assertEquals(-1, report.get(1).entries());
+    }
+
+    /**
+     * Verifies that the inner archives after the archive limit are skipped,
+     * however deep they are.
+     */
+    @Test
+    void testArchiveLimit() throws IOException {
+        ByteArrayOutputStream inner = new ByteArrayOutputStream();
+        try (ZipOutputStream stream = new ZipOutputStream(inner, utf8)) {
+            for (int i = 0; i < 5; i++) {
+                stored(stream, "leaf" + i + ".zip", zip(utf8, "名前.txt"));
+            }
+        }
+        File file = new File(tempDir, "many.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file), utf8)) {
+            for (int i = 0; i < 5; i++) {
+                stored(stream, "inner" + i + ".zip", inner.toByteArray());
+            }
+        }
+        assertEquals(31, new NestedArchiveDetector(charsets, 8, 1 << 20, 1 << 20, 100).detect(file).size());
+
+        List<NestedDetection> report = new NestedArchiveDetector(charsets, 8, 1 << 20, 1 << 20, 3).detect(file);
+        assertEquals(11, report.size());
+        assertEquals(3, report.stream().filter(detection -> detection.depth() > 0
+                && detection.source() != NestedDetection.Source.SKIPPED).count());
+        assertEquals(NestedDetection.Source.SKIPPED, report.get(4).source());
+        assertEquals(file.getPath() + "!/inner0.zip!/leaf2.zip", report.get(4).path());
+        assertEquals(NestedDetection.Source.SKIPPED, report.get(10).source());
+        assertEquals(file.getPath() + "!/inner4.zip", report.get(10).path());
+    }
+
+    /**
+     * Verifies that a broken inner archive is reported without a charset and the
+     * rest of the report is still produced.
+     */
+    @Test
+    void testBrokenInnerArchive() throws IOException {
+        File file = new File(tempDir, "broken.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file), shiftJis)) {
+            stream.putNextEntry(new ZipEntry("bad.zip"));
+            stream.write("not a zip file".getBytes(StandardCharsets.US_ASCII));
+            stream.putNextEntry(new ZipEntry("good.zip"));
+            stream.write(zip(utf8, "名前.txt"));
+            stream.closeEntry();
+        }
+        List<NestedDetection> report = new NestedArchiveDetector(charsets, 8, 1 << 20, 1 << 20, 100).detect(file);
+        assertEquals(3, report.size());
+        assertEquals(new NestedDetection(file.getPath() + "!/bad.zip", 1, NestedDetection.Source.MEMORY, null,
+                null, -1), report.get(1));
+        assertEquals(utf8, report.get(2).charset());
+    }
+
+    /**
+     * Verifies that an inner archive whose Zip64 END record declares an
+     * impossible number of entries is reported as broken.
+     */
+    @Test
+    void testInnerArchiveBadEntryCount() throws IOException {
+        ByteBuffer bad = ByteBuffer.allocate(98).order(ByteOrder.LITTLE_ENDIAN);
+        bad.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0).putInt(0)
+                .putLong(-1).putLong(-1).putLong(0).putLong(0);
+        bad.putInt(0x07064b50).putInt(0).putLong(0).putInt(1);
+        bad.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) -1).putShort((short) -1)
+                .putInt(0).putInt(0).putShort((short) 0);
+        File file = new File(tempDir, "count.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file), shiftJis)) {
+            stored(stream, "bad.zip", bad.array());
+            stream.putNextEntry(new ZipEntry("good.zip"));
+            stream.write(zip(utf8, "名前.txt"));
+            stream.closeEntry();
+        }
+        List<NestedDetection> report = new NestedArchiveDetector(charsets, 8, 1 << 20, 1 << 20, 100).detect(file);
+        assertEquals(3, report.size());
+        assertEquals(new NestedDetection(file.getPath() + "!/bad.zip", 1, NestedDetection.Source.SLICE, null,
+                null, -1), report.get(1));
+        assertEquals(utf8, report.get(2).charset());
+    }
+
+    @Test
+    void testDetectNotZipFile() throws IOException {
+        File file = new File(tempDir, "not.zip");
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write("not a zip file".getBytes(StandardCharsets.US_ASCII));
+        }
+        NestedArchiveDetector detector = new NestedArchiveDetector(charsets, 8, 1 << 20, 1 << 20, 100);
+        assertThrows(ZipException.class, () -> detector.detect(file));
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(NullPointerException.class, () -> new NestedArchiveDetector(null, 1, 1, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new NestedArchiveDetector(List.of(), 1, 1, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new NestedArchiveDetector(charsets, -1, 1, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new NestedArchiveDetector(charsets, 1, -1, 1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new NestedArchiveDetector(charsets, 1, 1, -1, 100));
+        assertThrows(IllegalArgumentException.class, () -> new NestedArchiveDetector(charsets, 1, 1, 1, -1));
+        assertThrows(NullPointerException.class,
+                () -> new NestedArchiveDetector(charsets, 1, 1, 1, 100).detect(null));
+    }
+
+    /**
+     * Writes a Shift_JIS archive which stores an EUC-JP archive, which in turn
+     * holds a deflated UTF-8 archive.
+     */
+    private File nestedFile() throws IOException {
+        byte[] deepest = zip(utf8, "一番奥.txt");
+        ByteArrayOutputStream inner = new ByteArrayOutputStream();
+        try (ZipOutputStream stream = new ZipOutputStream(inner, eucJp)) {
+            stream.putNextEntry(new ZipEntry("説明.txt"));
+            stream.write("hello".getBytes(StandardCharsets.US_ASCII));
+            stream.putNextEntry(new ZipEntry("深い.ZIP"));
+            stream.write(deepest);
+            stream.closeEntry();
+        }
+        File file = new File(tempDir, "nested.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file), shiftJis)) {
+            stream.putNextEntry(new ZipEntry("外側/"));
+            stream.putNextEntry(new ZipEntry("外側/表.txt"));
+            stream.write("hello".getBytes(StandardCharsets.US_ASCII));
+            stored(stream, "外側/内側.zip", inner.toByteArray());
+        }
+        return file;
+    }
+
+    private static byte[] zip(Charset charset, String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream stream = new ZipOutputStream(bytes, charset)) {
+            stream.putNextEntry(new ZipEntry(name));
+            stream.write("hello".getBytes(StandardCharsets.US_ASCII));
+            stream.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void stored(ZipOutputStream stream, String name, byte[] data) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCrc(crc.getValue());
+        stream.putNextEntry(entry);
+        stream.write(data);
+        stream.closeEntry();
+    }
+}
@@ -0,0 +1,223 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the ParallelZipWriter class.
+ */
+public class ParallelZipWriterTest {
+    private Map<String, byte[]> contents;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(0);
+        byte[] noise = new byte[ParallelZipWriter.BLOCK_SIZE * 2 + 12345];
+        random.nextBytes(noise);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < ParallelZipWriter.BLOCK_SIZE * 5) {
+            text.append("日本語のテキスト ").append(random.nextInt(1000)).append('\n');
+        }
+        contents = new LinkedHashMap<>();
+        contents.put("空.txt", new byte[0]);
+        contents.put("ディレクトリ/", new byte[0]);
+        contents.put("ディレクトリ/小さい.txt", "日本語".getBytes(StandardCharsets.UTF_8));
+        contents.put("ディレクトリ/テキスト.txt", text.toString().getBytes(StandardCharsets.UTF_8));
+        contents.put("noise.bin", noise);
+        contents.put("exact.bin", new byte[ParallelZipWriter.BLOCK_SIZE]);
+    }
+
+    /**
+     * Verifies that ZipFile and ZipInputStream read back every entry written in
+     * each charset, including entries of several blocks.
+     */
+    @Test
+    void testRoundTrip() throws IOException {
+        for (Charset charset : List.of(Charset.forName("Shift_JIS"), Charset.forName("EUC-JP"),
+                StandardCharsets.UTF_8)) {
+            EncodedFile encodedFile = new EncodedFile(new File(tempDir, charset.name() + ".zip"), charset);
+            try (ParallelZipWriter writer = encodedFile.openParallelZipWriter(1 << 20)) {
+                for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                    writer.putEntry(entry.getKey(), new ByteArrayInputStream(entry.getValue()));
+                }
+            }
+            assertContents(encodedFile);
+            assertTrue(encodedFile.validateEntryNames(CentralDirectory.read(encodedFile.file())));
+        }
+    }
+
+    /**
+     * Verifies that the blocks of an entry compress about as well as a single
+     * deflater, thanks to the dictionaries.
+     */
+    @Test
+    void testCompressionRatio() throws IOException {
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "ratio.zip"), StandardCharsets.UTF_8);
+        byte[] text = contents.get("ディレクトリ/テキスト.txt");
+        try (ParallelZipWriter writer = encodedFile.openParallelZipWriter(1 << 20)) {
+            writer.putEntry("text.txt", text);
+        }
+        File single = new File(tempDir, "single.zip");
+        try (var stream = new EncodedFile(single, StandardCharsets.UTF_8).openZipOutputStream()) {
+            stream.putNextEntry(new ZipEntry("text.txt"));
+            stream.write(text);
+            stream.closeEntry();
+        }
+        try (ZipFile parallel = encodedFile.openZipFile(); ZipFile reference = new ZipFile(single)) {
+            long compressed = parallel.getEntry("text.txt").getCompressedSize();
+            long expected = reference.getEntry("text.txt").getCompressedSize();
+            assertTrue(compressed < expected * 11 / 10, compressed + " > " + expected);
+        }
+    }
+
+    /**
+     * Verifies that a budget smaller than one block still writes the archive,
+     * and that a caller's executor is not shut down.
+     */
+    @Test
+    void testSmallMemoryBudget() throws IOException {
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "small.zip"), Charset.forName("Shift_JIS"));
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            try (ParallelZipWriter writer = encodedFile.openParallelZipWriter(executor, 1)) {
+                for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                    writer.putEntry(entry.getKey(), entry.getValue());
+                }
+            }
+            assertEquals("open", executor.submit(() -> "open").get());
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        assertContents(encodedFile);
+    }
+
+    /**
+     * Verifies that many tiny entries waiting to be deflated hold about the
+     * memory they are charged, not a whole block each.
+     */
+    @Test
+    void testManyTinyEntriesInFlight() throws Exception {
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "tiny.zip"), StandardCharsets.UTF_8);
+        int count = 1000;
+        CountDownLatch gate = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            // Holds back every block until all the entries are put.
+            executor.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long before = runtime.totalMemory() - runtime.freeMemory();
+            try (ParallelZipWriter writer = encodedFile.openParallelZipWriter(executor, 1 << 20)) {
+                try {
+                    for (int i = 0; i < count; i++) {
+                        writer.putEntry(i + ".txt", ("entry " + i).getBytes(StandardCharsets.US_ASCII));
+                    }
+                    System.gc();
+                    long held = runtime.totalMemory() - runtime.freeMemory() - before;
+                    // A whole block each would be 1000 * 128 KiB = 125 MiB.
+                    assertTrue(held < 32L << 20, held + " bytes held");
+                } finally {
+                    gate.countDown();
+                }
+            }
+        }
+        try (ZipFile zipFile = encodedFile.openZipFile()) {
+            assertEquals(count, zipFile.size());
+        }
+    }
+
+    @Test
+    void testFailedEntry() throws IOException {
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "failed.zip"), StandardCharsets.UTF_8);
+        ParallelZipWriter writer = encodedFile.openParallelZipWriter(1 << 20);
+        writer.putEntry("ok.txt", new byte[10]);
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken");
+            }
+        };
+        assertThrows(IOException.class, () -> writer.putEntry("broken.txt", broken));
+        assertThrows(IllegalStateException.class, () -> writer.putEntry("next.txt", new byte[0]));
+        writer.close();
+        writer.close();
+        assertThrows(IllegalStateException.class, () -> writer.putEntry("next.txt", new byte[0]));
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException {
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "invalid.zip"), Charset.forName("Shift_JIS"));
+        assertThrows(IllegalArgumentException.class, () -> encodedFile.openParallelZipWriter(0));
+        assertThrows(NullPointerException.class, () -> encodedFile.openParallelZipWriter(null, 1));
+        try (ParallelZipWriter writer = encodedFile.openParallelZipWriter(1 << 20)) {
+            writer.putEntry("a.txt", new byte[0]);
+            assertThrows(ZipException.class, () -> writer.putEntry("a.txt", new byte[0]));
+            assertThrows(ZipException.class, () -> writer.putEntry("🧦.txt", new byte[0]));
+            assertThrows(NullPointerException.class, () -> writer.putEntry(null, new byte[0]));
+            assertThrows(NullPointerException.class, () -> writer.putEntry("b.txt", (byte[]) null));
+            writer.putEntry("b.txt", new byte[0]);
+        }
+        try (ZipFile zipFile = encodedFile.openZipFile()) {
+            assertEquals(2, zipFile.size());
+        }
+    }
+
+    private void assertContents(EncodedFile encodedFile) throws IOException {
+        try (ZipFile zipFile = encodedFile.openZipFile()) {
+            List<String> names = new ArrayList<>();
+            zipFile.stream().forEach(entry -> names.add(entry.getName()));
+            assertEquals(new ArrayList<>(contents.keySet()), names);
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                ZipEntry zipEntry = zipFile.getEntry(entry.getKey());
+                CRC32 crc = new CRC32();
+                crc.update(entry.getValue());
+                assertEquals(crc.getValue(), zipEntry.getCrc(), entry.getKey());
+                try (InputStream stream = zipFile.getInputStream(zipEntry)) {
+                    assertArrayEquals(entry.getValue(), stream.readAllBytes(), entry.getKey());
+                }
+            }
+        }
+        try (ZipInputStream stream = encodedFile.openZipInputStream()) {
+            for (Map.Entry<String, byte[]> entry : contents.entrySet()) {
+                ZipEntry zipEntry = stream.getNextEntry();
+                assertEquals(entry.getKey(), zipEntry.getName());
+                assertArrayEquals(entry.getValue(), stream.readAllBytes(), entry.getKey());
+            }
+            assertNull(stream.getNextEntry());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the ProgressiveDetector class.
+ */
+public class ProgressiveDetectorTest {
+    private static final int ENTRIES = 10000;
+
+    private Charset shiftJis;
+    private Charset eucJp;
+    private Charset utf8;
+    private File lateFile;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        shiftJis = Charset.forName("Shift_JIS");
+        eucJp = Charset.forName("EUC-JP");
+        utf8 = StandardCharsets.UTF_8;
+        // The names are ASCII but for the last 30%, where a full validation in
+        // directory order would only reject a wrong charset.
+        lateFile = new File(tempDir, "late.zip");
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(lateFile), shiftJis)) {
+            for (int i = 0; i < ENTRIES; i++) {
+                stream.putNextEntry(new ZipEntry(i < ENTRIES * 7 / 10 ? "ascii/" + i : "日本語/表示" + i));
+                stream.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Verifies that a complete detection gives the same charset as
+     * findFirstValidZipFile for every fixture and candidate order.
+     */
+    @Test
+    void testMatchesFullDetection() throws IOException {
+        List<File> files = List.of(new File("src/test/resources/testShiftJis.zip"),
+                new File("src/test/resources/testEucJp.zip"), new File("src/test/resources/testUtf8.zip"),
+                new File("src/test/resources/test.zip"), lateFile);
+        List<List<Charset>> orders = List.of(List.of(shiftJis, eucJp, utf8), List.of(utf8, eucJp, shiftJis),
+                List.of(eucJp, utf8, shiftJis), List.of(utf8, StandardCharsets.UTF_16BE));
+        for (File file : files) {
+            for (List<Charset> order : orders) {
+                for (int sampleSize : new int[] { 0, 1, 16, 1000000 }) {
+                    ProgressiveDetection detection = new ProgressiveDetector(order, sampleSize,
+                            Duration.ofDays(1), Long.MAX_VALUE).detect(file);
+                    Optional<EncodedFile> expected = new EncodedFileList(new ArrayList<>())
+                            .collectFile(file, order.toArray(Charset[]::new)).findFirstValidZipFile();
+                    String message = file.getName() + " by " + order + " with " + sampleSize;
+                    assertTrue(detection.complete(), message);
+                    assertEquals(expected.map(EncodedFile::charset), detection.charset(), message);
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that the sample rejects a wrong charset whose first bad name is
+     * deep in the central directory, so that the right charset is found with
+     * little more than one pass.
+     */
+    @Test
+    void testSampleRejectsEarly() throws IOException {
+        ProgressiveDetection detection = new ProgressiveDetector(List.of(utf8, eucJp, shiftJis), 64,
+                Duration.ofDays(1), Long.MAX_VALUE).detect(lateFile);
+        assertTrue(detection.complete());
+        assertEquals(List.of(shiftJis), detection.survivors());
+        assertEquals(ENTRIES, detection.entries());
+        assertTrue(detection.checked() < ENTRIES + 3 * 64, Long.toString(detection.checked()));
+
+        ProgressiveDetection sequential = new ProgressiveDetector(List.of(utf8, eucJp, shiftJis), 0,
+                Duration.ofDays(1), Long.MAX_VALUE).detect(lateFile);
+        assertEquals(Optional.of(shiftJis), sequential.charset());
+        assertTrue(sequential.checked() > ENTRIES * 2, Long.toString(sequential.checked()));
+    }
+
+    @Test
+    void testEntryBudget() throws IOException {
+        ProgressiveDetection detection = new ProgressiveDetector(List.of(utf8, shiftJis), 64, Duration.ofDays(1),
+                500).detect(lateFile);
+        assertFalse(detection.complete());
+        assertEquals(500, detection.checked());
+        assertEquals(Optional.of(shiftJis), detection.charset());
+
+        ProgressiveDetection none = new ProgressiveDetector(List.of(utf8, shiftJis), 64, Duration.ofDays(1), 0)
+                .detect(lateFile);
+        assertFalse(none.complete());
+        assertEquals(List.of(utf8, shiftJis), none.survivors());
+    }
+
+    /**
+     * Verifies that the detection stops when the clock passes the time budget,
+     * keeping the candidates which have not been rejected.
+     */
+    @Test
+    void testTimeBudget() throws IOException {
+        AtomicLong clock = new AtomicLong();
+        ProgressiveDetector detector = new ProgressiveDetector(List.of(utf8, shiftJis), 16,
+                Duration.ofMillis(10), Long.MAX_VALUE, () -> clock.getAndAdd(Duration.ofMillis(1).toNanos()));
+        ProgressiveDetection detection = detector.detect(CentralDirectory.read(lateFile));
+        assertFalse(detection.complete());
+        assertTrue(detection.checked() > 0 && detection.checked() < ENTRIES, Long.toString(detection.checked()));
+        assertEquals(Optional.of(shiftJis), detection.charset());
+    }
+
+    @Test
+    void testNoSurvivor() throws IOException {
+        ProgressiveDetection detection = new ProgressiveDetector(List.of(utf8), 64, Duration.ofDays(1),
+                Long.MAX_VALUE).detect(lateFile);
+        assertTrue(detection.complete());
+        assertTrue(detection.survivors().isEmpty());
+        assertTrue(detection.charset().isEmpty());
+    }
+
+    @Test
+    void testSample() {
+        int[] sample = ProgressiveDetector.sample(1000, 10);
+        assertEquals(10, sample.length);
+        for (int k = 0; k < sample.length; k++) {
+            assertTrue(sample[k] >= k * 100 && sample[k] < (k + 1) * 100, Integer.toString(sample[k]));
+        }
+        assertArrayEquals(sample, ProgressiveDetector.sample(1000, 10));
+        assertArrayEquals(new int[] { 0, 1, 2 }, ProgressiveDetector.sample(3, 10));
+        assertEquals(0, ProgressiveDetector.sample(1000, 0).length);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        Duration budget = Duration.ofSeconds(1);
+        assertThrows(NullPointerException.class, () -> new ProgressiveDetector(null, 1, budget, 1));
+        assertThrows(NullPointerException.class, () -> new ProgressiveDetector(List.of(utf8), 1, null, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ProgressiveDetector(List.of(), 1, budget, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ProgressiveDetector(List.of(utf8), -1, budget, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProgressiveDetector(List.of(utf8), 1, Duration.ofSeconds(-1), 1));
+        assertThrows(IllegalArgumentException.class, () -> new ProgressiveDetector(List.of(utf8), 1, budget, -1));
+        ProgressiveDetector detector = new ProgressiveDetector(List.of(utf8), 1, budget, 1);
+        assertThrows(NullPointerException.class, () -> detector.detect((File) null));
+        assertThrows(NullPointerException.class, () -> detector.detect((CentralDirectory) null));
+        assertThrows(IOException.class, () -> detector.detect(new File(tempDir, "missing.zip")));
+    }
+}
@@ -0,0 +1,199 @@
+package java_practice01;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates the archives of the scale tests. The names are built from a fixed
+ * seed, so the same parameters always give the same archive, which is
+ * generated only once and kept in the directory given by the
+ * {@code scale.fixtures} system property.
+ */
+final class ScaleFixtures {
+
+    /**
+     * The kinds of generated archives.
+     */
+    enum Kind {
+        /**
+         * Entries in directories 4 to 16 levels deep whose names mix ASCII and
+         * Japanese characters.
+         */
+        DEEP,
+        /**
+         * Entries with ASCII names but the last one, which is Japanese, so that a
+         * wrong charset is only rejected after every other name.
+         */
+        TRAP
+    }
+
+    /**
+     * The characters of the Japanese name segments. All of them can be encoded
+     * by Shift_JIS, EUC-JP and UTF-8, and several of them are double-byte
+     * characters whose Shift_JIS bytes are also valid EUC-JP, and whose EUC-JP
+     * bytes are also valid Shift_JIS.
+     */
+    private static final String JAPANESE = "日本語表示漢字文書資料画像写真会議報告一覧ソ十能予申"
+            + "あいうえおかきくけこアイウエオカキクケコ";
+
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyz0123456789_-";
+
+    private static final int ENTRIES_PER_DIRECTORY = 100;
+
+    private ScaleFixtures() {
+    }
+
+    /**
+     * Returns the directory the archives are kept in.
+     *
+     * @return the directory
+     */
+    static File directory() {
+        String path = System.getProperty("scale.fixtures");
+        return path != null ? new File(path)
+                : new File(System.getProperty("java.io.tmpdir"), "java_practice01-scale");
+    }
+
+    /**
+     * Returns an archive of empty entries whose names are encoded by the given
+     * charset.
+     *
+     * @param kind    the kind of names
+     * @param entries the number of entries
+     * @param charset the charset of the entry names
+     * @return the zip file
+     * @throws IOException if an I/O error occurs
+     */
+    static File get(Kind kind, int entries, Charset charset) throws IOException {
+        File file = new File(directory(), kind + "-" + entries + "-" + charset.name() + ".zip");
+        if (file.isFile()) {
+            return file;
+        }
+        File temp = createTemp(file);
+        Random random = new Random(entries * 31L + kind.ordinal());
+        CRC32 emptyCrc = new CRC32();
+        try (ZipOutputStream stream = new ZipOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 1 << 16), charset)) {
+            String directory = "";
+            for (int i = 0; i < entries; i++) {
+                String name;
+                if (kind == Kind.DEEP) {
+                    if (i % ENTRIES_PER_DIRECTORY == 0) {
+                        directory = path(random, 4 + random.nextInt(13));
+                    }
+                    name = directory + segment(random, JAPANESE) + "-" + i + ".txt";
+                } else if (i < entries - 1) {
+                    name = "ascii/" + segment(random, ASCII) + "/" + i + ".txt";
+                } else {
+                    name = "最後/" + segment(random, JAPANESE) + ".txt";
+                }
+                ZipEntry entry = new ZipEntry(name);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(0);
+                entry.setCrc(emptyCrc.getValue());
+                stream.putNextEntry(entry);
+                stream.closeEntry();
+            }
+        }
+        return rename(temp, file);
+    }
+
+    /**
+     * Returns an archive with a deflated entry whose size needs Zip64 records,
+     * between a few small entries whose names are encoded by the given charset.
+     *
+     * @param size    the size of the large entry
+     * @param charset the charset of the entry names
+     * @return the zip file
+     * @throws IOException if an I/O error occurs
+     */
+    static File getZip64(long size, Charset charset) throws IOException {
+        File file = new File(directory(), "ZIP64-" + size + "-" + charset.name() + ".zip");
+        if (file.isFile()) {
+            return file;
+        }
+        File temp = createTemp(file);
+        try (ParallelZipWriter writer = new EncodedFile(temp, charset).openParallelZipWriter(64L << 20)) {
+            writer.putEntry("先頭/資料.txt", "資料".getBytes(charset));
+            writer.putEntry("大きい/ゼロ.bin", new Zeros(size));
+            writer.putEntry("末尾/一覧.txt", new byte[0]);
+        }
+        return rename(temp, file);
+    }
+
+    private static File createTemp(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+        return File.createTempFile(file.getName(), ".tmp", dir);
+    }
+
+    private static File rename(File temp, File file) throws IOException {
+        if (!temp.renameTo(file)) {
+            throw new IOException("Failed to create " + file);
+        }
+        return file;
+    }
+
+    private static String path(Random random, int depth) {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            path.append(segment(random, random.nextBoolean() ? ASCII : JAPANESE)).append('/');
+        }
+        return path.toString();
+    }
+
+    private static String segment(Random random, String alphabet) {
+        int length = 1 + random.nextInt(12);
+        StringBuilder segment = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            segment.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return segment.toString();
+    }
+
+    /**
+     * A stream of zeros of a given length, which fills whole buffers at once.
+     */
+    private static final class Zeros extends InputStream {
+
+        private long remaining;
+
+        Zeros(long length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() {
+            if (remaining == 0) {
+                return -1;
+            }
+            remaining--;
+            return 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, remaining);
+            Arrays.fill(b, off, off + n, (byte) 0);
+            remaining -= n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains scale tests on generated archives of 100k to 1M
+ * entries. They check the detection against ZipFile for every ordering of the
+ * candidate charsets, and the heap and time budgets of the detection. They are
+ * tagged "scale" and run by the scaleTest task, not by the test task.
+ *
+ * <p>
+ * The sizes and budgets can be changed by system properties:
+ * {@code scale.entries} is a comma-separated list of entry counts,
+ * {@code scale.zip64Size} the size of the Zip64 entry,
+ * {@code scale.nanosPerEntry} the time budget per entry and candidate charset,
+ * and {@code scale.bytesPerEntry} the heap allocation budget per entry.
+ */
+@Tag("scale")
+public class ScaleTest {
+    private static final List<Charset> CHARSETS = List.of(Charset.forName("Shift_JIS"),
+            Charset.forName("EUC-JP"), StandardCharsets.UTF_8);
+
+    /**
+     * The verdicts of ZipFile by archive and charset, so that each is computed
+     * only once for all orderings.
+     */
+    private final Map<String, Boolean> verdicts = new HashMap<>();
+
+    /**
+     * Verifies that findFirstValidZipFile and availables agree with ZipFile for
+     * every ordering of the candidate charsets, and that the charset an archive
+     * was written in is always found valid.
+     */
+    @Test
+    void testDetectionEveryOrdering() throws IOException {
+        for (int entries : entryCounts()) {
+            for (ScaleFixtures.Kind kind : ScaleFixtures.Kind.values()) {
+                for (Charset charset : CHARSETS) {
+                    File file = ScaleFixtures.get(kind, entries, charset);
+                    assertTrue(isValidByZipFile(file, charset), file.getName());
+                    assertDetection(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifies that an archive with Zip64 sizes is detected and read as ZipFile
+     * reads it.
+     */
+    @Test
+    void testZip64() throws IOException {
+        long size = Long.getLong("scale.zip64Size", (1L << 32) + 1);
+        for (Charset charset : CHARSETS) {
+            File file = ScaleFixtures.getZip64(size, charset);
+            assertTrue(isValidByZipFile(file, charset), file.getName());
+            assertDetection(file);
+            CentralDirectory directory = CentralDirectory.read(file);
+            assertEquals(3, directory.size());
+            try (ZipFile zipFile = new EncodedFile(file, charset).openZipFile()) {
+                ZipEntry entry = zipFile.getEntry("大きい/ゼロ.bin");
+                assertEquals(size, entry.getSize());
+            }
+        }
+    }
+
+    /**
+     * Verifies the time and heap allocation of findFirstValidZipFile and
+     * availables on the deep archives, with the charset of the archive tried
+     * last so that every candidate is validated.
+     */
+    @Test
+    void testBudgets() throws IOException {
+        long nanosPerEntry = Long.getLong("scale.nanosPerEntry", 2000);
+        long bytesPerEntry = Long.getLong("scale.bytesPerEntry", 512);
+        for (int entries : entryCounts()) {
+            File file = ScaleFixtures.get(ScaleFixtures.Kind.DEEP, entries, CHARSETS.get(0));
+            EncodedFileList list = new EncodedFileList(new ArrayList<>())
+                    .collectFile(file, CHARSETS.reversed().toArray(Charset[]::new));
+            // The names are read once and validated for every candidate.
+            long maxNanos = (long) entries * CHARSETS.size() * nanosPerEntry;
+            long maxBytes = (long) entries * bytesPerEntry;
+            assertBudget("findFirstValidZipFile " + entries, () -> list.findFirstValidZipFile().isPresent(),
+                    maxNanos, maxBytes);
+            assertBudget("availables " + entries, () -> list.availables().size() == 1, maxNanos, maxBytes);
+        }
+    }
+
+    private void assertDetection(File file) throws IOException {
+        for (List<Charset> ordering : permutations(CHARSETS)) {
+            EncodedFileList list = new EncodedFileList(new ArrayList<>())
+                    .collectFile(file, ordering.toArray(Charset[]::new));
+            List<EncodedFile> expected = new ArrayList<>();
+            for (Charset charset : ordering) {
+                if (isValidByZipFile(file, charset)) {
+                    expected.add(new EncodedFile(file, charset));
+                }
+            }
+            String message = file.getName() + " by " + ordering;
+            assertEquals(expected.stream().findFirst(), list.findFirstValidZipFile(), message);
+            assertEquals(expected, new ArrayList<>(list.availables()), message);
+        }
+    }
+
+    /**
+     * Validates the entry names the slow way, through ZipFile, as the reference
+     * for the detection.
+     */
+    private boolean isValidByZipFile(File file, Charset charset) throws IOException {
+        String key = file.getName() + "/" + charset.name();
+        Boolean verdict = verdicts.get(key);
+        if (verdict == null) {
+            EncodedFile encodedFile = new EncodedFile(file, charset);
+            try (ZipFile zipFile = encodedFile.openZipFile()) {
+                verdict = encodedFile.validateEntryNames(zipFile);
+            } catch (ZipException | IllegalArgumentException e) {
+                verdict = false;
+            }
+            verdicts.put(key, verdict);
+        }
+        return verdict;
+    }
+
+    /**
+     * Runs the detection once to warm up and once measured, and checks the
+     * elapsed time and, where the JVM can tell, the bytes allocated by the
+     * calling thread.
+     */
+    private static void assertBudget(String name, Supplier<Boolean> detection, long maxNanos, long maxBytes) {
+        assertTrue(detection.get(), name);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        boolean measured = threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled();
+        long allocated = measured ? threads.getCurrentThreadAllocatedBytes() : 0;
+        long start = System.nanoTime();
+        assertTrue(detection.get(), name);
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed <= maxNanos, name + " took " + elapsed + " ns, budget " + maxNanos + " ns");
+        if (measured) {
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+            assertTrue(allocated <= maxBytes,
+                    name + " allocated " + allocated + " bytes, budget " + maxBytes + " bytes");
+        }
+    }
+
+    private static List<Integer> entryCounts() {
+        List<Integer> counts = new ArrayList<>();
+        for (String count : System.getProperty("scale.entries", "100000,1000000").split(",")) {
+            counts.add(Integer.parseInt(count.trim()));
+        }
+        return counts;
+    }
+
+    private static <T> List<List<T>> permutations(List<T> items) {
+        if (items.isEmpty()) {
+            return List.of(List.of());
+        }
+        List<List<T>> result = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            List<T> rest = new ArrayList<>(items);
+            T first = rest.remove(i);
+            for (List<T> tail : permutations(rest)) {
+                List<T> permutation = new ArrayList<>();
+                permutation.add(first);
+                permutation.addAll(tail);
+                result.add(permutation);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,122 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the StreamingCharsetDetector class.
+ */
+public class StreamingCharsetDetectorTest {
+    private Charset shiftJis;
+    private Charset eucJp;
+    private Charset utf8;
+    private List<Charset> candidates;
+
+    @BeforeEach
+    void setUp() {
+        shiftJis = Charset.forName("Shift_JIS");
+        eucJp = Charset.forName("EUC-JP");
+        utf8 = StandardCharsets.UTF_8;
+        candidates = Arrays.asList(utf8, eucJp, shiftJis);
+    }
+
+    private byte[] zip(Charset charset, int method, String... names) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream stream = new ZipOutputStream(bytes, charset)) {
+            byte[] data = "data ".repeat(1000).getBytes(StandardCharsets.US_ASCII);
+            for (String name : names) {
+                ZipEntry entry = new ZipEntry(name);
+                entry.setMethod(method);
+                if (method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(data);
+                    entry.setSize(data.length);
+                    entry.setCrc(crc.getValue());
+                }
+                stream.putNextEntry(entry);
+                stream.write(data);
+                stream.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Verifies that deflated entries with data descriptors are skipped and that
+     * every entry is read when the candidates cannot be told apart earlier.
+     */
+    @Test
+    void testDetectDeflated() throws IOException {
+        byte[] zip = zip(shiftJis, ZipEntry.DEFLATED, "a.txt", "b/c.txt", "表示.txt");
+        StreamingDetection result = new StreamingCharsetDetector(candidates, 10)
+                .detect(new ByteArrayInputStream(zip));
+        assertEquals(Optional.of(shiftJis), result.charset());
+        assertEquals(3, result.entries());
+        assertFalse(result.complete());
+    }
+
+    @Test
+    void testDetectStoredComplete() throws IOException {
+        byte[] zip = zip(eucJp, ZipEntry.STORED, "a.txt", "b/c.txt", "d.txt");
+        StreamingDetection result = new StreamingCharsetDetector(Arrays.asList(eucJp, shiftJis), 10)
+                .detect(new ByteArrayInputStream(zip));
+        assertEquals(Arrays.asList(eucJp, shiftJis), result.survivors());
+        assertEquals(3, result.entries());
+        assertTrue(result.complete());
+    }
+
+    @Test
+    void testDetectStopsAtThreshold() throws IOException {
+        Charset latin1 = StandardCharsets.ISO_8859_1;
+        byte[] zip = zip(latin1, ZipEntry.DEFLATED, "café1.txt", "café2.txt", "café3.txt");
+        StreamingDetection result = new StreamingCharsetDetector(
+                Arrays.asList(latin1, Charset.forName("windows-1252")), 2).detect(new ByteArrayInputStream(zip));
+        assertEquals(Optional.of(latin1), result.charset());
+        assertEquals(2, result.survivors().size());
+        assertEquals(2, result.entries());
+        assertFalse(result.complete());
+    }
+
+    /**
+     * Verifies that the result agrees with the detection on the central
+     * directory for the fixture files.
+     */
+    @Test
+    void testDetectFixtures() throws IOException {
+        for (String name : Arrays.asList("testEucJp.zip", "testShiftJis.zip", "testUtf8.zip")) {
+            java.io.File file = new java.io.File("src/test/resources/" + name);
+            try (InputStream stream = new FileInputStream(file)) {
+                StreamingDetection result = new StreamingCharsetDetector(candidates, 100).detect(stream);
+                Optional<EncodedFile> expected = new EncodedFileList(new java.util.ArrayList<>())
+                        .collect(Arrays.asList(file), candidates).findFirstValidZipFile();
+                assertEquals(expected.map(EncodedFile::charset), result.charset(), name);
+            }
+        }
+    }
+
+    @Test
+    void testIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingCharsetDetector(Arrays.asList(), 1));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingCharsetDetector(candidates, 0));
+        assertThrows(NullPointerException.class, () -> new StreamingCharsetDetector(null, 1));
+    }
+}
@@ -0,0 +1,252 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the ZipExtractor class.
+ */
+public class ZipExtractorTest {
+
+    @TempDir
+    File tempDir;
+
+    /**
+     * Verifies that the sample archives are extracted with the names ZipFile
+     * gives and the same contents.
+     */
+    @Test
+    void testExtractSamples() throws IOException {
+        String[][] samples = {
+                { "src/test/resources/testEucJp.zip", "EUC-JP" },
+                { "src/test/resources/testShiftJis.zip", "Shift_JIS" },
+                { "src/test/resources/testUtf8.zip", "UTF-8" },
+        };
+        for (String[] sample : samples) {
+            EncodedFile encodedFile = new EncodedFile(new File(sample[0]), Charset.forName(sample[1]));
+            File target = new File(tempDir, sample[1]);
+            encodedFile.extractTo(target, 4);
+            assertExtracted(encodedFile, target);
+        }
+    }
+
+    @Test
+    void testExtractWithExecutor() throws IOException {
+        EncodedFile encodedFile = createArchive(new File(tempDir, "many.zip"), 50);
+        File target = new File(tempDir, "out");
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            encodedFile.extractTo(target, executor, 3);
+        } finally {
+            executor.shutdown();
+        }
+        assertExtracted(encodedFile, target);
+    }
+
+    /**
+     * Verifies that a stored entry larger than the split size is copied in parts
+     * which make up the whole entry.
+     */
+    @Test
+    void testExtractSplitStoredEntry() throws IOException {
+        byte[] content = new byte[(int) (2 * ZipExtractor.SPLIT_SIZE + 12345)];
+        new Random(42).nextBytes(content);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "stored.zip"), StandardCharsets.UTF_8);
+        try (ZipOutputStream stream = encodedFile.openZipOutputStream()) {
+            ZipEntry entry = new ZipEntry("large.bin");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCrc(crc.getValue());
+            stream.putNextEntry(entry);
+            stream.write(content);
+            stream.closeEntry();
+        }
+        File target = new File(tempDir, "out");
+        encodedFile.extractTo(target, 4);
+        assertArrayEquals(content, Files.readAllBytes(new File(target, "large.bin").toPath()));
+    }
+
+    /**
+     * Verifies that a stored entry whose data does not match its CRC-32 is
+     * rejected, whether it is copied whole or in parts.
+     */
+    @Test
+    void testExtractStoredEntryBadCrc() throws IOException {
+        for (int length : new int[] { 1000, (int) (2 * ZipExtractor.SPLIT_SIZE + 12345) }) {
+            byte[] content = new byte[length];
+            new Random(42).nextBytes(content);
+            File file = writeStored(new File(tempDir, "bad" + length + ".zip"), content);
+            byte[] archive = Files.readAllBytes(file.toPath());
+            // The data follows the 30-byte local header and the 9-byte name.
+            archive[30 + 9 + length - 100] ^= 1;
+            Files.write(file.toPath(), archive);
+            EncodedFile encodedFile = new EncodedFile(file, StandardCharsets.UTF_8);
+            assertThrows(ZipException.class, () -> encodedFile.extractTo(new File(tempDir, "out"), 4));
+        }
+    }
+
+    /**
+     * Verifies that a stored entry whose compressed and uncompressed sizes
+     * differ is rejected before anything is copied.
+     */
+    @Test
+    void testExtractStoredEntryBadSize() throws IOException {
+        File file = writeStored(new File(tempDir, "size.zip"), "content".getBytes(StandardCharsets.UTF_8));
+        byte[] archive = Files.readAllBytes(file.toPath());
+        CentralDirectory directory = CentralDirectory.read(file);
+        // The uncompressed size of the only central header, which directly
+        // precedes the END header.
+        int cen = archive.length - 22 - directory.byteSize();
+        archive[cen + 24]++;
+        Files.write(file.toPath(), archive);
+        EncodedFile encodedFile = new EncodedFile(file, StandardCharsets.UTF_8);
+        File target = new File(tempDir, "out");
+        assertThrows(ZipException.class, () -> encodedFile.extractTo(target, 1));
+        assertFalse(new File(target, "large.bin").exists());
+    }
+
+    /**
+     * Verifies that combined CRC-32 values equal the CRC-32 of the
+     * concatenated bytes.
+     */
+    @Test
+    void testCombineCrc32() {
+        byte[] bytes = new byte[100000];
+        new Random(7).nextBytes(bytes);
+        CRC32 whole = new CRC32();
+        whole.update(bytes);
+        for (int split : new int[] { 0, 1, 17, 65536, 99999, 100000 }) {
+            CRC32 first = new CRC32();
+            first.update(bytes, 0, split);
+            CRC32 second = new CRC32();
+            second.update(bytes, split, bytes.length - split);
+            assertEquals(whole.getValue(),
+                    ZipExtractor.combineCrc32(first.getValue(), second.getValue(), bytes.length - split));
+        }
+    }
+
+    @Test
+    void testExtractKeepsTimestamps() throws IOException {
+        FileTime fileTime = FileTime.from(Instant.parse("2020-02-29T12:34:56Z"));
+        FileTime directoryTime = FileTime.from(Instant.parse("2019-01-01T00:00:00Z"));
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "times.zip"), StandardCharsets.UTF_8);
+        try (ZipOutputStream stream = encodedFile.openZipOutputStream()) {
+            stream.putNextEntry(new ZipEntry("dir/").setLastModifiedTime(directoryTime));
+            stream.closeEntry();
+            stream.putNextEntry(new ZipEntry("dir/file.txt").setLastModifiedTime(fileTime));
+            stream.write("content".getBytes(StandardCharsets.UTF_8));
+            stream.closeEntry();
+        }
+        File target = new File(tempDir, "out");
+        encodedFile.extractTo(target, 2);
+        assertEquals(fileTime, Files.getLastModifiedTime(new File(target, "dir/file.txt").toPath()));
+        assertEquals(directoryTime, Files.getLastModifiedTime(new File(target, "dir").toPath()));
+    }
+
+    /**
+     * Verifies that an entry whose name escapes the target directory is
+     * rejected before anything is written.
+     */
+    @Test
+    void testExtractZipSlip() throws IOException {
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "slip.zip"), StandardCharsets.UTF_8);
+        try (ZipOutputStream stream = encodedFile.openZipOutputStream()) {
+            stream.putNextEntry(new ZipEntry("good.txt"));
+            stream.closeEntry();
+            stream.putNextEntry(new ZipEntry("dir/../../evil.txt"));
+            stream.closeEntry();
+        }
+        File target = new File(tempDir, "out");
+        assertThrows(ZipException.class, () -> encodedFile.extractTo(target, 2));
+        assertFalse(new File(tempDir, "evil.txt").exists());
+        assertFalse(new File(target, "good.txt").exists());
+    }
+
+    @Test
+    void testExtractAbsoluteName() throws IOException {
+        EncodedFile encodedFile = new EncodedFile(new File(tempDir, "absolute.zip"), StandardCharsets.UTF_8);
+        try (ZipOutputStream stream = encodedFile.openZipOutputStream()) {
+            stream.putNextEntry(new ZipEntry(new File(tempDir, "evil.txt").getAbsolutePath()));
+            stream.closeEntry();
+        }
+        assertThrows(ZipException.class, () -> encodedFile.extractTo(new File(tempDir, "out"), 2));
+        assertFalse(new File(tempDir, "evil.txt").exists());
+    }
+
+    @Test
+    void testExtractInvalidArguments() {
+        EncodedFile encodedFile = new EncodedFile(new File("src/test/resources/testUtf8.zip"),
+                StandardCharsets.UTF_8);
+        assertThrows(NullPointerException.class, () -> encodedFile.extractTo(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> encodedFile.extractTo(tempDir, 0));
+    }
+
+    private static File writeStored(File file, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        try (ZipOutputStream stream = new EncodedFile(file, StandardCharsets.UTF_8).openZipOutputStream()) {
+            ZipEntry entry = new ZipEntry("large.bin");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(content.length);
+            entry.setCrc(crc.getValue());
+            stream.putNextEntry(entry);
+            stream.write(content);
+            stream.closeEntry();
+        }
+        return file;
+    }
+
+    private static EncodedFile createArchive(File file, int entries) throws IOException {
+        EncodedFile encodedFile = new EncodedFile(file, Charset.forName("Shift_JIS"));
+        try (ZipOutputStream stream = encodedFile.openZipOutputStream()) {
+            for (int i = 0; i < entries; i++) {
+                stream.putNextEntry(new ZipEntry("フォルダ" + (i % 5) + "/ファイル" + i + ".txt"));
+                stream.write(("内容" + i).repeat(i * 10).getBytes(StandardCharsets.UTF_8));
+                stream.closeEntry();
+            }
+        }
+        return encodedFile;
+    }
+
+    private static void assertExtracted(EncodedFile encodedFile, File target) throws IOException {
+        try (ZipFile zipFile = encodedFile.openZipFile()) {
+            for (Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+                ZipEntry entry = entries.nextElement();
+                File file = new File(target, entry.getName());
+                if (entry.isDirectory()) {
+                    assertTrue(file.isDirectory(), entry.getName());
+                    continue;
+                }
+                try (InputStream stream = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(stream.readAllBytes(), Files.readAllBytes(file.toPath()), entry.getName());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the ZipFilePool class.
+ */
+public class ZipFilePoolTest {
+    private Charset shiftJis;
+    private File shiftJisFile;
+    private File utf8File;
+    private AtomicLong clock;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        shiftJis = Charset.forName("Shift_JIS");
+        shiftJisFile = copy("testShiftJis.zip");
+        utf8File = copy("testUtf8.zip");
+        clock = new AtomicLong();
+    }
+
+    @Test
+    void testAcquireSharesZipFile() throws IOException {
+        try (ZipFilePool pool = new ZipFilePool(4, Duration.ofMinutes(1), clock::get)) {
+            EncodedFile encodedFile = new EncodedFile(shiftJisFile, shiftJis);
+            try (ZipFilePool.Lease first = pool.acquire(encodedFile);
+                    ZipFilePool.Lease second = pool.acquire(new EncodedFile(shiftJisFile, shiftJis))) {
+                assertSame(first.zipFile(), second.zipFile());
+            }
+            try (ZipFilePool.Lease third = pool.acquire(encodedFile);
+                    ZipFilePool.Lease other = pool.acquire(
+                            new EncodedFile(shiftJisFile, StandardCharsets.ISO_8859_1))) {
+                assertNotSame(third.zipFile(), other.zipFile());
+            }
+            assertEquals(2, pool.hitCount());
+            assertEquals(2, pool.missCount());
+            assertEquals(2, pool.size());
+        }
+    }
+
+    @Test
+    void testLeaseClose() throws IOException {
+        try (ZipFilePool pool = new ZipFilePool(4, Duration.ofMinutes(1), clock::get)) {
+            ZipFilePool.Lease lease = pool.acquire(new EncodedFile(shiftJisFile, shiftJis));
+            ZipFile zipFile = lease.zipFile();
+            lease.close();
+            lease.close();
+            assertThrows(IllegalStateException.class, lease::zipFile);
+            // The zip file stays open in the pool.
+            assertEquals(zipFile.size(), zipFile.stream().count());
+        }
+    }
+
+    @Test
+    void testEvictIdle() throws IOException {
+        try (ZipFilePool pool = new ZipFilePool(4, Duration.ofSeconds(10), clock::get)) {
+            ZipFile zipFile;
+            try (ZipFilePool.Lease lease = pool.acquire(new EncodedFile(shiftJisFile, shiftJis))) {
+                zipFile = lease.zipFile();
+            }
+            clock.addAndGet(Duration.ofSeconds(5).toNanos());
+            pool.evictIdle();
+            assertEquals(1, pool.size());
+            clock.addAndGet(Duration.ofSeconds(6).toNanos());
+            pool.evictIdle();
+            assertEquals(0, pool.size());
+            assertEquals(1, pool.evictionCount());
+            assertThrows(IllegalStateException.class, zipFile::size);
+        }
+    }
+
+    /**
+     * Verifies that the least recently used zip file without a lease is evicted
+     * when the pool is full, and a zip file in use is not.
+     */
+    @Test
+    void testEvictLeastRecentlyUsed() throws IOException {
+        try (ZipFilePool pool = new ZipFilePool(1, Duration.ofMinutes(1), clock::get)) {
+            EncodedFile shiftJisEncoded = new EncodedFile(shiftJisFile, shiftJis);
+            EncodedFile utf8Encoded = new EncodedFile(utf8File, StandardCharsets.UTF_8);
+            ZipFilePool.Lease first = pool.acquire(shiftJisEncoded);
+            ZipFilePool.Lease second = pool.acquire(utf8Encoded);
+            assertEquals(2, pool.size());
+            assertEquals(0, pool.evictionCount());
+            ZipFile evicted = second.zipFile();
+            second.close();
+            assertEquals(1, pool.size());
+            assertEquals(1, pool.evictionCount());
+            assertThrows(IllegalStateException.class, evicted::size);
+            ZipFile kept = first.zipFile();
+            first.close();
+            try (ZipFilePool.Lease lease = pool.acquire(shiftJisEncoded)) {
+                assertSame(kept, lease.zipFile());
+                assertEquals(1, pool.hitCount());
+            }
+        }
+    }
+
+    /**
+     * Verifies that a zip file is replaced when its file changes, and that the
+     * old one stays open until its lease is closed.
+     */
+    @Test
+    void testInvalidateChangedFile() throws IOException {
+        try (ZipFilePool pool = new ZipFilePool(4, Duration.ofMinutes(1), clock::get)) {
+            EncodedFile encodedFile = new EncodedFile(shiftJisFile, shiftJis);
+            ZipFilePool.Lease old = pool.acquire(encodedFile);
+            ZipFile oldZipFile = old.zipFile();
+            try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(shiftJisFile), shiftJis)) {
+                stream.putNextEntry(new ZipEntry("新しい.txt"));
+                stream.closeEntry();
+            }
+            shiftJisFile.setLastModified(shiftJisFile.lastModified() + 10000);
+            try (ZipFilePool.Lease lease = pool.acquire(encodedFile)) {
+                assertNotSame(oldZipFile, lease.zipFile());
+                assertEquals(1, lease.zipFile().size());
+                assertEquals(1, pool.invalidationCount());
+                assertEquals(oldZipFile.size(), oldZipFile.stream().count());
+            }
+            old.close();
+            assertThrows(IllegalStateException.class, oldZipFile::size);
+        }
+    }
+
+    @Test
+    void testClose() throws IOException {
+        ZipFilePool pool = new ZipFilePool(4, Duration.ofMinutes(1), clock::get);
+        ZipFilePool.Lease idle = pool.acquire(new EncodedFile(utf8File, StandardCharsets.UTF_8));
+        ZipFile idleZipFile = idle.zipFile();
+        idle.close();
+        ZipFilePool.Lease leased = pool.acquire(new EncodedFile(shiftJisFile, shiftJis));
+        pool.close();
+        assertThrows(IllegalStateException.class, idleZipFile::size);
+        assertEquals(leased.zipFile().size(), leased.zipFile().stream().count());
+        ZipFile leasedZipFile = leased.zipFile();
+        leased.close();
+        assertThrows(IllegalStateException.class, leasedZipFile::size);
+        assertThrows(IllegalStateException.class,
+                () -> pool.acquire(new EncodedFile(shiftJisFile, shiftJis)));
+    }
+
+    @Test
+    void testInvalidArguments() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new ZipFilePool(0, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new ZipFilePool(1, Duration.ofSeconds(-1)));
+        assertThrows(NullPointerException.class, () -> new ZipFilePool(1, null));
+        try (ZipFilePool pool = new ZipFilePool(1, Duration.ZERO)) {
+            assertThrows(NullPointerException.class, () -> pool.acquire(null));
+            assertThrows(IOException.class, () -> pool.acquire(new EncodedFile(new File("missing.zip"), shiftJis)));
+        }
+    }
+
+    private File copy(String name) throws IOException {
+        File file = new File(tempDir, name);
+        Files.copy(new File("src/test/resources/" + name).toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        return file;
+    }
+}
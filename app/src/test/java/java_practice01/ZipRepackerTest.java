@@ -0,0 +1,198 @@
+package java_practice01;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * This class contains unit tests for the ZipRepacker class.
+ */
+public class ZipRepackerTest {
+
+    @TempDir
+    File tempDir;
+
+    /**
+     * Verifies that the names of the sample archives are re-packed in UTF-8 and
+     * that the entries keep their contents.
+     */
+    @Test
+    void testRepackSamples() throws IOException {
+        String[][] samples = {
+                { "src/test/resources/testEucJp.zip", "EUC-JP" },
+                { "src/test/resources/testShiftJis.zip", "Shift_JIS" },
+                { "src/test/resources/testUtf8.zip", "UTF-8" },
+        };
+        for (String[] sample : samples) {
+            EncodedFile source = new EncodedFile(new File(sample[0]), Charset.forName(sample[1]));
+            EncodedFile target = source.repackToUtf8(new File(tempDir, new File(sample[0]).getName()));
+            assertEquals(StandardCharsets.UTF_8, target.charset());
+            assertSameEntries(source, target);
+        }
+    }
+
+    /**
+     * Verifies that entries whose sizes follow the data in a data descriptor,
+     * as ZipOutputStream writes deflated entries, are copied with it.
+     */
+    @Test
+    void testRepackDataDescriptor() throws IOException {
+        Charset shiftJis = Charset.forName("Shift_JIS");
+        EncodedFile source = new EncodedFile(new File(tempDir, "descriptor.zip"), shiftJis);
+        try (ZipOutputStream stream = source.openZipOutputStream()) {
+            stream.setComment("コメント");
+            for (int i = 0; i < 3; i++) {
+                ZipEntry entry = new ZipEntry("ディレクトリ/ファイル" + i + ".txt");
+                entry.setComment("説明" + i);
+                stream.putNextEntry(entry);
+                stream.write(("内容" + i).repeat(100).getBytes(shiftJis));
+                stream.closeEntry();
+            }
+        }
+        EncodedFile target = source.repackToUtf8(new File(tempDir, "utf8.zip"));
+        assertSameEntries(source, target);
+        CentralDirectory directory = CentralDirectory.read(target.file());
+        for (int i = 0; i < directory.size(); i++) {
+            assertTrue((directory.flags(i) & CentralDirectory.FLAG_UTF8) != 0);
+        }
+        try (ZipFile zipFile = new ZipFile(target.file(), shiftJis)) {
+            // Names declare UTF-8, so they read the same with any charset.
+            assertEquals("ディレクトリ/ファイル0.txt", zipFile.entries().nextElement().getName());
+        }
+    }
+
+    /**
+     * Verifies that an archive with more entries than the END header can hold
+     * is re-packed with a Zip64 end of central directory record.
+     */
+    @Test
+    void testRepackZip64() throws IOException {
+        File file = new File(tempDir, "zip64.zip");
+        int total = 0x10000 + 10;
+        try (ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < total; i++) {
+                stream.putNextEntry(new ZipEntry("d/" + i));
+                stream.closeEntry();
+            }
+        }
+        EncodedFile target = new EncodedFile(file, StandardCharsets.UTF_8).repackToUtf8(new File(tempDir, "r.zip"));
+        try (ZipFile zipFile = target.openZipFile()) {
+            assertEquals(total, zipFile.size());
+            assertEquals("d/65545", Collections.list(zipFile.entries()).get(total - 1).getName());
+        }
+    }
+
+    @Test
+    void testRepackUndecodableName() {
+        EncodedFile source = new EncodedFile(new File("src/test/resources/testShiftJis.zip"),
+                StandardCharsets.US_ASCII);
+        assertThrows(ZipException.class, () -> source.repackToUtf8(new File(tempDir, "r.zip")));
+    }
+
+    /**
+     * Verifies that a failed re-pack leaves an existing target as it was and
+     * no temporary file behind, whether a name cannot be decoded or a local
+     * header turns out broken while the archive is written.
+     */
+    @Test
+    void testFailedRepackKeepsTarget() throws IOException {
+        File target = new File(tempDir, "r.zip");
+        Files.writeString(target.toPath(), "old");
+        EncodedFile undecodable = new EncodedFile(new File("src/test/resources/testShiftJis.zip"),
+                StandardCharsets.US_ASCII);
+        assertThrows(ZipException.class, () -> undecodable.repackToUtf8(target));
+        assertEquals("old", Files.readString(target.toPath()));
+
+        File broken = new File(tempDir, "broken.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(broken))) {
+            for (String name : new String[] { "a.txt", "b.txt" }) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(name.getBytes(StandardCharsets.US_ASCII));
+                out.closeEntry();
+            }
+        }
+        byte[] bytes = Files.readAllBytes(broken.toPath());
+        // Breaks the signature of the second local header.
+        for (int i = 4; i < bytes.length - 3; i++) {
+            if (bytes[i] == 'P' && bytes[i + 1] == 'K' && bytes[i + 2] == 3 && bytes[i + 3] == 4) {
+                bytes[i] = 'X';
+                break;
+            }
+        }
+        Files.write(broken.toPath(), bytes);
+        EncodedFile source = new EncodedFile(broken, StandardCharsets.US_ASCII);
+        assertThrows(ZipException.class, () -> source.repackToUtf8(target));
+        assertEquals("old", Files.readString(target.toPath()));
+        assertEquals(2, tempDir.list().length);
+    }
+
+    /**
+     * Verifies that re-packing an archive onto itself, under another path as
+     * well, is rejected and leaves the archive intact.
+     */
+    @Test
+    void testRepackOntoSource() throws IOException {
+        File copy = new File(tempDir, "copy.zip");
+        Files.copy(new File("src/test/resources/testShiftJis.zip").toPath(), copy.toPath());
+        byte[] bytes = Files.readAllBytes(copy.toPath());
+        EncodedFile source = new EncodedFile(copy, Charset.forName("Shift_JIS"));
+        assertThrows(IllegalArgumentException.class, () -> source.repackToUtf8(copy));
+        assertThrows(IllegalArgumentException.class,
+                () -> source.repackToUtf8(new File(tempDir, "./../" + tempDir.getName() + "/copy.zip")));
+        assertArrayEquals(bytes, Files.readAllBytes(copy.toPath()));
+    }
+
+    @Test
+    void testRepackNullTarget() {
+        EncodedFile source = new EncodedFile(new File("src/test/resources/testUtf8.zip"), StandardCharsets.UTF_8);
+        assertThrows(NullPointerException.class, () -> source.repackToUtf8(null));
+    }
+
+    private static void assertSameEntries(EncodedFile source, EncodedFile target) throws IOException {
+        try (ZipFile expected = source.openZipFile(); ZipFile actual = target.openZipFile()) {
+            assertEquals(expected.getComment(), actual.getComment());
+            List<? extends ZipEntry> expectedEntries = Collections.list(expected.entries());
+            List<? extends ZipEntry> actualEntries = Collections.list(actual.entries());
+            List<String> expectedNames = new ArrayList<>();
+            List<String> actualNames = new ArrayList<>();
+            for (int i = 0; i < expectedEntries.size(); i++) {
+                ZipEntry expectedEntry = expectedEntries.get(i);
+                ZipEntry actualEntry = actualEntries.get(i);
+                expectedNames.add(expectedEntry.getName());
+                actualNames.add(actualEntry.getName());
+                assertEquals(expectedEntry.getComment(), actualEntry.getComment());
+                assertEquals(expectedEntry.getCrc(), actualEntry.getCrc());
+                assertEquals(expectedEntry.getCompressedSize(), actualEntry.getCompressedSize());
+                try (InputStream expectedStream = expected.getInputStream(expectedEntry);
+                        InputStream actualStream = actual.getInputStream(actualEntry)) {
+                    byte[] content = actualStream.readAllBytes();
+                    assertArrayEquals(expectedStream.readAllBytes(), content);
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    assertEquals(actualEntry.getCrc(), crc.getValue());
+                }
+            }
+            assertEquals(expectedNames, actualNames);
+        }
+    }
+}
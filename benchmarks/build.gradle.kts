@@ -0,0 +1,35 @@
+/*
+ * Benchmarks of the detection hot paths of the app project.
+ *
+ * Run them with `./gradlew :benchmarks:jmh`. The GC profiler reports the
+ * allocation rate of every benchmark next to its score.
+ */
+
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+repositories {
+    // Use Maven Central for resolving dependencies.
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":app"))
+}
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(21)
+    }
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    profilers.add("gc")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    resultFormat = "JSON"
+}
@@ -0,0 +1,79 @@
+package java_practice01;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks opening and validating a single archive by its own charset, which
+ * is the worst case of validation because every entry name is checked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodedFileBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    public int entries;
+
+    @Param({ "8", "64" })
+    public int nameLength;
+
+    @Param({ "Shift_JIS", "EUC-JP", "ISO-2022-JP", "UTF-8" })
+    public String charsetName;
+
+    private EncodedFile encodedFile;
+
+    private ZipFile zipFile;
+
+    private CentralDirectory directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Charset charset = Charset.forName(charsetName);
+        File file = SyntheticArchives.get(entries, nameLength, charset);
+        encodedFile = new EncodedFile(file, charset);
+        zipFile = encodedFile.openZipFile();
+        directory = CentralDirectory.read(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        zipFile.close();
+    }
+
+    @Benchmark
+    public boolean validateEntryNamesZipFile() {
+        return encodedFile.validateEntryNames(zipFile);
+    }
+
+    @Benchmark
+    public boolean validateEntryNamesCentralDirectory() {
+        return encodedFile.validateEntryNames(directory);
+    }
+
+    @Benchmark
+    public int openZipFile() throws IOException {
+        try (ZipFile opened = encodedFile.openZipFile()) {
+            return opened.size();
+        }
+    }
+
+    @Benchmark
+    public int readCentralDirectory() throws IOException {
+        return CentralDirectory.read(encodedFile.file()).size();
+    }
+}
@@ -0,0 +1,74 @@
+package java_practice01;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks probing an archive against all four fixture charsets, with the
+ * charset of the archive listed last. findFirstValidZipFile stops at the first
+ * candidate which accepts every name, which is not always the charset of the
+ * archive: the 7-bit names of ISO-2022-JP, for one, are also valid in
+ * Shift_JIS and EUC-JP. So only availables, which validates every candidate,
+ * measures the worst case for all four fixtures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodedFileListBenchmark {
+
+    /**
+     * The charsets of the fixture archives.
+     */
+    private static final List<String> CHARSETS = Arrays.asList("Shift_JIS", "EUC-JP", "ISO-2022-JP", "UTF-8");
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    public int entries;
+
+    @Param({ "8", "64" })
+    public int nameLength;
+
+    @Param({ "Shift_JIS", "EUC-JP", "ISO-2022-JP", "UTF-8" })
+    public String charsetName;
+
+    private EncodedFileList list;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Charset charset = Charset.forName(charsetName);
+        File file = SyntheticArchives.get(entries, nameLength, charset);
+        List<Charset> candidates = new ArrayList<>();
+        for (String name : CHARSETS) {
+            if (!name.equals(charsetName)) {
+                candidates.add(Charset.forName(name));
+            }
+        }
+        candidates.add(charset);
+        list = new EncodedFileList(new ArrayList<>()).collect(Arrays.asList(file), candidates);
+    }
+
+    @Benchmark
+    public Optional<EncodedFile> findFirstValidZipFile() {
+        return list.findFirstValidZipFile();
+    }
+
+    @Benchmark
+    public EncodedFileList availables() {
+        return list.availables();
+    }
+}
@@ -0,0 +1,85 @@
+package java_practice01;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates zip files with synthetic entry names for the benchmarks. The names
+ * are built from a fixed seed, so the same parameters always give the same
+ * archive, which is generated only once and kept in the temporary directory.
+ */
+final class SyntheticArchives {
+
+    /**
+     * The characters the entry names are made of. All of them can be encoded by
+     * every benchmarked charset.
+     */
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789_-"
+            + "日本語表示漢字文書資料画像写真会議報告一覧あいうえおかきくけこアイウエオカキクケコ";
+
+    /**
+     * The number of entries per directory.
+     */
+    private static final int ENTRIES_PER_DIRECTORY = 100;
+
+    private SyntheticArchives() {
+    }
+
+    /**
+     * Returns a zip file with the given number of empty entries whose names are
+     * encoded by the given charset.
+     *
+     * @param entries    the number of entries
+     * @param nameLength the length of each entry name in characters
+     * @param charset    the charset of the entry names
+     * @return the zip file
+     * @throws IOException if an I/O error occurs
+     */
+    static File get(int entries, int nameLength, Charset charset) throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "java_practice01-benchmarks");
+        File file = new File(dir, entries + "-" + nameLength + "-" + charset.name() + ".zip");
+        if (file.isFile()) {
+            return file;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        Random random = new Random(entries * 31L + nameLength);
+        CRC32 emptyCrc = new CRC32();
+        try (ZipOutputStream stream = new ZipOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 1 << 16), charset)) {
+            String directory = "";
+            for (int i = 0; i < entries; i++) {
+                if (i % ENTRIES_PER_DIRECTORY == 0) {
+                    directory = name(random, Math.max(1, nameLength / 2)) + "/";
+                }
+                ZipEntry entry = new ZipEntry(directory + name(random, nameLength) + "-" + i);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(0);
+                entry.setCrc(emptyCrc.getValue());
+                stream.putNextEntry(entry);
+                stream.closeEntry();
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Failed to create " + file);
+        }
+        return file;
+    }
+
+    private static String name(Random random, int length) {
+        StringBuilder name = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return name.toString();
+    }
+}
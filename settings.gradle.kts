@@ -11,4 +11,4 @@ plugins {
 }
 
 rootProject.name = "java_practice01"
-include("app")
+include("app", "benchmarks")